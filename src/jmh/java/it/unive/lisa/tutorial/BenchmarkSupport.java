@@ -0,0 +1,127 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.type.Type;
+import it.unive.lisa.type.Untyped;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Utilities shared by the microbenchmarks of the tutorial domains. The
+ * benchmarks build their states by hand, so they only need synthetic
+ * identifiers and constants: program points and oracles are never inspected
+ * by the domains during lattice operations, and {@code null} is passed
+ * instead. Assignments and assumptions instead need an oracle, and
+ * {@link #ORACLE} is used for them.
+ */
+final class BenchmarkSupport {
+
+	/**
+	 * An oracle that knows nothing about types and memory: environments use it
+	 * only to decide whether they can process an expression, and an oracle
+	 * without type information lets every expression through.
+	 */
+	static final SemanticOracle ORACLE = new SemanticOracle() {
+
+		@Override
+		public Set<Type> getRuntimeTypesOf(
+				SymbolicExpression e,
+				ProgramPoint pp,
+				SemanticOracle oracle) {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Type getDynamicTypeOf(
+				SymbolicExpression e,
+				ProgramPoint pp,
+				SemanticOracle oracle) {
+			return Untyped.INSTANCE;
+		}
+
+		@Override
+		public ExpressionSet rewrite(
+				SymbolicExpression expression,
+				ProgramPoint pp,
+				SemanticOracle oracle) {
+			return new ExpressionSet(expression);
+		}
+
+		@Override
+		public Satisfiability alias(
+				SymbolicExpression x,
+				SymbolicExpression y,
+				ProgramPoint pp,
+				SemanticOracle oracle) {
+			return Satisfiability.UNKNOWN;
+		}
+
+		@Override
+		public Satisfiability isReachableFrom(
+				SymbolicExpression x,
+				SymbolicExpression y,
+				ProgramPoint pp,
+				SemanticOracle oracle) {
+			return Satisfiability.UNKNOWN;
+		}
+	};
+
+	private BenchmarkSupport() {
+		// this class is just a static holder
+	}
+
+	/**
+	 * Builds {@code size} distinct variables, named {@code x0}, {@code x1},
+	 * ...
+	 *
+	 * @param size the number of variables to create
+	 *
+	 * @return the variables
+	 */
+	static Identifier[] variables(
+			int size) {
+		Identifier[] ids = new Identifier[size];
+		for (int i = 0; i < size; i++)
+			ids[i] = new Variable(Untyped.INSTANCE, "x" + i, SyntheticLocation.INSTANCE);
+		return ids;
+	}
+
+	/**
+	 * Builds an integer constant.
+	 *
+	 * @param value the value of the constant
+	 *
+	 * @return the constant
+	 */
+	static Constant constant(
+			int value) {
+		return new Constant(Untyped.INSTANCE, value, SyntheticLocation.INSTANCE);
+	}
+
+	/**
+	 * Builds the binary expression {@code left op right}.
+	 *
+	 * @param left     the left operand
+	 * @param operator the operator
+	 * @param right    the right operand
+	 *
+	 * @return the expression
+	 */
+	static BinaryExpression binary(
+			Identifier left,
+			BinaryOperator operator,
+			Identifier right) {
+		return new BinaryExpression(Untyped.INSTANCE, left, right, operator, SyntheticLocation.INSTANCE);
+	}
+}
@@ -0,0 +1,74 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.symbolic.value.Identifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdSetBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	private Identifier[] ids;
+
+	private StrictUpperBounds.IdSet left, right;
+
+	@Setup
+	public void setup() {
+		ids = BenchmarkSupport.variables(size);
+		Set<Identifier> l = new HashSet<>(), r = new HashSet<>();
+		for (int i = 0; i < size; i++) {
+			l.add(ids[i]);
+			// the right set misses one identifier every three
+			if (i % 3 != 0)
+				r.add(ids[i]);
+		}
+		left = new StrictUpperBounds.IdSet(l);
+		// the two sets must share the numbering of the identifiers
+		right = left.fromElements(r);
+	}
+
+	@Benchmark
+	public StrictUpperBounds.IdSet lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public StrictUpperBounds.IdSet glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public StrictUpperBounds.IdSet widening() throws SemanticException {
+		return right.widening(left);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return right.contains(ids[0]);
+	}
+
+	@Benchmark
+	public StrictUpperBounds.IdSet add() {
+		return right.add(ids[0]);
+	}
+}
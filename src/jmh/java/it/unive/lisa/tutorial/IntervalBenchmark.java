@@ -0,0 +1,105 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.util.numeric.MathNumber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IntervalBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	private Identifier[] ids;
+
+	private Interval[] lefts, rights;
+
+	private ValueEnvironment<Interval> left, right;
+
+	@Setup
+	public void setup() {
+		Interval domain = new Interval().top();
+		ids = BenchmarkSupport.variables(size);
+		lefts = new Interval[size];
+		rights = new Interval[size];
+		Map<Identifier, Interval> l = new HashMap<>(), r = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			lefts[i] = new Interval(new MathNumber(i), new MathNumber(i + 10));
+			// half of the variables have the same value in both environments,
+			// the other half has intervals that grow on both sides
+			rights[i] = i % 2 == 0 ? lefts[i] : new Interval(new MathNumber(i - 5), new MathNumber(i + 15));
+			l.put(ids[i], lefts[i]);
+			r.put(ids[i], rights[i]);
+		}
+		left = new ValueEnvironment<>(domain, l);
+		right = new ValueEnvironment<>(domain, r);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Interval> lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Interval> glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Interval> widening() throws SemanticException {
+		return left.widening(right);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public void evalBinaryExpression(
+			Blackhole bh) {
+		Interval domain = left.lattice;
+		for (int i = 0; i < size; i++) {
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingSub.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingMul.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingDiv.INSTANCE, lefts[i], rights[i], null, null));
+		}
+	}
+
+	@Benchmark
+	public ValueEnvironment<Interval> assign() throws SemanticException {
+		// x0 = x1 + x(size-1)
+		return left.assign(ids[0],
+				BenchmarkSupport.binary(ids[Math.min(1, size - 1)], NumericNonOverflowingAdd.INSTANCE, ids[size - 1]),
+				null, BenchmarkSupport.ORACLE);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Interval> assume() throws SemanticException {
+		// x0 < x(size-1)
+		return left.assume(BenchmarkSupport.binary(ids[0], ComparisonLt.INSTANCE, ids[size - 1]),
+				null, null, BenchmarkSupport.ORACLE);
+	}
+}
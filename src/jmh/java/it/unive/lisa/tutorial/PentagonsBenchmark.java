@@ -0,0 +1,95 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.util.numeric.MathNumber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PentagonsBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	private Identifier[] ids;
+
+	private Pentagons left, right;
+
+	@Setup
+	public void setup() {
+		ids = BenchmarkSupport.variables(size);
+		StrictUpperBounds bounds = new StrictUpperBounds();
+		Map<Identifier, Interval> li = new HashMap<>(), ri = new HashMap<>();
+		Map<Identifier, StrictUpperBounds.IdSet> lb = new HashMap<>(), rb = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			li.put(ids[i], new Interval(new MathNumber(2 * i), new MathNumber(2 * i + 1)));
+			ri.put(ids[i], new Interval(new MathNumber(2 * i), new MathNumber(i % 2 == 0 ? 2 * i + 1 : 2 * i + 3)));
+			if (i < size - 1) {
+				// on the left, every variable is bounded by the next one, while
+				// on the right only even ones are: the missing bounds have to
+				// be recovered from the intervals during the lub
+				StrictUpperBounds.IdSet next = bounds.lattice.fromElements(Collections.singleton(ids[i + 1]));
+				lb.put(ids[i], next);
+				if (i % 2 == 0)
+					rb.put(ids[i], next);
+			}
+		}
+
+		ValueEnvironment<Interval> intervals = new PersistentValueEnvironment<>(new Interval().top());
+		left = new Pentagons(bounds.mk(bounds.lattice, lb), intervals.mk(intervals.lattice, li));
+		right = new Pentagons(bounds.mk(bounds.lattice, rb), intervals.mk(intervals.lattice, ri));
+	}
+
+	@Benchmark
+	public Pentagons lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public Pentagons glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public Pentagons widening() throws SemanticException {
+		return left.widening(right);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public Pentagons assign() throws SemanticException {
+		// x0 = x(size-1) - x1
+		return left.assign(ids[0],
+				BenchmarkSupport.binary(ids[size - 1], NumericNonOverflowingSub.INSTANCE, ids[Math.min(1, size - 1)]),
+				null, BenchmarkSupport.ORACLE);
+	}
+
+	@Benchmark
+	public Satisfiability satisfies() throws SemanticException {
+		// x0 < x1
+		return left.satisfies(BenchmarkSupport.binary(ids[0], ComparisonLt.INSTANCE, ids[Math.min(1, size - 1)]),
+				null, BenchmarkSupport.ORACLE);
+	}
+}
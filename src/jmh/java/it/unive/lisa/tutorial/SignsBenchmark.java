@@ -0,0 +1,169 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignsBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	private Signs[] lefts, rights;
+
+	private ValueEnvironment<Signs> left, right;
+
+	private ValueEnvironment<Signs> packedLeft, packedRight;
+
+	@Setup
+	public void setup() throws SemanticException {
+		Signs domain = new Signs().top();
+		Signs[] values = {
+				domain.evalNonNullConstant(BenchmarkSupport.constant(-1), null, null),
+				domain.evalNonNullConstant(BenchmarkSupport.constant(0), null, null),
+				domain.evalNonNullConstant(BenchmarkSupport.constant(1), null, null),
+				domain.top()
+		};
+
+		Identifier[] ids = BenchmarkSupport.variables(size);
+		lefts = new Signs[size];
+		rights = new Signs[size];
+		Map<Identifier, Signs> l = new HashMap<>(), r = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			lefts[i] = values[i % values.length];
+			// half of the variables have the same value in both environments
+			rights[i] = i % 2 == 0 ? lefts[i] : values[(i + 1) % values.length];
+			l.put(ids[i], lefts[i]);
+			r.put(ids[i], rights[i]);
+		}
+		left = new ValueEnvironment<>(domain, l);
+		right = new ValueEnvironment<>(domain, r);
+
+		PackedValueEnvironment<Signs> packed = new PackedValueEnvironment<>(domain);
+		packedLeft = packed.mk(domain, l);
+		packedRight = packed.mk(domain, r);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> widening() throws SemanticException {
+		return left.widening(right);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> packedLub() throws SemanticException {
+		return packedLeft.lub(packedRight);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> packedGlb() throws SemanticException {
+		return packedLeft.glb(packedRight);
+	}
+
+	@Benchmark
+	public boolean packedLessOrEqual() throws SemanticException {
+		return packedLeft.lessOrEqual(packedRight);
+	}
+
+	@Benchmark
+	public void evalBinaryExpression(
+			Blackhole bh)
+			throws SemanticException {
+		Signs domain = left.lattice;
+		for (int i = 0; i < size; i++) {
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingSub.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingMul.INSTANCE, lefts[i], rights[i], null, null));
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingDiv.INSTANCE, lefts[i], rights[i], null, null));
+		}
+	}
+
+	@Benchmark
+	public void evalBinaryExpressionBranching(
+			Blackhole bh) {
+		// the same as evalBinaryExpression, without the precomputed tables
+		for (int i = 0; i < size; i++) {
+			bh.consume(SignsReference.evalBranching(NumericNonOverflowingAdd.INSTANCE, lefts[i], rights[i]));
+			bh.consume(SignsReference.evalBranching(NumericNonOverflowingSub.INSTANCE, lefts[i], rights[i]));
+			bh.consume(SignsReference.evalBranching(NumericNonOverflowingMul.INSTANCE, lefts[i], rights[i]));
+			bh.consume(SignsReference.evalBranching(NumericNonOverflowingDiv.INSTANCE, lefts[i], rights[i]));
+		}
+	}
+
+	@Benchmark
+	public void elementLub(
+			Blackhole bh)
+			throws SemanticException {
+		for (int i = 0; i < size; i++)
+			bh.consume(lefts[i].lub(rights[i]));
+	}
+
+	@Benchmark
+	public void elementLubBranching(
+			Blackhole bh)
+			throws SemanticException {
+		// the same as elementLub, with the checks of BaseLattice instead of the precomputed table
+		for (int i = 0; i < size; i++)
+			bh.consume(SignsReference.lub(lefts[i], rights[i]));
+	}
+
+	@Benchmark
+	public void elementLessOrEqual(
+			Blackhole bh)
+			throws SemanticException {
+		for (int i = 0; i < size; i++)
+			bh.consume(lefts[i].lessOrEqual(rights[i]));
+	}
+
+	@Benchmark
+	public void elementLessOrEqualBranching(
+			Blackhole bh)
+			throws SemanticException {
+		for (int i = 0; i < size; i++)
+			bh.consume(SignsReference.lessOrEqual(lefts[i], rights[i]));
+	}
+
+	@Benchmark
+	public void evalUnaryExpression(
+			Blackhole bh)
+			throws SemanticException {
+		Signs domain = left.lattice;
+		for (int i = 0; i < size; i++)
+			bh.consume(domain.evalUnaryExpression(NumericNegation.INSTANCE, lefts[i], null, null));
+	}
+}
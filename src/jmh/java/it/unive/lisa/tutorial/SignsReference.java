@@ -0,0 +1,189 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.DivisionOperator;
+import it.unive.lisa.symbolic.value.operator.MultiplicationOperator;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+
+/**
+ * The operations of {@link Signs} evaluated by branching on their arguments,
+ * as they were before being replaced by lookups in precomputed tables. These
+ * are only used to measure what the tables save.
+ */
+final class SignsReference {
+
+	// the constant elements of the domain, as isTop and isBottom compare
+	// elements by identity
+	private static final Signs TOP = new Signs().top();
+	private static final Signs BOTTOM = TOP.bottom();
+	private static final Signs NEGATIVE = sign(-1);
+	private static final Signs ZERO = sign(0);
+	private static final Signs POSITIVE = sign(1);
+
+	private SignsReference() {
+		// this class only has static members
+	}
+
+	private static Signs sign(
+			int value) {
+		try {
+			return TOP.evalNonNullConstant(BenchmarkSupport.constant(value), null, null);
+		} catch (SemanticException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The least upper bound of {@code BaseLattice}.
+	 *
+	 * @param left  the first element
+	 * @param right the second element
+	 *
+	 * @return the least upper bound
+	 *
+	 * @throws SemanticException if something goes wrong
+	 */
+	static Signs lub(
+			Signs left,
+			Signs right)
+			throws SemanticException {
+		if (right == null || right.isBottom() || left.isTop() || left == right || left.equals(right))
+			return left;
+
+		if (left.isBottom() || right.isTop())
+			return right;
+
+		return left.lubAux(right);
+	}
+
+	/**
+	 * The partial order of {@code BaseLattice}.
+	 *
+	 * @param left  the first element
+	 * @param right the second element
+	 *
+	 * @return whether {@code left} is less than or equal to {@code right}
+	 *
+	 * @throws SemanticException if something goes wrong
+	 */
+	static boolean lessOrEqual(
+			Signs left,
+			Signs right)
+			throws SemanticException {
+		if (right == null)
+			return false;
+
+		if (left == right || left.isBottom() || right.isTop() || left.equals(right))
+			return true;
+
+		if (left.isTop() || right.isBottom())
+			return false;
+
+		return left.lessOrEqualAux(right);
+	}
+
+	/**
+	 * Evaluates the given binary operator, as
+	 * {@link Signs#evalBinaryExpression} does.
+	 *
+	 * @param operator the operator
+	 * @param left     the sign of the left operand
+	 * @param right    the sign of the right operand
+	 *
+	 * @return the sign of the result
+	 */
+	static Signs evalBranching(
+			BinaryOperator operator,
+			Signs left,
+			Signs right) {
+		if (operator instanceof AdditionOperator)
+			return add(left, right);
+		else if (operator instanceof SubtractionOperator)
+			return sub(left, right);
+		else if (operator instanceof MultiplicationOperator)
+			return mul(left, right);
+		else if (operator instanceof DivisionOperator)
+			return div(left, right);
+
+		return TOP;
+	}
+
+	private static Signs negate(
+			Signs arg) {
+		if (arg == NEGATIVE)
+			return POSITIVE;
+		else if (arg == POSITIVE)
+			return NEGATIVE;
+		else
+			return arg;
+	}
+
+	private static Signs add(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			if (right == ZERO || right == NEGATIVE)
+				return left;
+			else
+				return TOP;
+		} else if (left == POSITIVE) {
+			if (right == ZERO || right == POSITIVE)
+				return left;
+			else
+				return TOP;
+		} else if (left == ZERO) {
+			return right;
+		} else
+			return TOP;
+	}
+
+	private static Signs sub(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			if (right == ZERO || right == POSITIVE)
+				return left;
+			else
+				return TOP;
+		} else if (left == POSITIVE) {
+			if (right == ZERO || right == NEGATIVE)
+				return left;
+			else
+				return TOP;
+		} else if (left == ZERO) {
+			return right;
+		} else
+			return TOP;
+	}
+
+	private static Signs mul(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			return negate(right);
+		} else if (left == POSITIVE) {
+			return right;
+		} else if (left == ZERO) {
+			return ZERO;
+		} else
+			return TOP;
+	}
+
+	private static Signs div(
+			Signs left,
+			Signs right) {
+		if (right == ZERO)
+			return BOTTOM;
+
+		if (left == NEGATIVE) {
+			return negate(right);
+		} else if (left == POSITIVE) {
+			return right;
+		} else if (left == ZERO) {
+			return ZERO;
+		} else
+			return TOP;
+	}
+}
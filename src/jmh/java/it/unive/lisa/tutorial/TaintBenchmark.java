@@ -0,0 +1,93 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaintBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	private Identifier[] ids;
+
+	private Taint[] lefts, rights;
+
+	private ValueEnvironment<Taint> left, right;
+
+	@Setup
+	public void setup() throws SemanticException {
+		Taint domain = new Taint().top();
+		Taint clean = domain.evalNonNullConstant(BenchmarkSupport.constant(0), null, null);
+		Taint tainted = domain.top();
+
+		ids = BenchmarkSupport.variables(size);
+		lefts = new Taint[size];
+		rights = new Taint[size];
+		Map<Identifier, Taint> l = new HashMap<>(), r = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			// one variable every ten is tainted on the left, one every five on
+			// the right
+			lefts[i] = i % 10 == 0 ? tainted : clean;
+			rights[i] = i % 5 == 0 ? tainted : clean;
+			l.put(ids[i], lefts[i]);
+			r.put(ids[i], rights[i]);
+		}
+		left = new ValueEnvironment<>(domain, l);
+		right = new ValueEnvironment<>(domain, r);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Taint> lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Taint> glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public ValueEnvironment<Taint> widening() throws SemanticException {
+		return left.widening(right);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public void evalBinaryExpression(
+			Blackhole bh)
+			throws SemanticException {
+		Taint domain = left.lattice;
+		for (int i = 0; i < size; i++)
+			bh.consume(domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, lefts[i], rights[i], null, null));
+	}
+
+	@Benchmark
+	public ValueEnvironment<Taint> assign() throws SemanticException {
+		// x0 = x1 + x(size-1)
+		return left.assign(ids[0],
+				BenchmarkSupport.binary(ids[Math.min(1, size - 1)], NumericNonOverflowingAdd.INSTANCE, ids[size - 1]),
+				null, BenchmarkSupport.ORACLE);
+	}
+}
@@ -0,0 +1,472 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAReport;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.warnings.Warning;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the analyses of the tutorial end-to-end, following the same pipeline of
+ * the JUnit tests (parsing, analysis and checks, dumping of the results), and
+ * measures each phase separately. The fixpoint and the checks are timed by
+ * wrapping the interprocedural analysis and the semantic checks of the
+ * configuration (see {@link TimedInterproceduralAnalysis} and
+ * {@link TimedCheck}): the rest of the execution of LiSA is accounted as
+ * output, as it is mostly spent dumping files. The heap is sampled while the
+ * analysis runs, and the maximum usage is reported.
+ * <br>
+ * <br>
+ * Results can be written as CSV or JSON files, whose content only depends on
+ * the measurements, so that runs on different commits can be compared.
+ * <br>
+ * <br>
+ * Analyses can be executed in {@link OutputMode#HEADLESS} mode, where no
+ * file is dumped and warnings are streamed to a {@link PrintStream} instead:
+ * comparing the output time with the one of {@link OutputMode#GRAPHS} tells
+ * how much of the execution goes to rendering the states.
+ */
+public class AnalysisRunner {
+
+	/**
+	 * The measurements of one execution of an analysis.
+	 */
+	public static class Result {
+
+		/**
+		 * The analysis that has been executed.
+		 */
+		public final TutorialAnalysis analysis;
+
+		/**
+		 * The path of the analyzed program.
+		 */
+		public final String input;
+
+		/**
+		 * What the analysis dumped.
+		 */
+		public final OutputMode mode;
+
+		/**
+		 * The number of statements in the analyzed program.
+		 */
+		public final long statements;
+
+		/**
+		 * The time spent parsing the program, in nanoseconds.
+		 */
+		public final long parseNanos;
+
+		/**
+		 * The time spent computing the fixpoint, in nanoseconds.
+		 */
+		public final long fixpointNanos;
+
+		/**
+		 * The time spent executing the semantic checks, in nanoseconds.
+		 */
+		public final long checksNanos;
+
+		/**
+		 * The time spent in the rest of the execution of LiSA, mostly dumping
+		 * files, in nanoseconds.
+		 */
+		public final long outputNanos;
+
+		/**
+		 * The maximum usage of the heap observed during the execution, in
+		 * bytes. The heap is shared by the whole JVM: when analyses run
+		 * concurrently, this includes the memory used by the others.
+		 */
+		public final long peakHeap;
+
+		/**
+		 * The number of warnings issued by the checks.
+		 */
+		public final int warnings;
+
+		private Result(
+				TutorialAnalysis analysis,
+				String input,
+				OutputMode mode,
+				long statements,
+				long parseNanos,
+				long fixpointNanos,
+				long checksNanos,
+				long outputNanos,
+				long peakHeap,
+				int warnings) {
+			this.analysis = analysis;
+			this.input = input;
+			this.mode = mode;
+			this.statements = statements;
+			this.parseNanos = parseNanos;
+			this.fixpointNanos = fixpointNanos;
+			this.checksNanos = checksNanos;
+			this.outputNanos = outputNanos;
+			this.peakHeap = peakHeap;
+			this.warnings = warnings;
+		}
+
+		/**
+		 * Yields the time spent in all phases.
+		 *
+		 * @return the time, in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return parseNanos + fixpointNanos + checksNanos + outputNanos;
+		}
+
+		/**
+		 * Yields the number of statements analyzed per second during the
+		 * fixpoint.
+		 *
+		 * @return the throughput
+		 */
+		public double getThroughput() {
+			return fixpointNanos == 0 ? 0 : statements * 1e9 / fixpointNanos;
+		}
+	}
+
+	private static final String[] COLUMNS = { "analysis", "input", "mode", "statements", "parse_ms", "fixpoint_ms",
+			"checks_ms", "output_ms", "total_ms", "statements_per_sec", "peak_heap_bytes", "warnings" };
+
+	private static final long SAMPLING_MILLIS = 10;
+
+	private final String workdir;
+
+	private final OutputMode mode;
+
+	private final PrintStream warnings;
+
+	/**
+	 * Builds the runner, that dumps the results of the analyses as HTML
+	 * graphs.
+	 *
+	 * @param workdir the directory where the analyses generate their files,
+	 *                    each in a sub-directory named after the analysis
+	 */
+	public AnalysisRunner(
+			String workdir) {
+		this(workdir, OutputMode.GRAPHS, null);
+	}
+
+	/**
+	 * Builds the runner.
+	 *
+	 * @param workdir  the directory where the analyses generate their files,
+	 *                     each in a sub-directory named after the analysis
+	 * @param mode     what the analyses dump
+	 * @param warnings the stream where the warnings of each analysis are
+	 *                     printed once it terminates, or {@code null}
+	 */
+	public AnalysisRunner(
+			String workdir,
+			OutputMode mode,
+			PrintStream warnings) {
+		this.workdir = workdir;
+		this.mode = mode;
+		this.warnings = warnings;
+	}
+
+	/**
+	 * Runs the given analysis on its default input.
+	 *
+	 * @param analysis the analysis
+	 *
+	 * @return the measurements
+	 *
+	 * @throws ParsingException  if the input cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public Result run(
+			TutorialAnalysis analysis)
+			throws ParsingException,
+			AnalysisException {
+		return run(analysis, analysis.getInput());
+	}
+
+	/**
+	 * Runs the given analysis on the given input.
+	 *
+	 * @param analysis the analysis
+	 * @param input    the path of the program to analyze
+	 *
+	 * @return the measurements
+	 *
+	 * @throws ParsingException  if the input cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public Result run(
+			TutorialAnalysis analysis,
+			String input)
+			throws ParsingException,
+			AnalysisException {
+		HeapSampler heap = new HeapSampler();
+		heap.start();
+		try {
+			return run(analysis, input, heap);
+		} finally {
+			heap.interrupt();
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Result run(
+			TutorialAnalysis analysis,
+			String input,
+			HeapSampler heap)
+			throws ParsingException,
+			AnalysisException {
+		long start = System.nanoTime();
+		Program program = IMPFrontend.processFile(input);
+		long parse = System.nanoTime() - start;
+
+		long statements = 0;
+		for (CFG cfg : program.getAllCFGs())
+			statements += cfg.getNodesCount();
+
+		// we wrap the interprocedural analysis and the checks to time them
+		LiSAConfiguration conf = analysis.configure(Paths.get(workdir, analysis.name().toLowerCase()).toString(), mode);
+		TimedInterproceduralAnalysis<?> interproc = new TimedInterproceduralAnalysis(conf.interproceduralAnalysis);
+		conf.interproceduralAnalysis = interproc;
+		List<TimedCheck<?>> checks = new ArrayList<>();
+		List<StateDumper<?>> dumpers = new ArrayList<>();
+		for (SemanticCheck<?> check : conf.semanticChecks)
+			if (check instanceof StateDumper)
+				// dumping is part of the output
+				dumpers.add((StateDumper<?>) check);
+			else
+				checks.add(new TimedCheck(check));
+		conf.semanticChecks.clear();
+		conf.semanticChecks.addAll(checks);
+		conf.semanticChecks.addAll(dumpers);
+
+		start = System.nanoTime();
+		LiSAReport report = new LiSA(conf).run(program);
+		long total = System.nanoTime() - start;
+
+		if (warnings != null)
+			for (Warning warning : report.getWarnings())
+				warnings.println(analysis.name() + ": " + warning);
+
+		// the checks are executed together, from the first that starts to the
+		// last that ends, and the states are dumped in the meantime
+		long checksNanos = 0;
+		if (!checks.isEmpty()) {
+			long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+			for (TimedCheck<?> check : checks) {
+				first = Math.min(first, check.getStart());
+				last = Math.max(last, check.getEnd());
+			}
+			checksNanos = last - first;
+			for (StateDumper<?> dumper : dumpers)
+				checksNanos -= dumper.getNanos();
+		}
+
+		return new Result(analysis, input, mode, statements, parse, interproc.getFixpointNanos(), checksNanos,
+				total - interproc.getFixpointNanos() - checksNanos, heap.getPeak(), report.getWarnings().size());
+	}
+
+	/**
+	 * A daemon thread sampling the heap usage until it is interrupted. The
+	 * peak usages of the memory pools cannot be used instead, as they are
+	 * reached at different times and they are reset by every run.
+	 */
+	private static class HeapSampler extends Thread {
+
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+		private volatile long peak;
+
+		private HeapSampler() {
+			super("heap-sampler");
+			setDaemon(true);
+			sample();
+		}
+
+		private synchronized void sample() {
+			peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!isInterrupted()) {
+					sample();
+					Thread.sleep(SAMPLING_MILLIS);
+				}
+			} catch (InterruptedException e) {
+				// the run is over
+			}
+		}
+
+		private long getPeak() {
+			sample();
+			return peak;
+		}
+	}
+
+	private static String[] values(
+			Result result) {
+		return new String[] {
+				result.analysis.name(),
+				result.input,
+				result.mode.name(),
+				String.valueOf(result.statements),
+				millis(result.parseNanos),
+				millis(result.fixpointNanos),
+				millis(result.checksNanos),
+				millis(result.outputNanos),
+				millis(result.getTotalNanos()),
+				String.format(Locale.ROOT, "%.1f", result.getThroughput()),
+				String.valueOf(result.peakHeap),
+				String.valueOf(result.warnings)
+		};
+	}
+
+	private static String millis(
+			long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * Writes the given results in CSV format, one line for each result after
+	 * a header line.
+	 *
+	 * @param results the results
+	 * @param file    the path of the file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeCsv(
+			List<Result> results,
+			Path file)
+			throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+			writer.println(String.join(",", COLUMNS));
+			for (Result result : results)
+				writer.println(String.join(",", values(result)));
+		}
+	}
+
+	/**
+	 * Writes the given results in JSON format, as an array of objects.
+	 *
+	 * @param results the results
+	 * @param file    the path of the file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeJson(
+			List<Result> results,
+			Path file)
+			throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+			writer.println("[");
+			for (int r = 0; r < results.size(); r++) {
+				String[] values = values(results.get(r));
+				writer.print("  {");
+				for (int i = 0; i < COLUMNS.length; i++) {
+					// the first three columns are strings, the others are numbers
+					String value = i < 3 ? "\"" + values[i].replace("\\", "\\\\").replace("\"", "\\\"") + "\"" : values[i];
+					writer.print((i == 0 ? " " : ", ") + "\"" + COLUMNS[i] + "\": " + value);
+				}
+				writer.println(r == results.size() - 1 ? " }" : " },");
+			}
+			writer.println("]");
+		}
+	}
+
+	/**
+	 * Runs the analyses of the tutorial and writes {@code results.csv} and
+	 * {@code results.json} in the output directory. Arguments are:
+	 * <ul>
+	 * <li>{@code --out <dir>}: the output directory (default
+	 * {@code outputs/benchmark})</li>
+	 * <li>{@code --scale <factor>} and {@code --seed <seed>}: analyze a program
+	 * generated by {@link ImpGenerator} instead of the inputs of the
+	 * tests</li>
+	 * <li>{@code --mode <mode>}: what the analyses dump, either
+	 * {@code graphs} (default), {@code headless} (warnings are printed on the
+	 * standard output), {@code json} (as headless, but states are streamed to
+	 * a compressed JSON file) or {@code all} (each analysis is executed in all modes)</li>
+	 * <li>the names of the analyses to run (default: all of them)</li>
+	 * </ul>
+	 *
+	 * @param args the arguments
+	 *
+	 * @throws Exception if an analysis fails or the results cannot be written
+	 */
+	public static void main(
+			String[] args)
+			throws Exception {
+		String out = "outputs/benchmark";
+		int scale = 0;
+		long seed = new ImpGenerator.Options().seed;
+		List<OutputMode> modes = List.of(OutputMode.GRAPHS);
+		List<TutorialAnalysis> analyses = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+			switch (args[i]) {
+			case "--out":
+				out = args[++i];
+				break;
+			case "--scale":
+				scale = Integer.parseInt(args[++i]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "--mode":
+				String mode = args[++i];
+				modes = mode.equalsIgnoreCase("all")
+						? List.of(OutputMode.values())
+						: List.of(OutputMode.valueOf(mode.toUpperCase()));
+				break;
+			default:
+				analyses.add(TutorialAnalysis.forName(args[i]));
+			}
+		if (analyses.isEmpty())
+			analyses.addAll(List.of(TutorialAnalysis.values()));
+
+		Files.createDirectories(Paths.get(out));
+		String input = null;
+		if (scale > 0)
+			input = new ImpGenerator(ImpGenerator.Options.scaled(scale, seed))
+					.write(Paths.get(out, "gen" + scale + ".imp").toString())
+					.toString();
+
+		List<Result> results = new ArrayList<>();
+		for (OutputMode mode : modes) {
+			AnalysisRunner runner = new AnalysisRunner(out, mode, mode == OutputMode.GRAPHS ? null : System.out);
+			for (TutorialAnalysis analysis : analyses)
+				results.add(input == null ? runner.run(analysis) : runner.run(analysis, input));
+		}
+
+		// the summary of all runs
+		System.out.println(String.join(",", COLUMNS));
+		for (Result result : results)
+			System.out.println(String.join(",", values(result)));
+
+		writeCsv(results, Paths.get(out, "results.csv"));
+		writeJson(results, Paths.get(out, "results.json"));
+	}
+}
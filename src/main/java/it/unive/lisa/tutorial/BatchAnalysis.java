@@ -0,0 +1,257 @@
+package it.unive.lisa.tutorial;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Analyzes many IMP programs with the same analysis in a single JVM, so that
+ * the cost of starting the JVM and loading LiSA is paid once. Programs are
+ * analyzed on a fixed number of threads, each program with its own
+ * configuration and LiSA instance, through an {@link AnalysisRunner} that
+ * measures each phase. Each program has its own working directory, named
+ * after its position in the batch and its file name, where its warnings are
+ * written in a {@code warnings.txt} file.
+ * <br>
+ * <br>
+ * Since the heap is shared among the threads, the peak heap usage reported
+ * for each program is the one of the whole process.
+ */
+public class BatchAnalysis {
+
+	private final TutorialAnalysis analysis;
+
+	private final OutputMode mode;
+
+	private final int threads;
+
+	private final Path out;
+
+	private final Map<Path, Throwable> failures = new LinkedHashMap<>();
+
+	/**
+	 * Builds the driver.
+	 *
+	 * @param analysis the analysis to execute on each program
+	 * @param mode     what the analysis dumps
+	 * @param threads  the number of programs analyzed at the same time
+	 * @param out      the directory where the working directories of the
+	 *                     programs are created
+	 */
+	public BatchAnalysis(
+			TutorialAnalysis analysis,
+			OutputMode mode,
+			int threads,
+			Path out) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads must be positive");
+		this.analysis = analysis;
+		this.mode = mode;
+		this.threads = threads;
+		this.out = out;
+	}
+
+	/**
+	 * Yields the programs that could not be analyzed by the last call to
+	 * {@link #run(List)}, with the cause of the failure.
+	 *
+	 * @return the failed programs, in the order they were given
+	 */
+	public Map<Path, Throwable> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Analyzes the given programs.
+	 *
+	 * @param files the paths of the programs
+	 *
+	 * @return the measurements of the programs that have been analyzed, in
+	 *             the same order of {@code files}
+	 *
+	 * @throws InterruptedException if the thread is interrupted while
+	 *                                  waiting for the analyses
+	 */
+	public List<AnalysisRunner.Result> run(
+			List<Path> files)
+			throws InterruptedException {
+		failures.clear();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<AnalysisRunner.Result>> futures = new ArrayList<>(files.size());
+			for (int i = 0; i < files.size(); i++) {
+				int index = i;
+				futures.add(pool.submit(() -> analyze(index, files.get(index))));
+			}
+
+			List<AnalysisRunner.Result> results = new ArrayList<>(files.size());
+			for (int i = 0; i < files.size(); i++)
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					failures.put(files.get(i), e.getCause());
+				}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private AnalysisRunner.Result analyze(
+			int index,
+			Path file)
+			throws Exception {
+		// the index makes the directory unique even if two programs have the
+		// same name
+		String name = file.getFileName().toString();
+		if (name.endsWith(".imp"))
+			name = name.substring(0, name.length() - 4);
+		Path workdir = out.resolve(String.format("%05d-%s", index, name));
+		Files.createDirectories(workdir);
+		try (PrintStream warnings = new PrintStream(Files.newOutputStream(workdir.resolve("warnings.txt")))) {
+			return new AnalysisRunner(workdir.toString(), mode, warnings).run(analysis, file.toString());
+		}
+	}
+
+	/**
+	 * Yields the programs to analyze: if the given path is a directory, these
+	 * are all the {@code .imp} files in it and in its sub-directories, sorted
+	 * by path. Otherwise, the path is a manifest with the path of a program
+	 * on each line, relative to the directory of the manifest (empty lines and
+	 * lines starting with {@code #} are ignored).
+	 *
+	 * @param path the directory or the manifest
+	 *
+	 * @return the paths of the programs
+	 *
+	 * @throws IOException if the directory or the manifest cannot be read
+	 */
+	public static List<Path> inputs(
+			Path path)
+			throws IOException {
+		if (Files.isDirectory(path))
+			try (Stream<Path> files = Files.walk(path)) {
+				return files.filter(file -> file.toString().endsWith(".imp"))
+						.filter(Files::isRegularFile)
+						.sorted()
+						.collect(Collectors.toList());
+			}
+
+		Path base = path.toAbsolutePath().getParent();
+		List<Path> files = new ArrayList<>();
+		for (String line : Files.readAllLines(path)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#"))
+				files.add(base.resolve(line).normalize());
+		}
+		return files;
+	}
+
+	/**
+	 * Analyzes a batch of programs. Arguments are the directory or manifest
+	 * with the programs (see {@link #inputs(Path)}) and the name of the
+	 * analysis (see {@link TutorialAnalysis#forName(String)}), followed by the
+	 * options:
+	 * <ul>
+	 * <li>{@code --threads <n>}: the number of programs analyzed at the same
+	 * time (default: the number of processors)</li>
+	 * <li>{@code --warmup <n>}: the number of programs analyzed, and then
+	 * analyzed again, before the measured batch, to warm up the JVM (default
+	 * 0)</li>
+	 * <li>{@code --mode <mode>}: what the analyses dump, either
+	 * {@code headless} (default), {@code graphs} or {@code json}</li>
+	 * <li>{@code --out <dir>}: the output directory (default
+	 * {@code outputs/batch})</li>
+	 * </ul>
+	 * The measurements of each program are written to {@code results.csv},
+	 * the programs that failed to {@code failures.csv}, and the aggregated
+	 * measurements of the batch to {@code summary.csv}.
+	 *
+	 * @param args the arguments
+	 *
+	 * @throws Exception if the inputs or the results cannot be accessed
+	 */
+	public static void main(
+			String[] args)
+			throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BatchAnalysis <dir|manifest> <analysis> [--threads n] [--warmup n] [--mode m] [--out dir]");
+			System.exit(1);
+		}
+
+		List<Path> files = inputs(Paths.get(args[0]));
+		TutorialAnalysis analysis = TutorialAnalysis.forName(args[1]);
+		int threads = Runtime.getRuntime().availableProcessors();
+		int warmup = 0;
+		OutputMode mode = OutputMode.HEADLESS;
+		Path out = Paths.get("outputs/batch");
+		for (int i = 2; i < args.length; i++)
+			switch (args[i]) {
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--warmup":
+				warmup = Integer.parseInt(args[++i]);
+				break;
+			case "--mode":
+				mode = OutputMode.valueOf(args[++i].toUpperCase());
+				break;
+			case "--out":
+				out = Paths.get(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+
+		Files.createDirectories(out);
+		BatchAnalysis batch = new BatchAnalysis(analysis, mode, threads, out);
+		if (warmup > 0)
+			batch.run(files.subList(0, Math.min(warmup, files.size())));
+
+		long start = System.nanoTime();
+		List<AnalysisRunner.Result> results = batch.run(files);
+		long wall = System.nanoTime() - start;
+
+		AnalysisRunner.writeCsv(results, out.resolve("results.csv"));
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out.resolve("failures.csv")))) {
+			writer.println("input,error");
+			for (Map.Entry<Path, Throwable> failure : batch.getFailures().entrySet())
+				writer.println(failure.getKey() + "," + String.valueOf(failure.getValue()).replace(',', ';').replace('\n', ' '));
+		}
+
+		long statements = 0, parse = 0, fixpoint = 0, checks = 0, output = 0, warnings = 0;
+		for (AnalysisRunner.Result result : results) {
+			statements += result.statements;
+			parse += result.parseNanos;
+			fixpoint += result.fixpointNanos;
+			checks += result.checksNanos;
+			output += result.outputNanos;
+			warnings += result.warnings;
+		}
+		String header = "analysis,files,failed,threads,wall_ms,files_per_sec,statements,"
+				+ "parse_ms,fixpoint_ms,checks_ms,output_ms,warnings";
+		String summary = String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%d",
+				analysis.name(), files.size(), batch.getFailures().size(), threads, wall / 1e6,
+				results.size() * 1e9 / wall, statements, parse / 1e6, fixpoint / 1e6, checks / 1e6, output / 1e6,
+				warnings);
+		Files.write(out.resolve("summary.csv"), List.of(header, summary));
+		System.out.println(header);
+		System.out.println(summary);
+		for (Map.Entry<Path, Throwable> failure : batch.getFailures().entrySet())
+			System.err.println("Failed: " + failure.getKey() + ": " + failure.getValue());
+	}
+}
@@ -0,0 +1,91 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+import java.util.function.Predicate;
+
+/**
+ * A {@link SemanticCheck} that delegates everything to another one, but visits
+ * only the {@link CFG}s accepted by a filter: the other ones, and their nodes
+ * and edges, are never given to the delegate check.
+ *
+ * @param <A> the type of {@link AbstractState} inspected by the check
+ */
+public class FilteredCheck<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	private final SemanticCheck<A> check;
+
+	private final Predicate<CFG> filter;
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param check  the check to delegate to
+	 * @param filter the filter selecting the cfgs to visit
+	 */
+	public FilteredCheck(
+			SemanticCheck<A> check,
+			Predicate<CFG> filter) {
+		this.check = check;
+		this.filter = filter;
+	}
+
+	@Override
+	public void beforeExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		check.beforeExecution(tool);
+	}
+
+	@Override
+	public void afterExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		check.afterExecution(tool);
+	}
+
+	@Override
+	public boolean visitUnit(
+			CheckToolWithAnalysisResults<A> tool,
+			Unit unit) {
+		return check.visitUnit(tool, unit);
+	}
+
+	@Override
+	public void visitGlobal(
+			CheckToolWithAnalysisResults<A> tool,
+			Unit unit,
+			Global global,
+			boolean instance) {
+		check.visitGlobal(tool, unit, global, instance);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph) {
+		// returning false skips the nodes and edges of the cfg
+		return filter.test(graph) && check.visit(tool, graph);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph,
+			Statement node) {
+		return check.visit(tool, graph, node);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph,
+			Edge edge) {
+		return check.visit(tool, graph, edge);
+	}
+}
@@ -0,0 +1,88 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A numbering of {@link Identifier}s, assigning consecutive indexes to
+ * identifiers in the order they are first seen. Identifiers are numbered by
+ * name (following {@link Identifier#equals(Object)}), and the index keeps the
+ * first instance seen for each of them. Numbers are never reused, and the
+ * index can be shared among threads.
+ */
+public class IdentifierIndex {
+
+	private final Map<Identifier, Integer> indexes = new ConcurrentHashMap<>();
+
+	// written only while holding the lock on this object, after which the
+	// index of the new identifier gets published through the map
+	private volatile Identifier[] identifiers = new Identifier[16];
+
+	private int size;
+
+	/**
+	 * Yields the index of the given identifier, assigning a new one if the
+	 * identifier was never seen before.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the index of {@code id}
+	 */
+	public int indexOf(
+			Identifier id) {
+		Integer index = indexes.get(id);
+		if (index != null)
+			return index;
+
+		synchronized (this) {
+			index = indexes.get(id);
+			if (index != null)
+				return index;
+
+			if (size == identifiers.length)
+				identifiers = Arrays.copyOf(identifiers, size * 2);
+			identifiers[size] = id;
+			indexes.put(id, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Yields the index of the given identifier, without assigning a new one
+	 * if the identifier was never seen before.
+	 *
+	 * @param id the identifier
+	 *
+	 * @return the index of {@code id}, or {@code -1} if it has no index
+	 */
+	public int lookup(
+			Identifier id) {
+		Integer index = indexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Yields the identifier having the given index.
+	 *
+	 * @param index the index, that must have been returned by
+	 *                  {@link #indexOf(Identifier)}
+	 *
+	 * @return the identifier
+	 */
+	public Identifier get(
+			int index) {
+		return identifiers[index];
+	}
+
+	/**
+	 * Yields the number of identifiers in this index.
+	 *
+	 * @return the number of identifiers
+	 */
+	public int size() {
+		return indexes.size();
+	}
+}
@@ -0,0 +1,298 @@
+package it.unive.lisa.tutorial;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * A generator of synthetic IMP programs, used to measure how the analyses
+ * scale with the size of their inputs. Programs are made of classes with the
+ * same shape: each class contains the annotated {@code source},
+ * {@code sanitizer} and {@code sink} methods of {@code inputs/taint.imp},
+ * followed by a number of methods that declare locals, loop over arrays,
+ * call each other and move values from sources to sinks. The content of the
+ * methods is drawn from a {@link Random} initialized with
+ * {@link Options#seed}, so that the same options always yield the same
+ * program.
+ */
+public class ImpGenerator {
+
+	/**
+	 * The options of the generator. Each field can be changed after the
+	 * creation of the object, and it is validated when the program is
+	 * generated.
+	 */
+	public static class Options {
+
+		/**
+		 * The seed of the random choices.
+		 */
+		public long seed = 42;
+
+		/**
+		 * The number of classes.
+		 */
+		public int classes = 1;
+
+		/**
+		 * The number of methods in each class, excluding sources, sanitizers
+		 * and sinks.
+		 */
+		public int methods = 13;
+
+		/**
+		 * The number of locals declared in each method.
+		 */
+		public int locals = 4;
+
+		/**
+		 * The number of loops in each method.
+		 */
+		public int loops = 1;
+
+		/**
+		 * The nesting depth of each loop.
+		 */
+		public int loopDepth = 2;
+
+		/**
+		 * The number of array reads and writes in the innermost body of each
+		 * loop. If zero, no array is allocated.
+		 */
+		public int arrayAccesses = 2;
+
+		/**
+		 * The length of the call chains: each method calls the next one in the
+		 * class, unless it is the last of its chain.
+		 */
+		public int callDepth = 3;
+
+		/**
+		 * The probability of a local being initialized with the result of a
+		 * source.
+		 */
+		public double sourceDensity = 0.2;
+
+		/**
+		 * The probability of a local being sanitized before the end of the
+		 * method.
+		 */
+		public double sanitizerDensity = 0.2;
+
+		/**
+		 * The probability of a local being passed to a sink at the end of the
+		 * method.
+		 */
+		public double sinkDensity = 0.3;
+
+		/**
+		 * Yields the options for a program that is {@code factor} times bigger
+		 * than the inputs of the tutorial, that have 13 methods overall: the
+		 * program will have {@code factor} classes of 13 methods each.
+		 *
+		 * @param factor the scaling factor
+		 * @param seed   the seed of the random choices
+		 *
+		 * @return the options
+		 */
+		public static Options scaled(
+				int factor,
+				long seed) {
+			Options options = new Options();
+			options.classes = factor;
+			options.seed = seed;
+			return options;
+		}
+
+		private void validate() {
+			if (classes < 1 || methods < 1 || locals < 1)
+				throw new IllegalArgumentException("At least one class, method and local is needed");
+			if (loops < 0 || loopDepth < 1 || arrayAccesses < 0 || callDepth < 1)
+				throw new IllegalArgumentException("Loops and arrays cannot be negative, depths must be positive");
+			if (!isProbability(sourceDensity) || !isProbability(sanitizerDensity) || !isProbability(sinkDensity))
+				throw new IllegalArgumentException("Densities must be between 0 and 1");
+		}
+
+		private static boolean isProbability(
+				double p) {
+			return p >= 0 && p <= 1;
+		}
+	}
+
+	private final Options options;
+
+	private Random random;
+
+	private StringBuilder out;
+
+	/**
+	 * Builds the generator.
+	 *
+	 * @param options the options of the generator
+	 */
+	public ImpGenerator(
+			Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * Generates the IMP code of the program.
+	 *
+	 * @return the code
+	 */
+	public String generate() {
+		options.validate();
+		random = new Random(options.seed);
+		out = new StringBuilder();
+		for (int c = 0; c < options.classes; c++)
+			generateClass(c);
+		String result = out.toString();
+		out = null;
+		return result;
+	}
+
+	/**
+	 * Generates the IMP code of the program and writes it to the given file,
+	 * creating its parent directories if needed.
+	 *
+	 * @param file the path of the file
+	 *
+	 * @return the path of the file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public Path write(
+			String file)
+			throws IOException {
+		Path path = Paths.get(file);
+		if (path.getParent() != null)
+			Files.createDirectories(path.getParent());
+		return Files.writeString(path, generate());
+	}
+
+	private void generateClass(
+			int index) {
+		out.append("class gen").append(index).append(" {\n\n");
+
+		// the same taint specification of inputs/taint.imp
+		line(1, "[lisa.taint.Tainted]");
+		line(1, "source() {");
+		line(2, "return -99;");
+		line(1, "}\n");
+		line(1, "[lisa.taint.Clean]");
+		line(1, "sanitizer(v) {");
+		line(2, "return 0;");
+		line(1, "}\n");
+		line(1, "sink([lisa.taint.Sink] v) {");
+		line(1, "}\n");
+
+		for (int m = 0; m < options.methods; m++)
+			generateMethod(m);
+		out.append("}\n\n");
+	}
+
+	private void generateMethod(
+			int index) {
+		line(1, "m" + index + "(p0, p1) {");
+
+		// locals are initialized with sources, parameters or values computed
+		// from the previous locals
+		for (int v = 0; v < options.locals; v++)
+			line(2, "def v" + v + " = " + (random.nextDouble() < options.sourceDensity
+					? "this.source()"
+					: initializer(v)) + ";");
+
+		if (index + 1 < options.methods && (index + 1) % options.callDepth != 0)
+			// the next method continues the chain
+			line(2, "v0 = this.m" + (index + 1) + "(" + local() + ", " + local() + ");");
+
+		if (options.loops > 0) {
+			if (options.arrayAccesses > 0)
+				line(2, "def a = new int[" + (1 + random.nextInt(100)) + "];");
+			for (int d = 0; d < options.loopDepth; d++)
+				line(2, "def i" + d + " = 0;");
+			for (int l = 0; l < options.loops; l++)
+				generateLoop(0, 2);
+		}
+
+		for (int v = 0; v < options.locals; v++)
+			if (random.nextDouble() < options.sanitizerDensity)
+				line(2, "v" + v + " = this.sanitizer(v" + v + ");");
+		for (int v = 0; v < options.locals; v++)
+			if (random.nextDouble() < options.sinkDensity)
+				line(2, "this.sink(v" + v + ");");
+
+		line(2, "return " + local() + ";");
+		line(1, "}\n");
+	}
+
+	private void generateLoop(
+			int depth,
+			int indent) {
+		String counter = "i" + depth;
+		String bound = options.arrayAccesses > 0 ? "arraylen(a)" : (random.nextBoolean() ? "p0" : "p1");
+		line(indent, counter + " = 0;");
+		line(indent, "while (" + counter + " < " + bound + ") {");
+		if (depth + 1 < options.loopDepth)
+			generateLoop(depth + 1, indent + 1);
+		else {
+			for (int a = 0; a < options.arrayAccesses; a++)
+				if (a % 2 == 0)
+					line(indent + 1, "a[" + counter + "] = " + local() + " + " + counter + ";");
+				else
+					line(indent + 1, local() + " = a[" + counter + "];");
+			String target = local();
+			line(indent + 1, target + " = " + target + " + " + random.nextInt(10) + ";");
+		}
+		line(indent + 1, counter + " = " + counter + " + 1;");
+		line(indent, "}");
+	}
+
+	private String initializer(
+			int v) {
+		switch (v == 0 ? random.nextInt(2) : random.nextInt(4)) {
+		case 0:
+			return "p" + random.nextInt(2);
+		case 1:
+			return String.valueOf(random.nextInt(21) - 10);
+		case 2:
+			return "v" + random.nextInt(v) + " + " + random.nextInt(10);
+		default:
+			return "v" + random.nextInt(v) + " * p" + random.nextInt(2);
+		}
+	}
+
+	private String local() {
+		return "v" + random.nextInt(options.locals);
+	}
+
+	private void line(
+			int indent,
+			String code) {
+		for (int i = 0; i < indent; i++)
+			out.append('\t');
+		out.append(code).append('\n');
+	}
+
+	/**
+	 * Writes a generated program to a file. The arguments are the path of the
+	 * file, the scaling factor (see {@link Options#scaled(int, long)}) and,
+	 * optionally, the seed.
+	 *
+	 * @param args the arguments
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(
+			String[] args)
+			throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: ImpGenerator <file> <factor> [seed]");
+			System.exit(1);
+		}
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : new Options().seed;
+		new ImpGenerator(Options.scaled(Integer.parseInt(args[1]), seed)).write(args[0]);
+	}
+}
@@ -0,0 +1,278 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAReport;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.warnings.CFGWarning;
+import it.unive.lisa.checks.warnings.StatementWarning;
+import it.unive.lisa.checks.warnings.Warning;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.util.datastructures.graph.GraphVisitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Analyzes successive versions of a program, re-analyzing only the
+ * {@link CFG}s whose results might have changed since the previous version.
+ * CFGs are matched by signature and compared through a hash of their code (see
+ * {@link ResultCache#codeHash(CFG)}), and warnings issued on the CFGs that are
+ * not re-analyzed are kept from the previous version.
+ * <br>
+ * <br>
+ * Which CFGs are re-analyzed depends on the interprocedural analysis: if it
+ * does not need a call graph (e.g., the modular worst case one), each CFG is
+ * analyzed on its own, and only the changed CFGs are re-analyzed. Otherwise
+ * (e.g., with the context based one), a change in a CFG flows to its callers
+ * through its return values, and to its callees through the contexts it
+ * creates, so the whole set of CFGs connected to the changed ones through
+ * calls is re-analyzed. Calls are matched by name, without resolving them.
+ */
+public class IncrementalAnalysis {
+
+	/**
+	 * The outcome of the analysis of a version of the program.
+	 */
+	public static class Update {
+
+		/**
+		 * The signatures of the CFGs that have been re-analyzed.
+		 */
+		public final Set<String> analyzed;
+
+		/**
+		 * The warnings on the whole program, sorted.
+		 */
+		public final List<String> warnings;
+
+		/**
+		 * The time spent analyzing the program, in nanoseconds.
+		 */
+		public final long nanos;
+
+		private Update(
+				Set<String> analyzed,
+				List<String> warnings,
+				long nanos) {
+			this.analyzed = analyzed;
+			this.warnings = warnings;
+			this.nanos = nanos;
+		}
+	}
+
+	private final TutorialAnalysis analysis;
+
+	private final String workdir;
+
+	// the hashes of the cfgs of the previous version, by signature
+	private final Map<String, String> hashes = new HashMap<>();
+
+	// the warnings issued on each cfg of the previous version, by signature
+	// (warnings not issued on a cfg are stored under the empty string)
+	private final Map<String, List<String>> warnings = new HashMap<>();
+
+	/**
+	 * Builds the analysis. No file is dumped (see {@link OutputMode#HEADLESS}).
+	 *
+	 * @param analysis the analysis to execute
+	 * @param workdir  the directory where the analysis generates its files
+	 */
+	public IncrementalAnalysis(
+			TutorialAnalysis analysis,
+			String workdir) {
+		this.analysis = analysis;
+		this.workdir = workdir;
+	}
+
+	/**
+	 * Analyzes a new version of the program stored in the given file.
+	 *
+	 * @param input the path of the program
+	 *
+	 * @return the outcome of the analysis
+	 *
+	 * @throws ParsingException  if the input cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public Update analyze(
+			String input)
+			throws ParsingException,
+			AnalysisException {
+		return analyze(IMPFrontend.processFile(input));
+	}
+
+	/**
+	 * Analyzes a new version of the program. The first version is analyzed
+	 * entirely.
+	 *
+	 * @param program the program
+	 *
+	 * @return the outcome of the analysis
+	 *
+	 * @throws AnalysisException if the analysis fails
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Update analyze(
+			Program program)
+			throws AnalysisException {
+		long start = System.nanoTime();
+		LiSAConfiguration conf = analysis.configure(workdir, OutputMode.HEADLESS);
+
+		// we diff the new version against the previous one
+		Map<String, String> current = new HashMap<>();
+		Map<String, CFG> cfgs = new HashMap<>();
+		Set<CFG> changed = new HashSet<>();
+		for (CFG cfg : program.getAllCFGs()) {
+			String signature = signature(cfg);
+			String hash = ResultCache.codeHash(cfg);
+			current.put(signature, hash);
+			cfgs.put(signature, cfg);
+			if (!hash.equals(hashes.get(signature)))
+				changed.add(cfg);
+		}
+		Set<String> removed = new HashSet<>(hashes.keySet());
+		removed.removeAll(current.keySet());
+
+		Set<CFG> affected;
+		if (!conf.interproceduralAnalysis.needsCallGraph())
+			affected = changed;
+		else {
+			// calls to removed cfgs now have different targets
+			Set<String> names = new HashSet<>();
+			for (String signature : removed)
+				names.add(signature.substring(signature.indexOf("::") + 2, signature.indexOf('(')));
+			Set<CFG> seeds = new HashSet<>(changed);
+			for (CFG cfg : cfgs.values())
+				if (!Collections.disjoint(callees(cfg), names))
+					seeds.add(cfg);
+			affected = connected(cfgs.values(), seeds);
+		}
+
+		warnings.keySet().removeAll(removed);
+		for (CFG cfg : affected)
+			warnings.remove(signature(cfg));
+		Set<String> analyzed = new TreeSet<>();
+		boolean reachable = !conf.interproceduralAnalysis.needsCallGraph()
+				|| program.getEntryPoints().stream().anyMatch(affected::contains);
+		if (!affected.isEmpty() && reachable) {
+			// only the affected cfgs are analyzed and checked
+			conf.interproceduralAnalysis = new RestrictedInterproceduralAnalysis(conf.interproceduralAnalysis,
+					affected::contains);
+			List<SemanticCheck<?>> checks = new ArrayList<>();
+			for (SemanticCheck<?> check : conf.semanticChecks)
+				checks.add(new FilteredCheck(check, affected::contains));
+			conf.semanticChecks.clear();
+			conf.semanticChecks.addAll(checks);
+
+			LiSAReport report = new LiSA(conf).run(program);
+
+			for (CFG cfg : affected)
+				analyzed.add(signature(cfg));
+			warnings.remove("");
+			for (Warning warning : report.getWarnings())
+				warnings.computeIfAbsent(owner(warning), k -> new ArrayList<>()).add(warning.toString());
+		}
+		hashes.clear();
+		hashes.putAll(current);
+
+		List<String> all = new ArrayList<>();
+		for (List<String> cfg : warnings.values())
+			all.addAll(cfg);
+		Collections.sort(all);
+		return new Update(analyzed, all, System.nanoTime() - start);
+	}
+
+	static String signature(
+			CFG cfg) {
+		return cfg.getDescriptor().getFullSignatureWithParNames();
+	}
+
+	static String owner(
+			Warning warning) {
+		if (warning instanceof StatementWarning)
+			return signature(((StatementWarning) warning).getStatement().getCFG());
+		if (warning instanceof CFGWarning)
+			return signature(((CFGWarning) warning).getCFG());
+		return "";
+	}
+
+	/**
+	 * Yields the names of the code members called by the given cfg, including
+	 * the calls nested in other expressions.
+	 *
+	 * @param cfg the cfg
+	 *
+	 * @return the names
+	 */
+	private static Set<String> callees(
+			CFG cfg) {
+		Set<String> names = new HashSet<>();
+		cfg.accept(new GraphVisitor<CFG, Statement, Edge, Set<String>>() {
+
+			@Override
+			public boolean visit(
+					Set<String> tool,
+					CFG graph,
+					Statement node) {
+				if (node instanceof Call)
+					tool.add(((Call) node).getTargetName());
+				return true;
+			}
+		}, names);
+		return names;
+	}
+
+	/**
+	 * Yields the cfgs connected to the given seeds through calls, in either
+	 * direction.
+	 *
+	 * @param cfgs  all the cfgs of the program
+	 * @param seeds the seeds
+	 *
+	 * @return the seeds and the cfgs connected to them
+	 */
+	static Set<CFG> connected(
+			Collection<CFG> cfgs,
+			Set<CFG> seeds) {
+		Map<String, Set<CFG>> byName = new HashMap<>();
+		Map<String, Set<CFG>> callers = new HashMap<>();
+		Map<CFG, Set<String>> calls = new HashMap<>();
+		for (CFG cfg : cfgs) {
+			byName.computeIfAbsent(cfg.getDescriptor().getName(), k -> new HashSet<>()).add(cfg);
+			Set<String> names = callees(cfg);
+			calls.put(cfg, names);
+			for (String name : names)
+				callers.computeIfAbsent(name, k -> new HashSet<>()).add(cfg);
+		}
+
+		Set<CFG> result = new HashSet<>(seeds);
+		Deque<CFG> ws = new ArrayDeque<>(seeds);
+		while (!ws.isEmpty()) {
+			CFG cfg = ws.pop();
+			List<CFG> next = new ArrayList<>(callers.getOrDefault(cfg.getDescriptor().getName(), Set.of()));
+			for (String name : calls.get(cfg))
+				next.addAll(byName.getOrDefault(name, Set.of()));
+			for (CFG other : next)
+				if (result.add(other))
+					ws.push(other);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,93 @@
+package it.unive.lisa.tutorial;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A table of canonical instances of immutable objects (hash-consing): equal
+ * objects that are interned are replaced by the same instance, so that
+ * duplicates can be garbage collected and equality checks between interned
+ * objects succeed on the reference comparison. The table only holds weak
+ * references, so canonical instances that are no longer used elsewhere are
+ * removed from it.
+ * <br>
+ * <br>
+ * Interning only pays off when the same elements are built over and over, so
+ * each table is built enabled or disabled, usually following an option of the
+ * top element of the analysis owning it (e.g.,
+ * {@link Interval#Interval(WideningThresholds, boolean)}). When disabled,
+ * {@link #intern(Object)} yields its argument.
+ *
+ * @param <T> the type of the interned objects
+ */
+public final class Interner<T> {
+
+	private final boolean enabled;
+
+	private final Map<T, WeakReference<T>> table = new WeakHashMap<>();
+
+	/**
+	 * Builds the table.
+	 *
+	 * @param enabled whether or not {@link #intern(Object)} interns objects
+	 */
+	public Interner(
+			boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Yields whether or not interning is enabled for this table.
+	 *
+	 * @return {@code true} if interning is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Yields the canonical instance equal to the given object, that becomes
+	 * the canonical one if there is none.
+	 *
+	 * @param object the object
+	 *
+	 * @return the canonical instance, or {@code object} if interning is
+	 *             disabled
+	 */
+	public T intern(
+			T object) {
+		if (!enabled)
+			return object;
+		return forceIntern(object);
+	}
+
+	/**
+	 * Yields the canonical instance equal to the given object, that becomes
+	 * the canonical one if there is none, regardless of whether or not
+	 * interning is enabled. This is useful for constants, that should be the
+	 * canonical instances in any case.
+	 *
+	 * @param object the object
+	 *
+	 * @return the canonical instance
+	 */
+	public synchronized T forceIntern(
+			T object) {
+		WeakReference<T> ref = table.get(object);
+		T canonical = ref == null ? null : ref.get();
+		if (canonical != null)
+			return canonical;
+		table.put(object, new WeakReference<>(object));
+		return object;
+	}
+
+	/**
+	 * Yields the number of canonical instances in this table.
+	 *
+	 * @return the number of instances
+	 */
+	public synchronized int size() {
+		return table.size();
+	}
+}
@@ -1,5 +1,6 @@
 package it.unive.lisa.tutorial;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.unive.lisa.analysis.Lattice;
 import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.SemanticOracle;
@@ -23,6 +24,7 @@ import it.unive.lisa.util.numeric.MathNumber;
 import it.unive.lisa.util.representation.StringRepresentation;
 import it.unive.lisa.util.representation.StructuredRepresentation;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -38,18 +40,60 @@ public class Interval
 		implements BaseNonRelationalValueDomain<
 			// java requires this type parameter to have this class
 			// as type in fields/methods
-			Interval> {
+			Interval>,
+		// this allows to dump intervals without building their representation
+		JsonStreamable {
 
-	public static final Interval ZERO = new Interval(IntInterval.ZERO);
-	public static final Interval TOP = new Interval(IntInterval.INFINITY);
-	public static final Interval BOTTOM = new Interval(MathNumber.NaN, MathNumber.NaN);
+	/**
+	 * The settings of an analysis, shared by all the intervals derived from
+	 * its top element, together with the constant elements of the analysis.
+	 */
+	private static final class Table {
+
+		private final WideningThresholds thresholds;
+
+		// the table of canonical intervals, used only if interning is enabled
+		private final Interner<Interval> interner;
+
+		private Interval top, bottom, zero;
+
+		private Table(
+				WideningThresholds thresholds,
+				boolean intern) {
+			this.thresholds = thresholds;
+			this.interner = new Interner<>(intern);
+		}
+
+		private void constants(
+				Interval top) {
+			this.top = interner.forceIntern(top);
+			this.bottom = interner.forceIntern(new Interval(this, new IntInterval(MathNumber.NaN, MathNumber.NaN)));
+			this.zero = interner.forceIntern(new Interval(this, IntInterval.ZERO));
+		}
+	}
+
+	// the table of the intervals built through the constructors without thresholds, that never interns them
+	private static final Table DEFAULT = new Table(new WideningThresholds(), false);
+
+	static {
+		DEFAULT.constants(new Interval(DEFAULT, IntInterval.INFINITY));
+	}
+
+	public static final Interval ZERO = DEFAULT.zero;
+	public static final Interval TOP = DEFAULT.top;
+	public static final Interval BOTTOM = DEFAULT.bottom;
+
+	private final Table table;
 
 	// the abstract information carried by this instance is an interval for a single variable
 	public final IntInterval interval;
 
+	// cached hash code, computed lazily (0 means not computed yet)
+	private int hash;
+
 	public Interval(
 			IntInterval interval) {
-		this.interval = interval;
+		this(DEFAULT, interval);
 	}
 
 	public Interval(
@@ -62,9 +106,73 @@ public class Interval
 		this(IntInterval.INFINITY);
 	}
 
+	/**
+	 * Builds the top element of a new analysis, whose widening moves unstable
+	 * bounds to the closest of the given thresholds before moving them to
+	 * infinity. The thresholds are shared by all the intervals derived from
+	 * this one, and they can be set up to the start of the fixpoint (see
+	 * {@link ThresholdWideningAnalysis}).
+	 *
+	 * @param thresholds the thresholds of the widening
+	 */
+	public Interval(
+			WideningThresholds thresholds) {
+		this(thresholds, false);
+	}
+
+	/**
+	 * Builds the top element of a new analysis, as
+	 * {@link #Interval(WideningThresholds)} does, that can also make equal
+	 * intervals of the analysis share the same instance (see {@link Interner}).
+	 *
+	 * @param thresholds the thresholds of the widening
+	 * @param intern     whether or not the intervals of the analysis are
+	 *                       interned
+	 */
+	public Interval(
+			WideningThresholds thresholds,
+			boolean intern) {
+		this.table = new Table(thresholds, intern);
+		this.interval = IntInterval.INFINITY;
+		table.constants(this);
+	}
+
+	private Interval(
+			Table table,
+			IntInterval interval) {
+		this.table = table;
+		this.interval = interval;
+	}
+
+	/**
+	 * Yields an interval with the given bounds, belonging to the same analysis
+	 * of this one: if the analysis interns its intervals (see
+	 * {@link #Interval(WideningThresholds, boolean)}), this is the canonical
+	 * instance for it.
+	 *
+	 * @param low  the lower bound
+	 * @param high the upper bound
+	 *
+	 * @return the element
+	 */
+	public Interval fromBounds(
+			MathNumber low,
+			MathNumber high) {
+		return mk(new IntInterval(low, high));
+	}
+
+	private Interval mk(
+			IntInterval interval) {
+		return table.interner.intern(new Interval(table, interval));
+	}
+
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(interval);
+		// intervals are immutable, so we can compute this only once
+		int h = hash;
+		if (h == 0)
+			hash = h = Objects.hashCode(interval);
+		return h;
 	}
 
 	@Override
@@ -74,6 +182,9 @@ public class Interval
 		if (o == null || getClass() != o.getClass())
 			return false;
 		Interval interval1 = (Interval) o;
+		if (hash != 0 && interval1.hash != 0 && hash != interval1.hash)
+			// this avoids comparing the bounds of different intervals
+			return false;
 		return Objects.equals(interval, interval1.interval);
 	}
 
@@ -82,7 +193,7 @@ public class Interval
 		// the top element of the lattice
 		// if this method does not return a constant value,
 		// you must override the isTop() method!
-		return TOP;
+		return table.top;
 	}
 
 	@Override
@@ -90,7 +201,7 @@ public class Interval
 		// the bottom element of the lattice
 		// if this method does not return a constant value,
 		// you must override the isBottom() method!
-		return BOTTOM;
+		return table.bottom;
 	}
 
 	@Override
@@ -106,7 +217,7 @@ public class Interval
 			throws SemanticException {
 		MathNumber newLow = interval.getLow().min(other.interval.getLow());
 		MathNumber newHigh = interval.getHigh().max(other.interval.getHigh());
-		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : new Interval(newLow, newHigh);
+		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : fromBounds(newLow, newHigh);
 	}
 
 	@Override
@@ -117,25 +228,42 @@ public class Interval
 
 		if (newLow.compareTo(newHigh) > 0)
 			return bottom();
-		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : new Interval(newLow, newHigh);
+		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : fromBounds(newLow, newHigh);
 	}
 
 	@Override
 	public Interval wideningAux(
 			Interval other)
 			throws SemanticException {
+		// unstable bounds are moved to the closest threshold that includes them, if any
 		MathNumber newLow, newHigh;
-		if (other.interval.getHigh().compareTo(interval.getHigh()) > 0)
-			newHigh = MathNumber.PLUS_INFINITY;
-		else
+		if (other.interval.getHigh().compareTo(interval.getHigh()) > 0) {
+			MathNumber threshold = other.interval.getHigh().isInfinite() ? null
+					: table.thresholds.above(other.interval.getHigh());
+			newHigh = threshold == null ? MathNumber.PLUS_INFINITY : threshold;
+		} else
 			newHigh = interval.getHigh();
 
-		if (other.interval.getLow().compareTo(interval.getLow()) < 0)
-			newLow = MathNumber.MINUS_INFINITY;
-		else
+		if (other.interval.getLow().compareTo(interval.getLow()) < 0) {
+			MathNumber threshold = other.interval.getLow().isInfinite() ? null
+					: table.thresholds.below(other.interval.getLow());
+			newLow = threshold == null ? MathNumber.MINUS_INFINITY : threshold;
+		} else
 			newLow = interval.getLow();
 
-		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : new Interval(newLow, newHigh);
+		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : fromBounds(newLow, newHigh);
+	}
+
+	@Override
+	public Interval narrowingAux(
+			Interval other)
+			throws SemanticException {
+		// only infinite bounds are refined, so that descending chains are finite
+		MathNumber newLow = interval.getLow().isMinusInfinity() ? other.interval.getLow() : interval.getLow();
+		MathNumber newHigh = interval.getHigh().isPlusInfinity() ? other.interval.getHigh() : interval.getHigh();
+		if (newLow.compareTo(newHigh) > 0)
+			return bottom();
+		return newLow.isMinusInfinity() && newHigh.isPlusInfinity() ? top() : fromBounds(newLow, newHigh);
 	}
 
 	@Override
@@ -148,6 +276,14 @@ public class Interval
 		return new StringRepresentation(interval.toString());
 	}
 
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation()
+		generator.writeString(isBottom() ? Lattice.BOTTOM_STRING : interval.toString());
+	}
+
 	@Override
 	public String toString() {
 		return representation().toString();
@@ -162,7 +298,7 @@ public class Interval
 			SemanticOracle oracle) {
 		if (constant.getValue() instanceof Integer) {
 			Integer i = (Integer) constant.getValue();
-			return new Interval(new MathNumber(i), new MathNumber(i));
+			return fromBounds(new MathNumber(i), new MathNumber(i));
 		}
 
 		return top();
@@ -178,9 +314,9 @@ public class Interval
 			if (arg.isTop())
 				return top();
 			else
-				return new Interval(arg.interval.mul(IntInterval.MINUS_ONE));
+				return mk(arg.interval.mul(IntInterval.MINUS_ONE));
 		else if (operator == StringLength.INSTANCE)
-			return new Interval(MathNumber.ZERO, MathNumber.PLUS_INFINITY);
+			return fromBounds(MathNumber.ZERO, MathNumber.PLUS_INFINITY);
 		else
 			return top();
 	}
@@ -198,24 +334,24 @@ public class Interval
 			return top();
 
 		if (operator instanceof AdditionOperator)
-			return new Interval(left.interval.plus(right.interval));
+			return mk(left.interval.plus(right.interval));
 		else if (operator instanceof SubtractionOperator)
-			return new Interval(left.interval.diff(right.interval));
+			return mk(left.interval.diff(right.interval));
 		else if (operator instanceof MultiplicationOperator)
-			if (left.equals(ZERO) || right.equals(ZERO))
-				return ZERO;
+			if (left.equals(table.zero) || right.equals(table.zero))
+				return table.zero;
 			else
-				return new Interval(left.interval.mul(right.interval));
+				return mk(left.interval.mul(right.interval));
 		else if (operator instanceof DivisionOperator)
-			if (right.equals(ZERO))
+			if (right.equals(table.zero))
 				return bottom();
-			else if (left.equals(ZERO))
-				return ZERO;
+			else if (left.equals(table.zero))
+				return table.zero;
 			else if (left.isTop() || right.isTop())
 				return top();
 			else {
-				Interval div = new Interval(left.interval.div(right.interval, false, false));
-				if (div.equals(BOTTOM))
+				Interval div = mk(left.interval.div(right.interval, false, false));
+				if (div.equals(table.bottom))
 					return bottom();
 				return div;
 			}
@@ -318,10 +454,10 @@ public class Interval
 			return environment.bottom();
 
 		boolean lowIsMinusInfinity = eval.interval.lowIsMinusInfinity();
-		Interval low_inf = new Interval(eval.interval.getLow(), MathNumber.PLUS_INFINITY);
-		Interval lowp1_inf = new Interval(eval.interval.getLow().add(MathNumber.ONE), MathNumber.PLUS_INFINITY);
-		Interval inf_high = new Interval(MathNumber.MINUS_INFINITY, eval.interval.getHigh());
-		Interval inf_highm1 = new Interval(MathNumber.MINUS_INFINITY, eval.interval.getHigh().subtract(MathNumber.ONE));
+		Interval low_inf = fromBounds(eval.interval.getLow(), MathNumber.PLUS_INFINITY);
+		Interval lowp1_inf = fromBounds(eval.interval.getLow().add(MathNumber.ONE), MathNumber.PLUS_INFINITY);
+		Interval inf_high = fromBounds(MathNumber.MINUS_INFINITY, eval.interval.getHigh());
+		Interval inf_highm1 = fromBounds(MathNumber.MINUS_INFINITY, eval.interval.getHigh().subtract(MathNumber.ONE));
 
 		Interval update = null;
 		if (operator == ComparisonEq.INSTANCE)
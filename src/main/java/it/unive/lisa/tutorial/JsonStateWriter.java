@@ -0,0 +1,169 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.lattices.FunctionalLattice;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A writer of the results of an analysis as a single JSON array, with one
+ * object for each CFG. Each object holds the results of the CFG in all the
+ * contexts where it has been analyzed, with the value state after each of its
+ * statements. States are written on a streaming generator as soon as they are
+ * visited, and the generator is flushed after each CFG: the memory used for
+ * the dump does not depend on the size of the program.
+ * <br>
+ * <br>
+ * Value states that are {@link JsonStreamable} write themselves, and so do
+ * functional lattices (e.g., value environments) whose values are
+ * {@link JsonStreamable}. Other states are written as the string of their
+ * representation.
+ */
+public class JsonStateWriter implements Closeable {
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final JsonGenerator generator;
+
+	/**
+	 * Builds the writer, creating the given file and its parent directories.
+	 *
+	 * @param file the file to write
+	 * @param gzip whether or not the file has to be compressed while writing
+	 *
+	 * @throws IOException if the file cannot be created
+	 */
+	public JsonStateWriter(
+			Path file,
+			boolean gzip)
+			throws IOException {
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file));
+		if (gzip)
+			stream = new GZIPOutputStream(stream);
+		this.generator = FACTORY.createGenerator(stream);
+		generator.writeStartArray();
+	}
+
+	/**
+	 * Writes the results of the given CFG.
+	 *
+	 * @param <A>     the type of the states in the results
+	 * @param cfg     the CFG
+	 * @param results the results of the CFG, one for each context
+	 *
+	 * @throws IOException if the results cannot be written
+	 */
+	public <A extends AbstractState<A>> void write(
+			CFG cfg,
+			Collection<AnalyzedCFG<A>> results)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("cfg", cfg.getDescriptor().getFullSignatureWithParNames());
+		generator.writeArrayFieldStart("results");
+		for (AnalyzedCFG<A> result : results) {
+			generator.writeStartObject();
+			generator.writeStringField("context", String.valueOf(result.getId()));
+			generator.writeArrayFieldStart("nodes");
+			for (Statement node : cfg.getNodes()) {
+				generator.writeStartObject();
+				generator.writeStringField("statement", node.toString());
+				generator.writeStringField("location", String.valueOf(node.getLocation()));
+				generator.writeFieldName("state");
+				writeState(generator, result.getAnalysisStateAfter(node).getState());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		// we send what has been written so far to the file, so that the
+		// buffers never grow
+		generator.flush();
+	}
+
+	/**
+	 * Writes the given state. Only the value state of a
+	 * {@link SimpleAbstractState} is written.
+	 *
+	 * @param generator the generator to write to
+	 * @param state     the state
+	 *
+	 * @throws IOException if the state cannot be written
+	 */
+	public static void writeState(
+			JsonGenerator generator,
+			Object state)
+			throws IOException {
+		if (state instanceof SimpleAbstractState)
+			state = ((SimpleAbstractState<?, ?, ?>) state).getValueState();
+
+		if (state instanceof JsonStreamable)
+			((JsonStreamable) state).writeJson(generator);
+		else if (state instanceof FunctionalLattice && streamableValues((FunctionalLattice<?, ?, ?>) state))
+			writeFunction(generator, (FunctionalLattice<?, ?, ?>) state);
+		else if (state instanceof Lattice)
+			generator.writeString(((Lattice<?>) state).representation().toString());
+		else
+			generator.writeString(String.valueOf(state));
+	}
+
+	private static boolean streamableValues(
+			FunctionalLattice<?, ?, ?> function) {
+		return function.lattice instanceof JsonStreamable;
+	}
+
+	/**
+	 * Writes the given functional lattice as an object, with a field for each
+	 * key, or as a string if the function is top, bottom or empty. The values
+	 * of the function must be {@link JsonStreamable}.
+	 *
+	 * @param generator the generator to write to
+	 * @param function  the functional lattice
+	 *
+	 * @throws IOException if the function cannot be written
+	 */
+	public static void writeFunction(
+			JsonGenerator generator,
+			FunctionalLattice<?, ?, ?> function)
+			throws IOException {
+		if (function.isTop())
+			generator.writeString(Lattice.TOP_STRING);
+		else if (function.isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else if (function.function == null)
+			generator.writeString("empty");
+		else {
+			generator.writeStartObject();
+			for (Entry<?, ?> entry : function.function.entrySet()) {
+				generator.writeFieldName(entry.getKey().toString());
+				((JsonStreamable) entry.getValue()).writeJson(generator);
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		generator.writeEndArray();
+		// this also closes the underlying stream, finishing the compression
+		generator.close();
+	}
+}
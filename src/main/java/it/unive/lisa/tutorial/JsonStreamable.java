@@ -0,0 +1,26 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * An object that can write itself as JSON on a streaming generator, without
+ * building intermediate objects. Domains implementing this interface are
+ * dumped by {@link JsonStateWriter} through {@link #writeJson(JsonGenerator)}
+ * instead of their {@code representation()}, that builds a tree of
+ * representations before it is serialized.
+ */
+public interface JsonStreamable {
+
+	/**
+	 * Writes this object as a single JSON value.
+	 *
+	 * @param generator the generator to write to
+	 *
+	 * @throws IOException if the generator cannot write
+	 */
+	void writeJson(
+			JsonGenerator generator)
+			throws IOException;
+}
@@ -0,0 +1,392 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.annotations.AnnotationMember;
+import it.unive.lisa.program.annotations.Annotations;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.*;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.ternary.TernaryOperator;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A taint domain tracking up to 64 kinds of taint (e.g., {@code sql},
+ * {@code xss}, ...) at once, so that a single analysis replaces one
+ * {@link Taint} analysis for each kind. Each element is the set of labels of
+ * the kinds of taint that a value might carry, stored as a bitmask: the lub is
+ * the bitwise or of the masks, and the glb is the bitwise and.
+ * <br>
+ * <br>
+ * Labels are given through the {@code labels} member of the annotations,
+ * either as a string with comma-separated labels or as an array of strings:
+ * <ul>
+ * <li>{@code [lisa.taint.Tainted(labels = "sql")]} on a code member makes its
+ * return value carry the given labels, in addition to the ones of the
+ * returned value;</li>
+ * <li>{@code [lisa.taint.Clean(labels = "sql")]} on a code member removes the
+ * given labels from its return value;</li>
+ * <li>{@code [lisa.taint.Sink(labels = "sql")]} on a parameter tells that
+ * values carrying the given labels should not flow there (see
+ * {@link LabeledTaintCheck}).</li>
+ * </ul>
+ * The annotations without labels refer to all labels, as in {@link Taint}.
+ * Labels are numbered the first time they are found, in a table shared by all
+ * the elements built from the same instance of this class, that also holds
+ * the bitmask of each annotation: each analysis can track 64 labels.
+ */
+public class LabeledTaint
+		implements
+		BaseNonRelationalValueDomain<LabeledTaint>,
+		// this allows to dump the labels without building their representation
+		JsonStreamable {
+
+	/**
+	 * The name of the annotation member holding the labels.
+	 */
+	public static final String LABELS_MEMBER = "labels";
+
+	/**
+	 * The labels found by an analysis, the bitmasks of the annotations, and
+	 * the constant elements of the analysis.
+	 */
+	private static final class Table {
+
+		// the bit of each label, assigned when the label is first found
+		private final Map<String, Integer> bits = new HashMap<>();
+
+		// the label of each bit
+		private final List<String> names = new ArrayList<>();
+
+		// annotations are found on every evaluation of the variables they are attached to
+		private final Map<Annotation, Long> masks = new ConcurrentHashMap<>();
+
+		private LabeledTaint top, clean, bottom;
+
+		// labels are found during the fixpoint, but their names might be read
+		// by checks running in parallel
+		private synchronized int bit(
+				String label) {
+			return bits.computeIfAbsent(label, l -> {
+				int bit = names.size();
+				if (bit >= Long.SIZE)
+					throw new IllegalStateException("Too many taint labels: " + l + " cannot be tracked");
+				names.add(l);
+				return bit;
+			});
+		}
+
+		private synchronized String name(
+				int bit) {
+			return bit < names.size() ? names.get(bit) : null;
+		}
+	}
+
+	private final Table table;
+
+	// bit i is set if the value might carry the i-th label
+	private final long labels;
+
+	// to distinguish bottom from clean, that both have no labels
+	private final boolean bottom;
+
+	/**
+	 * Builds the top element of a new analysis, with a fresh table of labels.
+	 */
+	public LabeledTaint() {
+		this.table = new Table();
+		this.labels = -1L;
+		this.bottom = false;
+		table.top = this;
+		table.clean = new LabeledTaint(table, 0L, false);
+		table.bottom = new LabeledTaint(table, 0L, true);
+	}
+
+	private LabeledTaint(
+			Table table,
+			long labels,
+			boolean bottom) {
+		this.table = table;
+		this.labels = labels;
+		this.bottom = bottom;
+	}
+
+	/**
+	 * Yields the bitmask of the labels that this value might carry.
+	 *
+	 * @return the bitmask
+	 */
+	public long getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Yields the bit of the given label in the analysis of this element,
+	 * assigning it the next free bit if this is the first time that the label
+	 * is used.
+	 *
+	 * @param label the label
+	 *
+	 * @return the bit
+	 *
+	 * @throws IllegalStateException if all 64 bits have already been assigned
+	 */
+	public int bit(
+			String label) {
+		return table.bit(label);
+	}
+
+	/**
+	 * Yields the bitmask of the labels given in an annotation, that is, all
+	 * bits if it has no {@link #LABELS_MEMBER} member. The bitmask is computed
+	 * the first time the annotation is found by the analysis of this element.
+	 *
+	 * @param annotation the annotation
+	 *
+	 * @return the bitmask
+	 */
+	public long mask(
+			Annotation annotation) {
+		return table.masks.computeIfAbsent(annotation, this::parse);
+	}
+
+	private long parse(
+			Annotation annotation) {
+		List<AnnotationMember> members = annotation.getAnnotationMembers();
+		if (members != null)
+			for (AnnotationMember member : members)
+				if (member.getId().equals(LABELS_MEMBER)) {
+					// string values have no getter, and arrays are printed as
+					// [a, b]: we parse both from their textual form
+					long mask = 0;
+					for (String label : member.getValue().toString().split("[\\[\\],\"]"))
+						if (!label.isBlank())
+							mask |= 1L << bit(label.strip());
+					return mask;
+				}
+		return -1L;
+	}
+
+	/**
+	 * Yields the labels in the given bitmask, as numbered by the analysis of
+	 * this element.
+	 *
+	 * @param mask the bitmask
+	 *
+	 * @return the labels, ordered by bit
+	 */
+	public List<String> names(
+			long mask) {
+		List<String> names = new ArrayList<>();
+		for (long rest = mask; rest != 0; rest &= rest - 1) {
+			String name = table.name(Long.numberOfTrailingZeros(rest));
+			if (name != null)
+				names.add(name);
+		}
+		return names;
+	}
+
+	@Override
+	public boolean equals(
+			Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		LabeledTaint other = (LabeledTaint) o;
+		return labels == other.labels && bottom == other.bottom;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(labels) ^ Boolean.hashCode(bottom);
+	}
+
+	@Override
+	public LabeledTaint top() {
+		return table.top;
+	}
+
+	@Override
+	public LabeledTaint bottom() {
+		return table.bottom;
+	}
+
+	// elements are built by the bitwise operations below, so these cannot
+	// rely on reference equality
+
+	@Override
+	public boolean isTop() {
+		return !bottom && labels == -1L;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return bottom;
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			LabeledTaint other)
+			throws SemanticException {
+		return (labels & ~other.labels) == 0;
+	}
+
+	@Override
+	public LabeledTaint lubAux(
+			LabeledTaint other)
+			throws SemanticException {
+		return mk(labels | other.labels);
+	}
+
+	@Override
+	public LabeledTaint glbAux(
+			LabeledTaint other)
+			throws SemanticException {
+		return mk(labels & other.labels);
+	}
+
+	// the lattice has finite height, so the default widening (the lub) is fine
+
+	private LabeledTaint mk(
+			long labels) {
+		if (labels == 0)
+			return table.clean;
+		return labels == -1L ? table.top : new LabeledTaint(table, labels, false);
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		return new StringRepresentation(label());
+	}
+
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation()
+		generator.writeString(isBottom() ? Lattice.BOTTOM_STRING : label());
+	}
+
+	private String label() {
+		// as in Taint, clean values are _ and values with all labels are #
+		if (labels == 0)
+			return "_";
+		if (labels == -1L)
+			return "#";
+		return String.valueOf(names(labels));
+	}
+
+	// logic for evaluating expressions below
+
+	@Override
+	public LabeledTaint evalIdentifier(
+			Identifier id,
+			ValueEnvironment<LabeledTaint> environment,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// as in Taint, annotations are found on the variables holding the
+		// values returned by calls, but here they are applied to the value
+		// computed by the callee instead of replacing it
+		LabeledTaint value = BaseNonRelationalValueDomain.super.evalIdentifier(id, environment, pp, oracle);
+		Annotations annots = id.getAnnotations();
+		if (annots.isEmpty() || value.isBottom())
+			return value;
+
+		long labels = value.labels;
+		for (Annotation annot : annots.getAnnotations(Taint.CLEAN_MATCHER))
+			labels &= ~mask(annot);
+		for (Annotation annot : annots.getAnnotations(Taint.TAINTED_MATCHER))
+			labels |= mask(annot);
+		return mk(labels);
+	}
+
+	@Override
+	public LabeledTaint evalNullConstant(
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return table.clean;
+	}
+
+	@Override
+	public LabeledTaint evalNonNullConstant(
+			Constant constant,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return table.clean;
+	}
+
+	@Override
+	public LabeledTaint evalUnaryExpression(
+			UnaryOperator operator,
+			LabeledTaint arg,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return arg;
+	}
+
+	@Override
+	public LabeledTaint evalBinaryExpression(
+			BinaryOperator operator,
+			LabeledTaint left,
+			LabeledTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Override
+	public LabeledTaint evalTernaryExpression(
+			TernaryOperator operator,
+			LabeledTaint left,
+			LabeledTaint middle,
+			LabeledTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left.lub(middle).lub(right);
+	}
+
+	@Override
+	public LabeledTaint evalTypeCast(
+			BinaryExpression cast,
+			LabeledTaint left,
+			LabeledTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left;
+	}
+
+	@Override
+	public LabeledTaint evalTypeConv(
+			BinaryExpression conv,
+			LabeledTaint left,
+			LabeledTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left;
+	}
+}
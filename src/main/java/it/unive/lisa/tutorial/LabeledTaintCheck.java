@@ -0,0 +1,49 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.cfg.Parameter;
+
+import java.util.List;
+
+/**
+ * A {@link SinkCheck} for the {@link LabeledTaint} domain: a warning is issued
+ * on each call passing a value to a sink that accepts none of the labels that
+ * the value might carry. Sinks are annotated with the labels they reject
+ * (e.g., {@code [lisa.taint.Sink(labels = "sql")]}), or with no label to
+ * reject all of them.
+ */
+public class LabeledTaintCheck extends SinkCheck<LabeledTaint> {
+
+	/**
+	 * Builds the check, that will inspect one CFG at a time.
+	 */
+	public LabeledTaintCheck() {
+		this(1);
+	}
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param parallelism the number of CFGs that can be inspected in parallel
+	 */
+	public LabeledTaintCheck(
+			int parallelism) {
+		super(parallelism);
+	}
+
+	@Override
+	protected String taintedness(
+			LabeledTaint value,
+			Parameter sink) {
+		long rejected = 0;
+		for (Annotation annot : sink.getAnnotations().getAnnotations(SINK_MATCHER))
+			rejected |= value.mask(annot);
+
+		// the labels of the value that the sink rejects
+		long labels = value.getLabels() & rejected;
+		if (value.isBottom() || labels == 0)
+			return null;
+		List<String> names = value.names(labels);
+		return names.isEmpty() ? "tainted" : "tainted with " + String.join(", ", names);
+	}
+}
@@ -0,0 +1,539 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.DivisionOperator;
+import it.unive.lisa.symbolic.value.operator.MultiplicationOperator;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.*;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.symbolic.value.operator.unary.StringLength;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+import it.unive.lisa.util.numeric.IntInterval;
+import it.unive.lisa.util.numeric.MathNumber;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * An alternative implementation of {@link Interval} that stores the bounds as
+ * primitive longs, using {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} as
+ * -Inf and +Inf. Lattice operations and arithmetic on such bounds do not
+ * allocate numbers, and only allocate the resulting element. Whenever a bound
+ * does not fit in a long (that is, when an operation overflows), the element
+ * falls back to the {@link IntInterval} representation, and operations on it
+ * are delegated to {@link Interval}: the lattice is thus the same of
+ * {@link Interval}, and the two domains can be used interchangeably.
+ * <br>
+ * <br>
+ * Divisions, and products of a zero bound with an infinite one, are always
+ * delegated to {@link Interval}, so that their results are the same of
+ * {@link Interval} (that divides by multiplying by the rounded reciprocal of
+ * the divisor, and that does not define zero times infinity).
+ */
+public class LongInterval
+		// instances of this class are lattice elements such that:
+		// - their state (fields) hold the information contained into a single
+		//   variable
+		// - they provide logic for the evaluation of expressions
+		implements BaseNonRelationalValueDomain<
+			// java requires this type parameter to have this class
+			// as type in fields/methods
+			LongInterval>,
+		// this allows to dump intervals without building their representation
+		JsonStreamable {
+
+	// the sentinels for the infinite bounds: finite bounds never have these
+	// values, and operations that would produce them are considered
+	// overflowing
+	private static final long MINUS_INF = Long.MIN_VALUE;
+	private static final long PLUS_INF = Long.MAX_VALUE;
+
+	public static final LongInterval ZERO = new LongInterval(0, 0);
+	public static final LongInterval TOP = new LongInterval(MINUS_INF, PLUS_INF);
+	// the empty interval, the only one having low > high
+	public static final LongInterval BOTTOM = new LongInterval(PLUS_INF, MINUS_INF);
+
+	// the bounds of the interval, meaningful only if big is null
+	public final long low, high;
+
+	// the interval, only for elements whose bounds do not fit in a long
+	private final IntInterval big;
+
+	public LongInterval(
+			long low,
+			long high) {
+		this.low = low;
+		this.high = high;
+		this.big = null;
+	}
+
+	private LongInterval(
+			IntInterval big) {
+		this.low = MINUS_INF;
+		this.high = PLUS_INF;
+		this.big = big;
+	}
+
+	public LongInterval() {
+		this(MINUS_INF, PLUS_INF);
+	}
+
+	@Override
+	public int hashCode() {
+		return big != null ? big.hashCode() : Long.hashCode(low) * 31 + Long.hashCode(high);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		LongInterval other = (LongInterval) o;
+		return low == other.low && high == other.high && Objects.equals(big, other.big);
+	}
+
+	@Override
+	public LongInterval top() {
+		// the top element of the lattice
+		// if this method does not return a constant value,
+		// you must override the isTop() method!
+		return TOP;
+	}
+
+	@Override
+	public boolean isTop() {
+		// elements built through the public constructor might be top
+		// without being the TOP constant
+		return big == null && low == MINUS_INF && high == PLUS_INF;
+	}
+
+	@Override
+	public LongInterval bottom() {
+		// the bottom element of the lattice
+		// if this method does not return a constant value,
+		// you must override the isBottom() method!
+		return BOTTOM;
+	}
+
+	@Override
+	public boolean isBottom() {
+		// elements built through the public constructor might be empty
+		// without being the BOTTOM constant
+		return big == null && low > high;
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			LongInterval other)
+			throws SemanticException {
+		if (big != null || other.big != null)
+			return toInterval().lessOrEqualAux(other.toInterval());
+		return other.low <= low && high <= other.high;
+	}
+
+	@Override
+	public LongInterval lubAux(
+			LongInterval other)
+			throws SemanticException {
+		if (big != null || other.big != null)
+			return of(toInterval().lubAux(other.toInterval()));
+		return mk(Math.min(low, other.low), Math.max(high, other.high));
+	}
+
+	@Override
+	public LongInterval glbAux(
+			LongInterval other)
+			throws SemanticException {
+		if (big != null || other.big != null)
+			return of(toInterval().glbAux(other.toInterval()));
+		long newLow = Math.max(low, other.low);
+		long newHigh = Math.min(high, other.high);
+		if (newLow > newHigh)
+			return bottom();
+		return mk(newLow, newHigh);
+	}
+
+	@Override
+	public LongInterval wideningAux(
+			LongInterval other)
+			throws SemanticException {
+		if (big != null || other.big != null)
+			return of(toInterval().wideningAux(other.toInterval()));
+		long newLow = other.low < low ? MINUS_INF : low;
+		long newHigh = other.high > high ? PLUS_INF : high;
+		return mk(newLow, newHigh);
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		// this method serializes instances of this domain
+		// to a json-compatible format that will be used for dumping
+		// (the format is the same of Interval)
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		if (big != null)
+			return new StringRepresentation(big.toString());
+		return new StringRepresentation("[" + boundToString(low) + ", " + boundToString(high) + "]");
+	}
+
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation()
+		if (isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else if (big != null)
+			generator.writeString(big.toString());
+		else
+			generator.writeString("[" + boundToString(low) + ", " + boundToString(high) + "]");
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+
+	// conversions from and to Interval below
+
+	/**
+	 * Yields the {@link Interval} representing the same values of this
+	 * element.
+	 *
+	 * @return the interval
+	 */
+	public Interval toInterval() {
+		if (big != null)
+			return new Interval(big);
+		if (isBottom())
+			return Interval.BOTTOM;
+		if (isTop())
+			return Interval.TOP;
+		return new Interval(toMathNumber(low), toMathNumber(high));
+	}
+
+	/**
+	 * Yields the element representing the same values of the given
+	 * {@link Interval}, using the primitive representation if both its
+	 * bounds fit in a long.
+	 *
+	 * @param interval the interval
+	 *
+	 * @return the element
+	 */
+	public static LongInterval of(
+			Interval interval) {
+		MathNumber l = interval.interval.getLow(), h = interval.interval.getHigh();
+		if (l.isNaN() || h.isNaN())
+			return BOTTOM;
+		if (fits(l) && fits(h))
+			return mk(fromMathNumber(l), fromMathNumber(h));
+		return new LongInterval(interval.interval);
+	}
+
+	private static MathNumber toMathNumber(
+			long bound) {
+		if (bound == MINUS_INF)
+			return MathNumber.MINUS_INFINITY;
+		if (bound == PLUS_INF)
+			return MathNumber.PLUS_INFINITY;
+		return new MathNumber(bound);
+	}
+
+	private static boolean fits(
+			MathNumber n) {
+		if (n.isInfinite())
+			return true;
+		BigDecimal number = n.getNumber();
+		return number.signum() == 0 || number.stripTrailingZeros().scale() <= 0
+				&& number.compareTo(BigDecimal.valueOf(MINUS_INF)) > 0
+				&& number.compareTo(BigDecimal.valueOf(PLUS_INF)) < 0;
+	}
+
+	private static long fromMathNumber(
+			MathNumber n) {
+		if (n.isMinusInfinity())
+			return MINUS_INF;
+		if (n.isPlusInfinity())
+			return PLUS_INF;
+		return n.getNumber().longValueExact();
+	}
+
+	private static String boundToString(
+			long bound) {
+		return bound == MINUS_INF ? "-Inf" : bound == PLUS_INF ? "+Inf" : Long.toString(bound);
+	}
+
+	private static LongInterval mk(
+			long low,
+			long high) {
+		// we reuse the constants whenever possible
+		if (low == MINUS_INF && high == PLUS_INF)
+			return TOP;
+		if (low == 0 && high == 0)
+			return ZERO;
+		return new LongInterval(low, high);
+	}
+
+	// arithmetic on the bounds below: all methods throw an
+	// ArithmeticException if a finite result does not fit in a long, or
+	// if the result is not defined
+
+	private static long checked(
+			long bound) {
+		// finite results cannot collide with the sentinels
+		if (bound == MINUS_INF || bound == PLUS_INF)
+			throw new ArithmeticException("Bound overflow");
+		return bound;
+	}
+
+	private static long plus(
+			long a,
+			long b,
+			long inf) {
+		// inf is the infinity that the result should have if one of
+		// the operands is infinite: intervals never hold opposite
+		// infinities in the same bound
+		if (a == inf || b == inf)
+			return inf;
+		return checked(Math.addExact(a, b));
+	}
+
+	private static long negate(
+			long a) {
+		return a == MINUS_INF ? PLUS_INF : a == PLUS_INF ? MINUS_INF : -a;
+	}
+
+	private static long times(
+			long a,
+			long b) {
+		boolean infinite = a == MINUS_INF || a == PLUS_INF || b == MINUS_INF || b == PLUS_INF;
+		if (a == 0 || b == 0)
+			if (infinite)
+				throw new ArithmeticException("Zero times infinity");
+			else
+				return 0;
+		if (infinite)
+			return (a > 0) == (b > 0) ? PLUS_INF : MINUS_INF;
+		return checked(Math.multiplyExact(a, b));
+	}
+
+	private LongInterval plus(
+			LongInterval other) {
+		return mk(plus(low, other.low, MINUS_INF), plus(high, other.high, PLUS_INF));
+	}
+
+	private LongInterval diff(
+			LongInterval other) {
+		return mk(plus(low, negate(other.high), MINUS_INF), plus(high, negate(other.low), PLUS_INF));
+	}
+
+	private LongInterval mul(
+			LongInterval other) {
+		long ll = times(low, other.low);
+		long lh = times(low, other.high);
+		long hl = times(high, other.low);
+		long hh = times(high, other.high);
+		return mk(Math.min(Math.min(ll, lh), Math.min(hl, hh)), Math.max(Math.max(ll, lh), Math.max(hl, hh)));
+	}
+
+	// logic for evaluating expressions below
+
+	@Override
+	public LongInterval evalNonNullConstant(
+			Constant constant,
+			ProgramPoint pp,
+			SemanticOracle oracle) {
+		if (constant.getValue() instanceof Integer) {
+			int i = (Integer) constant.getValue();
+			return mk(i, i);
+		}
+
+		return top();
+	}
+
+	@Override
+	public LongInterval evalUnaryExpression(
+			UnaryOperator operator,
+			LongInterval arg,
+			ProgramPoint pp,
+			SemanticOracle oracle) {
+		if (operator == NumericNegation.INSTANCE)
+			if (arg.isTop())
+				return top();
+			else if (arg.big != null)
+				return of(Interval.TOP.evalUnaryExpression(operator, arg.toInterval(), pp, oracle));
+			else
+				return mk(negate(arg.high), negate(arg.low));
+		else if (operator == StringLength.INSTANCE)
+			return mk(0, PLUS_INF);
+		else
+			return top();
+	}
+
+	@Override
+	public LongInterval evalBinaryExpression(
+			BinaryOperator operator,
+			LongInterval left,
+			LongInterval right,
+			ProgramPoint pp,
+			SemanticOracle oracle) {
+		if (!(operator instanceof DivisionOperator) && (left.isTop() || right.isTop()))
+			// with div, we can return zero or bottom even if one of the
+			// operands is top
+			return top();
+
+		if (left.big == null && right.big == null && !(operator instanceof DivisionOperator))
+			try {
+				if (operator instanceof AdditionOperator)
+					return left.plus(right);
+				else if (operator instanceof SubtractionOperator)
+					return left.diff(right);
+				else if (operator instanceof MultiplicationOperator)
+					if (left.equals(ZERO) || right.equals(ZERO))
+						return ZERO;
+					else
+						return left.mul(right);
+				else
+					return top();
+			} catch (ArithmeticException e) {
+				// a bound overflowed, or it is undefined: we fall back to
+				// Interval
+			}
+
+		return of(Interval.TOP.evalBinaryExpression(operator, left.toInterval(), right.toInterval(), pp, oracle));
+	}
+
+	@Override
+	public Satisfiability satisfiesBinaryExpression(
+			BinaryOperator operator,
+			LongInterval left,
+			LongInterval right,
+			ProgramPoint pp,
+			SemanticOracle oracle) {
+		if (left.isTop() || right.isTop())
+			return Satisfiability.UNKNOWN;
+
+		if (left.big != null || right.big != null)
+			return Interval.TOP.satisfiesBinaryExpression(operator, left.toInterval(), right.toInterval(), pp,
+					oracle);
+
+		if (operator == ComparisonEq.INSTANCE) {
+			if (left.high < right.low || right.high < left.low)
+				return Satisfiability.NOT_SATISFIED;
+			else if (left.low == left.high && left.equals(right))
+				return Satisfiability.SATISFIED;
+			return Satisfiability.UNKNOWN;
+		} else if (operator == ComparisonGe.INSTANCE)
+			return satisfiesBinaryExpression(ComparisonLe.INSTANCE, right, left, pp, oracle);
+		else if (operator == ComparisonGt.INSTANCE)
+			return satisfiesBinaryExpression(ComparisonLt.INSTANCE, right, left, pp, oracle);
+		else if (operator == ComparisonLe.INSTANCE) {
+			if (left.high < right.low || right.high < left.low)
+				// the intervals are disjoint
+				return Satisfiability.fromBoolean(left.high <= right.low);
+			// the intervals might share a single bound
+			if (left.high == right.low)
+				return Satisfiability.SATISFIED;
+			return Satisfiability.UNKNOWN;
+		} else if (operator == ComparisonLt.INSTANCE) {
+			if (left.high < right.low || right.high < left.low)
+				// the intervals are disjoint
+				return Satisfiability.fromBoolean(left.high < right.low);
+			return Satisfiability.UNKNOWN;
+		} else if (operator == ComparisonNe.INSTANCE) {
+			if (left.high < right.low || right.high < left.low)
+				return Satisfiability.SATISFIED;
+			return Satisfiability.UNKNOWN;
+		}
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public ValueEnvironment<LongInterval> assumeBinaryExpression(
+			ValueEnvironment<LongInterval> environment,
+			BinaryOperator operator,
+			ValueExpression left,
+			ValueExpression right,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		Identifier id;
+		LongInterval eval;
+		boolean rightIsExpr;
+		if (left instanceof Identifier) {
+			eval = eval(right, environment, src, oracle);
+			id = (Identifier) left;
+			rightIsExpr = true;
+		} else if (right instanceof Identifier) {
+			eval = eval(left, environment, src, oracle);
+			id = (Identifier) right;
+			rightIsExpr = false;
+		} else
+			return environment;
+
+		LongInterval starting = environment.getState(id);
+		if (eval.isBottom() || starting.isBottom())
+			return environment.bottom();
+		if (eval.big != null || starting.big != null)
+			// we do not refine values that exceed the long range
+			return environment;
+
+		boolean lowIsMinusInfinity = eval.low == MINUS_INF;
+		LongInterval low_inf = mk(eval.low, PLUS_INF);
+		LongInterval inf_high = mk(MINUS_INF, eval.high);
+		// +1 and -1 cannot overflow here, as the sentinels are excluded
+		// from the finite values; bounds that reach the other sentinel
+		// just lose the refinement
+		LongInterval lowp1_inf = mk(lowIsMinusInfinity || eval.low == PLUS_INF - 1 ? eval.low : eval.low + 1, PLUS_INF);
+		LongInterval inf_highm1 = mk(MINUS_INF,
+				eval.high == PLUS_INF || eval.high == MINUS_INF + 1 ? eval.high : eval.high - 1);
+
+		LongInterval update = null;
+		if (operator == ComparisonEq.INSTANCE)
+			update = eval;
+		else if (operator == ComparisonGe.INSTANCE)
+			if (rightIsExpr)
+				update = lowIsMinusInfinity ? null : starting.glb(low_inf);
+			else
+				update = starting.glb(inf_high);
+		else if (operator == ComparisonGt.INSTANCE)
+			if (rightIsExpr)
+				update = lowIsMinusInfinity ? null : starting.glb(lowp1_inf);
+			else
+				update = lowIsMinusInfinity ? eval : starting.glb(inf_highm1);
+		else if (operator == ComparisonLe.INSTANCE)
+			if (rightIsExpr)
+				update = starting.glb(inf_high);
+			else
+				update = lowIsMinusInfinity ? null : starting.glb(low_inf);
+		else if (operator == ComparisonLt.INSTANCE)
+			if (rightIsExpr)
+				update = lowIsMinusInfinity ? eval : starting.glb(inf_highm1);
+			else
+				update = lowIsMinusInfinity ? null : starting.glb(lowp1_inf);
+
+		if (update == null)
+			return environment;
+		else if (update.isBottom())
+			return environment.bottom();
+		else
+			return environment.putState(id, update);
+	}
+}
@@ -0,0 +1,1117 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.*;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.MultiplicationOperator;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonEq;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonGe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonGt;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonNe;
+import it.unive.lisa.symbolic.value.operator.binary.LogicalAnd;
+import it.unive.lisa.symbolic.value.operator.binary.LogicalOr;
+import it.unive.lisa.symbolic.value.operator.ComparisonOperator;
+import it.unive.lisa.symbolic.value.operator.unary.LogicalNegation;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.util.representation.MapRepresentation;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Implementation of the octagons analysis of https://doi.org/10.1007/s10990-006-8609-1, tracking constraints of the
+ * form {@code +-x +- y <= c} between integer variables. Differently from {@link Pentagons}, this can express bounds on
+ * the difference of two variables (e.g., {@code i - len <= -1}).
+ * <br>
+ * <br>
+ * Constraints are stored in difference-bound matrices (DBMs), each being a flat array of longs. Since a DBM is
+ * quadratic in the number of variables and closing it is cubic, variables are split into packs: two variables are in
+ * the same pack only if a constraint that is not implied by their bounds relates them, and each pack has its own DBM.
+ * Packs are merged when a new constraint relates their variables, and split again after the lub. Each matrix is
+ * kept closed by adding one constraint at a time, which costs quadratic time in the size of its pack.
+ */
+public class Octagons
+		// instances of this class are lattice elements such that:
+		// - their state (fields) hold the information contained into a whole program state
+		// - they provide logic for the evaluation of expressions
+		implements ValueDomain<Octagons>,
+		// we exploit BaseLattice to avoid writing common-sense logic
+		BaseLattice<Octagons>,
+		// this allows to dump octagons without building their representation
+		JsonStreamable {
+
+	// the value of the entries that do not bound anything
+	private static final long INF = Long.MAX_VALUE;
+
+	// the smallest finite value, so that bounds can be negated without overflowing
+	private static final long MIN = -Long.MAX_VALUE;
+
+	private static final Octagons TOP = new Octagons(new PersistentHashMap<>(), false);
+	private static final Octagons BOTTOM = new Octagons(new PersistentHashMap<>(), true);
+
+	/**
+	 * A set of variables whose constraints are stored in the same DBM. The
+	 * variable at position {@code k} is represented by two entries of the
+	 * matrix: {@code 2k} for {@code x} and {@code 2k + 1} for {@code -x}, and
+	 * entry {@code (i, j)} (at {@code i * 2n + j}) bounds {@code V_j - V_i}.
+	 * Packs are never modified once built.
+	 */
+	private static final class Pack {
+
+		private final Identifier[] vars;
+
+		private final Map<Identifier, Integer> index;
+
+		private final long[] m;
+
+		private Pack(
+				Identifier[] vars,
+				long[] m) {
+			this.vars = vars;
+			this.m = m;
+			this.index = new HashMap<>();
+			for (int k = 0; k < vars.length; k++)
+				index.put(vars[k], k);
+		}
+
+		// a pack with the same variables of the given one, but different constraints
+		private Pack(
+				Pack other,
+				long[] m) {
+			this.vars = other.vars;
+			this.index = other.index;
+			this.m = m;
+		}
+
+		private int dim() {
+			return 2 * vars.length;
+		}
+	}
+
+	// each constrained variable is mapped to its pack: variables that are not in here are unconstrained
+	private final PersistentHashMap<Identifier, Pack> packs;
+
+	private final boolean bottom;
+
+	public Octagons() {
+		this(new PersistentHashMap<>(), false);
+	}
+
+	private Octagons(
+			PersistentHashMap<Identifier, Pack> packs,
+			boolean bottom) {
+		this.packs = packs;
+		this.bottom = bottom;
+	}
+
+	@Override
+	public Octagons top() {
+		return TOP;
+	}
+
+	@Override
+	public boolean isTop() {
+		// elements are built by the operations below, so we cannot rely on reference equality
+		return !bottom && packs.isEmpty();
+	}
+
+	@Override
+	public Octagons bottom() {
+		return BOTTOM;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return bottom;
+	}
+
+	// arithmetic on the entries of the matrices, where INF is +oo and saturates
+
+	private static long add(
+			long a,
+			long b) {
+		if (a == INF || b == INF)
+			return INF;
+		long r = a + b;
+		if (((a ^ r) & (b ^ r)) < 0)
+			return a > 0 ? INF : MIN;
+		return Math.max(r, MIN);
+	}
+
+	private static long half(
+			long v) {
+		return v == INF ? INF : Math.floorDiv(v, 2);
+	}
+
+	private static long negate(
+			long v) {
+		return v == INF ? MIN : v == MIN ? INF : -v;
+	}
+
+	private static long[] unconstrained(
+			int dim) {
+		long[] m = new long[dim * dim];
+		Arrays.fill(m, INF);
+		for (int i = 0; i < dim; i++)
+			m[i * dim + i] = 0;
+		return m;
+	}
+
+	// the strengthening step of the closure: V_j - V_i <= (V_-i - V_i)/2 + (V_j - V_-j)/2,
+	// where the bounds on 2x are first rounded to even numbers since variables are integers
+	private static void strengthen(
+			long[] m,
+			int dim) {
+		long[] unary = new long[dim];
+		for (int i = 0; i < dim; i++) {
+			unary[i] = half(m[i * dim + (i ^ 1)]);
+			if (unary[i] != INF)
+				m[i * dim + (i ^ 1)] = add(unary[i], unary[i]);
+		}
+
+		for (int i = 0; i < dim; i++) {
+			if (unary[i] == INF)
+				continue;
+			// rows are contiguous in the array, so the inner loop scans memory sequentially
+			int row = i * dim;
+			for (int j = 0; j < dim; j++) {
+				long implied = add(unary[i], unary[j ^ 1]);
+				if (implied < m[row + j])
+					m[row + j] = implied;
+			}
+		}
+	}
+
+	// adds V_b - V_a <= c to a closed matrix and closes it again in quadratic time: the only new shortest paths are
+	// the ones going once through the new edge a -> b, through its coherent twin -b -> -a, or through both of them.
+	// Yields false if the resulting constraints have no solution
+	private static boolean addConstraint(
+			long[] m,
+			int dim,
+			int a,
+			int b,
+			long c) {
+		if (c >= m[a * dim + b])
+			return true;
+
+		long[] toA = new long[dim], toNb = new long[dim];
+		for (int i = 0; i < dim; i++) {
+			toA[i] = m[i * dim + a];
+			toNb[i] = m[i * dim + (b ^ 1)];
+		}
+		long[] fromB = Arrays.copyOfRange(m, b * dim, b * dim + dim);
+		long[] fromNa = Arrays.copyOfRange(m, (a ^ 1) * dim, (a ^ 1) * dim + dim);
+
+		// the cost of going from b to -b and from -a to a, to be paid between the edge and its twin
+		long loopB = add(fromB[b ^ 1], c), loopNa = add(fromNa[a], c);
+		for (int i = 0; i < dim; i++) {
+			// the cheapest ways of reaching b and -a from i through the new edges
+			long toB = Math.min(add(toA[i], c), add(add(toNb[i], c), loopNa));
+			long toNa = Math.min(add(toNb[i], c), add(add(toA[i], c), loopB));
+			if (toB == INF && toNa == INF)
+				continue;
+			int row = i * dim;
+			for (int j = 0; j < dim; j++) {
+				long v = Math.min(add(toB, fromB[j]), add(toNa, fromNa[j]));
+				if (v < m[row + j])
+					m[row + j] = v;
+			}
+		}
+
+		strengthen(m, dim);
+		for (int i = 0; i < dim; i++)
+			if (m[i * dim + i] < 0)
+				return false;
+		return true;
+	}
+
+	// the sub-matrix of the given variables (positions in the pack), that is closed if the matrix is closed
+	private static long[] extract(
+			long[] m,
+			int dim,
+			int[] positions) {
+		int d = 2 * positions.length;
+		long[] result = new long[d * d];
+		for (int i = 0; i < d; i++) {
+			int src = (2 * positions[i >> 1] + (i & 1)) * dim;
+			for (int j = 0; j < d; j++)
+				result[i * d + j] = m[src + 2 * positions[j >> 1] + (j & 1)];
+		}
+		return result;
+	}
+
+	// x' = x + c: constraints where x appears positively (column 2k and row 2k + 1) grow by c, the others shrink by c
+	private static void shift(
+			long[] m,
+			int dim,
+			int k,
+			long c) {
+		long minus = negate(c);
+		for (int j = 0; j < dim; j++) {
+			m[2 * k * dim + j] = add(m[2 * k * dim + j], minus);
+			m[(2 * k + 1) * dim + j] = add(m[(2 * k + 1) * dim + j], c);
+		}
+		for (int i = 0; i < dim; i++) {
+			m[i * dim + 2 * k] = add(m[i * dim + 2 * k], c);
+			m[i * dim + 2 * k + 1] = add(m[i * dim + 2 * k + 1], minus);
+		}
+	}
+
+	// x' = -x: the entries of x and -x are swapped
+	private static void mirror(
+			long[] m,
+			int dim,
+			int k) {
+		int pos = 2 * k * dim, neg = (2 * k + 1) * dim;
+		for (int j = 0; j < dim; j++) {
+			long tmp = m[pos + j];
+			m[pos + j] = m[neg + j];
+			m[neg + j] = tmp;
+		}
+		for (int i = 0; i < dim; i++) {
+			long tmp = m[i * dim + 2 * k];
+			m[i * dim + 2 * k] = m[i * dim + 2 * k + 1];
+			m[i * dim + 2 * k + 1] = tmp;
+		}
+	}
+
+	// the (closed) matrix of the constraints of this element on the given variables: constraints between variables
+	// of different packs are the ones implied by their bounds
+	private long[] view(
+			Identifier[] vars) {
+		int n = vars.length, dim = 2 * n;
+		long[] result = unconstrained(dim);
+		Pack[] owners = new Pack[n];
+		int[] positions = new int[n];
+		for (int k = 0; k < n; k++) {
+			owners[k] = packs.get(vars[k]);
+			if (owners[k] != null)
+				positions[k] = owners[k].index.get(vars[k]);
+		}
+
+		for (int k = 0; k < n; k++) {
+			Pack p = owners[k];
+			if (p == null)
+				continue;
+			int pdim = p.dim();
+			for (int s = 0; s < 2; s++) {
+				int src = (2 * positions[k] + s) * pdim, row = (2 * k + s) * dim;
+				for (int l = 0; l < n; l++)
+					if (owners[l] == p) {
+						result[row + 2 * l] = p.m[src + 2 * positions[l]];
+						result[row + 2 * l + 1] = p.m[src + 2 * positions[l] + 1];
+					}
+			}
+		}
+
+		strengthen(result, dim);
+		return result;
+	}
+
+	// splits a closed matrix into the packs of the variables related by constraints that are not implied by their
+	// bounds, dropping the variables that are unconstrained
+	private static List<Pack> split(
+			Identifier[] vars,
+			long[] m) {
+		int n = vars.length, dim = 2 * n;
+		int[] parent = new int[n];
+		for (int k = 0; k < n; k++)
+			parent[k] = k;
+
+		for (int i = 0; i < dim; i++) {
+			long unary = half(m[i * dim + (i ^ 1)]);
+			for (int j = 2 * ((i >> 1) + 1); j < dim; j++)
+				if (m[i * dim + j] < add(unary, half(m[(j ^ 1) * dim + j]))) {
+					int ri = find(parent, i >> 1), rj = find(parent, j >> 1);
+					if (ri != rj)
+						parent[Math.max(ri, rj)] = Math.min(ri, rj);
+				}
+		}
+
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int k = 0; k < n; k++)
+			groups.computeIfAbsent(find(parent, k), r -> new ArrayList<>()).add(k);
+
+		List<Pack> result = new ArrayList<>(groups.size());
+		for (List<Integer> group : groups.values()) {
+			int k = group.get(0);
+			if (group.size() == 1 && m[2 * k * dim + 2 * k + 1] == INF && m[(2 * k + 1) * dim + 2 * k] == INF)
+				continue;
+			int[] positions = new int[group.size()];
+			Identifier[] ids = new Identifier[group.size()];
+			for (int l = 0; l < positions.length; l++) {
+				positions[l] = group.get(l);
+				ids[l] = vars[positions[l]];
+			}
+			result.add(new Pack(ids, extract(m, dim, positions)));
+		}
+		return result;
+	}
+
+	private static int find(
+			int[] parent,
+			int k) {
+		while (parent[k] != k)
+			k = parent[k] = parent[parent[k]];
+		return k;
+	}
+
+	private Collection<Pack> distinctPacks() {
+		// packs do not override equals, so this removes duplicates by reference
+		return new LinkedHashSet<>(packs.values());
+	}
+
+	// yields a copy of this element where the given variables are unconstrained, and the given packs replace the
+	// ones of their variables
+	private Octagons update(
+			Collection<Identifier> removed,
+			Collection<Pack> added) {
+		PersistentHashMap<Identifier, Pack> result = new PersistentHashMap<>(packs);
+		for (Identifier id : removed)
+			result.remove(id);
+		for (Pack p : added)
+			for (Identifier id : p.vars)
+				result.put(id, p);
+		return new Octagons(result, false);
+	}
+
+	// yields a pack containing all the given variables, merging their packs if needed
+	private Pack join(
+			Identifier... ids) {
+		Pack first = packs.get(ids[0]);
+		boolean same = first != null;
+		for (Identifier id : ids)
+			same &= packs.get(id) == first;
+		if (same)
+			return first;
+
+		Set<Identifier> vars = new LinkedHashSet<>();
+		for (Identifier id : ids) {
+			Pack p = packs.get(id);
+			if (p == null)
+				vars.add(id);
+			else
+				vars.addAll(Arrays.asList(p.vars));
+		}
+		Identifier[] all = vars.toArray(new Identifier[0]);
+		return new Pack(all, view(all));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			Octagons other)
+			throws SemanticException {
+		// constraints of other between different packs are implied by the bounds, that are checked within each pack
+		for (Pack p : other.distinctPacks()) {
+			long[] mine = view(p.vars);
+			for (int i = 0; i < mine.length; i++)
+				if (mine[i] > p.m[i])
+					return false;
+		}
+		return true;
+	}
+
+	@Override
+	public Octagons lubAux(
+			Octagons other)
+			throws SemanticException {
+		return combine(other, false);
+	}
+
+	@Override
+	public Octagons wideningAux(
+			Octagons other)
+			throws SemanticException {
+		return combine(other, true);
+	}
+
+	// lub and widening are computed pointwise on the packs of the coarsest partition that is finer than both operands
+	private Octagons combine(
+			Octagons other,
+			boolean widening) {
+		// variables unconstrained in one of the operands are unconstrained in the result
+		List<Identifier> common = new ArrayList<>();
+		Map<Identifier, Integer> positions = new HashMap<>();
+		for (Identifier id : packs.keySet())
+			if (other.packs.containsKey(id)) {
+				positions.put(id, common.size());
+				common.add(id);
+			}
+
+		int[] parent = new int[common.size()];
+		for (int k = 0; k < parent.length; k++)
+			parent[k] = k;
+		for (Octagons operand : List.of(this, other))
+			for (Pack p : operand.distinctPacks()) {
+				int root = -1;
+				for (Identifier id : p.vars) {
+					Integer k = positions.get(id);
+					if (k == null)
+						continue;
+					if (root == -1)
+						root = find(parent, k);
+					else {
+						int r = find(parent, k);
+						if (r != root) {
+							parent[Math.max(r, root)] = Math.min(r, root);
+							root = Math.min(r, root);
+						}
+					}
+				}
+			}
+
+		Map<Integer, List<Identifier>> components = new LinkedHashMap<>();
+		for (int k = 0; k < parent.length; k++)
+			components.computeIfAbsent(find(parent, k), r -> new ArrayList<>()).add(common.get(k));
+
+		List<Pack> result = new ArrayList<>();
+		for (List<Identifier> component : components.values()) {
+			Identifier[] vars = component.toArray(new Identifier[0]);
+			Pack mine = packs.get(vars[0]);
+			if (mine == other.packs.get(vars[0]) && mine.vars.length == vars.length) {
+				// the pack is shared by the two operands, and all of its variables are in both of them
+				result.add(mine);
+				continue;
+			}
+
+			long[] m = view(vars), theirs = other.view(vars);
+			for (int i = 0; i < m.length; i++)
+				if (widening)
+					// unstable bounds are dropped
+					m[i] = theirs[i] <= m[i] ? m[i] : INF;
+				else
+					m[i] = Math.max(m[i], theirs[i]);
+
+			if (widening)
+				// splitting would change the entries that are not closed anymore, and the chain of widenings might
+				// not terminate
+				result.add(new Pack(vars, m));
+			else
+				result.addAll(split(vars, m));
+		}
+
+		PersistentHashMap<Identifier, Pack> function = new PersistentHashMap<>();
+		for (Pack p : result)
+			for (Identifier id : p.vars)
+				function.put(id, p);
+		return new Octagons(function, false);
+	}
+
+	/**
+	 * A linear expression {@code c + a1 * x1 + ... + an * xn}.
+	 */
+	private static final class Linear {
+
+		private final Map<Identifier, Long> terms = new LinkedHashMap<>();
+
+		private long c;
+
+		// yields null if the expression is not linear or its coefficients overflow
+		private static Linear of(
+				SymbolicExpression e) {
+			Linear result = new Linear();
+			if (e instanceof Constant) {
+				Object value = ((Constant) e).getValue();
+				if (!(value instanceof Integer || value instanceof Long))
+					return null;
+				result.c = ((Number) value).longValue();
+				return result;
+			}
+
+			if (e instanceof Identifier) {
+				result.terms.put((Identifier) e, 1L);
+				return result;
+			}
+
+			if (e instanceof UnaryExpression && ((UnaryExpression) e).getOperator() == NumericNegation.INSTANCE) {
+				Linear arg = of(((UnaryExpression) e).getExpression());
+				return arg == null ? null : arg.times(-1);
+			}
+
+			if (e instanceof BinaryExpression) {
+				BinaryExpression be = (BinaryExpression) e;
+				BinaryOperator op = be.getOperator();
+				if (op instanceof AdditionOperator || op instanceof SubtractionOperator) {
+					Linear left = of(be.getLeft()), right = of(be.getRight());
+					if (left == null || right == null)
+						return null;
+					return left.plus(right, op instanceof SubtractionOperator ? -1 : 1);
+				}
+			}
+
+			return null;
+		}
+
+		// yields this + sign * other
+		private Linear plus(
+				Linear other,
+				int sign) {
+			Linear result = times(1);
+			if (result == null)
+				return null;
+			try {
+				result.c = Math.addExact(c, Math.multiplyExact(sign, other.c));
+				for (Map.Entry<Identifier, Long> term : other.terms.entrySet()) {
+					long coef = Math.addExact(result.terms.getOrDefault(term.getKey(), 0L),
+							Math.multiplyExact(sign, term.getValue()));
+					if (coef == 0)
+						result.terms.remove(term.getKey());
+					else
+						result.terms.put(term.getKey(), coef);
+				}
+			} catch (ArithmeticException e) {
+				return null;
+			}
+			return result;
+		}
+
+		// yields this + k
+		private Linear plus(
+				long k) {
+			Linear result = times(1);
+			if (result == null)
+				return null;
+			try {
+				result.c = Math.addExact(c, k);
+			} catch (ArithmeticException e) {
+				return null;
+			}
+			return result;
+		}
+
+		private Linear times(
+				int sign) {
+			if (c == Long.MIN_VALUE)
+				return null;
+			Linear result = new Linear();
+			result.c = sign * c;
+			for (Map.Entry<Identifier, Long> term : terms.entrySet())
+				result.terms.put(term.getKey(), sign * term.getValue());
+			return result;
+		}
+
+		// whether lin <= 0 is an octagonal constraint
+		private boolean isOctagonal() {
+			if (terms.size() > 2 || c == Long.MIN_VALUE)
+				return false;
+			for (long coef : terms.values())
+				if (coef != 1 && coef != -1)
+					return false;
+			return true;
+		}
+	}
+
+	// adds lin <= 0 to this element, if it is an octagonal constraint
+	private Octagons constrain(
+			Linear lin) {
+		if (isBottom() || lin == null || !lin.isOctagonal())
+			return this;
+
+		long k = -lin.c;
+		if (lin.terms.isEmpty())
+			return k >= 0 ? this : BOTTOM;
+
+		Identifier[] ids = lin.terms.keySet().toArray(new Identifier[0]);
+		Pack p = join(ids);
+		int x = p.index.get(ids[0]);
+		boolean px = lin.terms.get(ids[0]) > 0;
+		int a, b;
+		long bound;
+		if (ids.length == 1) {
+			// x <= k is V_2x - V_2x+1 <= 2k, and -x <= k is V_2x+1 - V_2x <= 2k
+			a = px ? 2 * x + 1 : 2 * x;
+			b = a ^ 1;
+			bound = add(k, k);
+		} else {
+			// +-x +- y <= k is V_b - V_a <= k, where V_b = +-x and V_a = -(+-y)
+			int y = p.index.get(ids[1]);
+			boolean py = lin.terms.get(ids[1]) > 0;
+			b = px ? 2 * x : 2 * x + 1;
+			a = py ? 2 * y + 1 : 2 * y;
+			bound = k;
+		}
+
+		// packs built by join are not shared yet
+		long[] m = p == packs.get(ids[0]) ? p.m.clone() : p.m;
+		if (!addConstraint(m, p.dim(), a, b, bound))
+			return BOTTOM;
+		return update(List.of(), List.of(new Pack(p, m)));
+	}
+
+	// the bounds of the given expression, evaluated with interval arithmetic on the bounds of its variables
+	private long[] range(
+			SymbolicExpression e) {
+		if (e instanceof Constant) {
+			Object value = ((Constant) e).getValue();
+			if (value instanceof Integer || value instanceof Long) {
+				long v = Math.max(((Number) value).longValue(), MIN);
+				return new long[] { v, v };
+			}
+		} else if (e instanceof Identifier) {
+			Pack p = packs.get(e);
+			if (p != null) {
+				int k = p.index.get(e), dim = p.dim();
+				return new long[] {
+						negate(half(p.m[2 * k * dim + 2 * k + 1])),
+						half(p.m[(2 * k + 1) * dim + 2 * k]) };
+			}
+		} else if (e instanceof UnaryExpression && ((UnaryExpression) e).getOperator() == NumericNegation.INSTANCE) {
+			long[] arg = range(((UnaryExpression) e).getExpression());
+			return new long[] { negate(arg[1]), negate(arg[0]) };
+		} else if (e instanceof BinaryExpression) {
+			BinaryExpression be = (BinaryExpression) e;
+			BinaryOperator op = be.getOperator();
+			long[] left = range(be.getLeft()), right = range(be.getRight());
+			if (op instanceof SubtractionOperator)
+				right = new long[] { negate(right[1]), negate(right[0]) };
+			if (op instanceof AdditionOperator || op instanceof SubtractionOperator)
+				return new long[] {
+						left[0] == MIN || right[0] == MIN ? MIN : add(left[0], right[0]),
+						add(left[1], right[1]) };
+			if (op instanceof MultiplicationOperator) {
+				long[] products = {
+						multiply(left[0], right[0]), multiply(left[0], right[1]),
+						multiply(left[1], right[0]), multiply(left[1], right[1]) };
+				return new long[] { Arrays.stream(products).min().getAsLong(),
+						Arrays.stream(products).max().getAsLong() };
+			}
+		}
+		return new long[] { MIN, INF };
+	}
+
+	private static long multiply(
+			long a,
+			long b) {
+		if (a == 0 || b == 0)
+			return 0;
+		boolean positive = (a > 0) == (b > 0);
+		if (a == INF || a == MIN || b == INF || b == MIN)
+			return positive ? INF : MIN;
+		try {
+			return Math.max(Math.multiplyExact(a, b), MIN);
+		} catch (ArithmeticException e) {
+			return positive ? INF : MIN;
+		}
+	}
+
+	@Override
+	public Octagons assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		Octagons result = assign(id, expression);
+		// weak identifiers stand for many concrete variables, and only one of them is assigned
+		return id.isWeak() ? lub(result) : result;
+	}
+
+	private Octagons assign(
+			Identifier id,
+			ValueExpression expression)
+			throws SemanticException {
+		Linear lin = Linear.of(expression);
+		if (lin != null && lin.terms.size() == 1 && lin.c != Long.MIN_VALUE) {
+			Long coef = lin.terms.get(id);
+			if (coef != null && (coef == 1 || coef == -1)) {
+				// x = x + c and x = c - x are invertible: we translate (and mirror) the constraints of x, that stay closed
+				Pack p = packs.get(id);
+				if (p == null)
+					return this;
+				long[] m = p.m.clone();
+				int k = p.index.get(id);
+				if (coef == -1)
+					mirror(m, p.dim(), k);
+				shift(m, p.dim(), k, lin.c);
+				return update(List.of(), List.of(new Pack(p, m)));
+			}
+		}
+
+		Octagons base = forgetIdentifier(id);
+		if (lin != null && !lin.terms.containsKey(id)) {
+			// x = e becomes e - x <= 0 and x - e <= 0, that are octagonal if e has at most one variable
+			Linear diff = lin.plus(Linear.of(id), -1);
+			if (diff != null && diff.isOctagonal())
+				return base.constrain(diff).constrain(diff.times(-1));
+		}
+
+		// otherwise, we only keep the bounds of e
+		long[] range = range(expression);
+		Octagons result = base;
+		if (range[1] != INF)
+			result = result.constrain(Linear.of(id).plus(-range[1]));
+		if (range[0] != MIN)
+			result = result.constrain(Linear.of(id).times(-1).plus(range[0]));
+		return result;
+	}
+
+	@Override
+	public Octagons smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// nothing to do
+		return this;
+	}
+
+	@Override
+	public Octagons assume(
+			ValueExpression expression,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+
+		if (expression instanceof UnaryExpression) {
+			UnaryExpression unary = (UnaryExpression) expression;
+			ValueExpression negated = unary.getOperator() == LogicalNegation.INSTANCE
+					? negate((ValueExpression) unary.getExpression())
+					: null;
+			return negated == null ? this : assume(negated, src, dest, oracle);
+		}
+
+		if (!(expression instanceof BinaryExpression))
+			return this;
+
+		BinaryExpression bexp = (BinaryExpression) expression;
+		BinaryOperator operator = bexp.getOperator();
+		if (operator == LogicalAnd.INSTANCE)
+			return assume((ValueExpression) bexp.getLeft(), src, dest, oracle)
+					.assume((ValueExpression) bexp.getRight(), src, dest, oracle);
+		if (operator == LogicalOr.INSTANCE)
+			return assume((ValueExpression) bexp.getLeft(), src, dest, oracle)
+					.lub(assume((ValueExpression) bexp.getRight(), src, dest, oracle));
+
+		Linear left = Linear.of(bexp.getLeft()), right = Linear.of(bexp.getRight());
+		if (left == null || right == null)
+			return this;
+		Linear diff = left.plus(right, -1);
+		if (diff == null)
+			return this;
+
+		// strict comparisons become non-strict ones since variables are integers
+		if (operator instanceof ComparisonLe)
+			return constrain(diff);
+		if (operator instanceof ComparisonLt)
+			return constrain(diff.plus(1));
+		Linear opposite = diff.times(-1);
+		if (opposite == null)
+			return this;
+		if (operator instanceof ComparisonGe)
+			return constrain(opposite);
+		if (operator instanceof ComparisonGt)
+			return constrain(opposite.plus(1));
+		if (operator instanceof ComparisonEq)
+			return constrain(diff).constrain(opposite);
+		if (operator instanceof ComparisonNe)
+			// x != y holds if either x < y or x > y holds
+			return constrain(diff.plus(1)).lub(constrain(opposite.plus(1)));
+		return this;
+	}
+
+	// yields the negation of a condition without negations, or null if it cannot be built
+	private static ValueExpression negate(
+			ValueExpression expression) {
+		if (expression instanceof UnaryExpression
+				&& ((UnaryExpression) expression).getOperator() == LogicalNegation.INSTANCE)
+			return (ValueExpression) ((UnaryExpression) expression).getExpression();
+
+		if (!(expression instanceof BinaryExpression))
+			return null;
+
+		BinaryExpression bexp = (BinaryExpression) expression;
+		BinaryOperator operator = bexp.getOperator();
+		if (operator instanceof ComparisonOperator)
+			return new BinaryExpression(
+					bexp.getStaticType(),
+					bexp.getLeft(),
+					bexp.getRight(),
+					(BinaryOperator) ((ComparisonOperator) operator).opposite(),
+					bexp.getCodeLocation());
+
+		if (operator == LogicalAnd.INSTANCE || operator == LogicalOr.INSTANCE) {
+			// de morgan
+			ValueExpression left = negate((ValueExpression) bexp.getLeft());
+			ValueExpression right = negate((ValueExpression) bexp.getRight());
+			if (left == null || right == null)
+				return null;
+			return new BinaryExpression(
+					bexp.getStaticType(),
+					left,
+					right,
+					operator == LogicalAnd.INSTANCE ? LogicalOr.INSTANCE : LogicalAnd.INSTANCE,
+					bexp.getCodeLocation());
+		}
+
+		return null;
+	}
+
+	@Override
+	public Octagons forgetIdentifier(
+			Identifier id)
+			throws SemanticException {
+		Pack p = packs.get(id);
+		if (p == null)
+			return this;
+
+		List<Integer> kept = new ArrayList<>();
+		for (int k = 0; k < p.vars.length; k++)
+			if (!p.vars[k].equals(id))
+				kept.add(k);
+		return update(List.of(id), kept.isEmpty() ? List.of() : List.of(sub(p, kept, p.vars)));
+	}
+
+	@Override
+	public Octagons forgetIdentifiersIf(
+			Predicate<Identifier> test)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+
+		List<Identifier> removed = new ArrayList<>();
+		List<Pack> added = new ArrayList<>();
+		for (Pack p : distinctPacks()) {
+			List<Integer> kept = new ArrayList<>();
+			for (int k = 0; k < p.vars.length; k++)
+				if (test.test(p.vars[k]))
+					removed.add(p.vars[k]);
+				else
+					kept.add(k);
+			if (kept.size() < p.vars.length && !kept.isEmpty())
+				// projecting a closed matrix keeps it closed
+				added.add(sub(p, kept, p.vars));
+		}
+
+		return removed.isEmpty() ? this : update(removed, added);
+	}
+
+	// the pack of the variables at the given positions of p, renamed to the ones at the same positions of names
+	private static Pack sub(
+			Pack p,
+			List<Integer> positions,
+			Identifier[] names) {
+		int[] indexes = new int[positions.size()];
+		Identifier[] vars = new Identifier[indexes.length];
+		for (int k = 0; k < indexes.length; k++) {
+			indexes[k] = positions.get(k);
+			vars[k] = names[indexes[k]];
+		}
+		return new Pack(vars, extract(p.m, p.dim(), indexes));
+	}
+
+	@Override
+	public Satisfiability satisfies(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return Satisfiability.BOTTOM;
+
+		// a condition holds if its negation has no solution, and vice versa
+		if (assume(expression, pp, pp, oracle).isBottom())
+			return Satisfiability.NOT_SATISFIED;
+		ValueExpression negated = negate(expression);
+		if (negated != null && assume(negated, pp, pp, oracle).isBottom())
+			return Satisfiability.SATISFIED;
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public Octagons pushScope(
+			ScopeToken token)
+			throws SemanticException {
+		return rename(token, true);
+	}
+
+	@Override
+	public Octagons popScope(
+			ScopeToken token)
+			throws SemanticException {
+		return rename(token, false);
+	}
+
+	// renames all variables, dropping the ones that have no name in the new scope
+	private Octagons rename(
+			ScopeToken token,
+			boolean push)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+
+		PersistentHashMap<Identifier, Pack> function = new PersistentHashMap<>();
+		for (Pack p : distinctPacks()) {
+			Identifier[] names = new Identifier[p.vars.length];
+			Set<Identifier> seen = new HashSet<>();
+			List<Integer> kept = new ArrayList<>();
+			for (int k = 0; k < p.vars.length; k++) {
+				names[k] = (Identifier) (push ? p.vars[k].pushScope(token) : p.vars[k].popScope(token));
+				if (names[k] != null && !function.containsKey(names[k]) && seen.add(names[k]))
+					kept.add(k);
+			}
+			if (kept.isEmpty())
+				continue;
+			Pack renamed = sub(p, kept, names);
+			for (Identifier id : renamed.vars)
+				function.put(id, renamed);
+		}
+		return new Octagons(function, false);
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<StructuredRepresentation, StructuredRepresentation> mapping = new HashMap<>();
+		for (Pack p : distinctPacks())
+			for (int k = 0; k < p.vars.length; k++)
+				mapping.put(new StringRepresentation(p.vars[k]),
+						new StringRepresentation(String.join(", ", constraints(p, k))));
+		return new MapRepresentation(mapping);
+	}
+
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same content of representation(), but the bounds and the constraints
+		// of each variable are written as separate fields
+		if (isTop())
+			generator.writeString(Lattice.TOP_STRING);
+		else if (isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else {
+			generator.writeStartObject();
+			for (Pack p : distinctPacks())
+				for (int k = 0; k < p.vars.length; k++) {
+					List<String> constraints = constraints(p, k);
+					generator.writeObjectFieldStart(p.vars[k].toString());
+					generator.writeStringField("interval", constraints.get(0));
+					generator.writeArrayFieldStart("constraints");
+					for (String constraint : constraints.subList(1, constraints.size()))
+						generator.writeString(constraint);
+					generator.writeEndArray();
+					generator.writeEndObject();
+				}
+			generator.writeEndObject();
+		}
+	}
+
+	// the bounds of the k-th variable of p, followed by the constraints with the variables after it that are not
+	// implied by their bounds
+	private static List<String> constraints(
+			Pack p,
+			int k) {
+		long[] m = p.m;
+		int dim = p.dim();
+		String x = p.vars[k].toString();
+		long low = m[2 * k * dim + 2 * k + 1], high = m[(2 * k + 1) * dim + 2 * k];
+		List<String> result = new ArrayList<>();
+		result.add("[" + (low == INF ? "-Inf" : negate(half(low))) + ", " + (high == INF ? "+Inf" : half(high)) + "]");
+		for (int l = k + 1; l < p.vars.length; l++) {
+			String y = p.vars[l].toString();
+			constraint(result, m, dim, 2 * l, 2 * k, x + " - " + y);
+			constraint(result, m, dim, 2 * k, 2 * l, y + " - " + x);
+			constraint(result, m, dim, 2 * l + 1, 2 * k, x + " + " + y);
+			constraint(result, m, dim, 2 * l, 2 * k + 1, "-" + x + " - " + y);
+		}
+		return result;
+	}
+
+	private static void constraint(
+			List<String> result,
+			long[] m,
+			int dim,
+			int i,
+			int j,
+			String lhs) {
+		long bound = m[i * dim + j];
+		if (bound < add(half(m[i * dim + (i ^ 1)]), half(m[(j ^ 1) * dim + j])))
+			result.add(lhs + " <= " + bound);
+	}
+
+	@Override
+	public int hashCode() {
+		if (isBottom())
+			return 1;
+		// consistent with equals, that compares the matrices entry by entry
+		int hash = 0;
+		for (Map.Entry<Identifier, Pack> entry : packs.entrySet()) {
+			Pack p = entry.getValue();
+			int k = p.index.get(entry.getKey()), dim = p.dim();
+			hash += Objects.hash(entry.getKey(), p.vars.length, p.m[2 * k * dim + 2 * k + 1],
+					p.m[(2 * k + 1) * dim + 2 * k]);
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Octagons other = (Octagons) obj;
+		if (bottom != other.bottom || packs.size() != other.packs.size())
+			return false;
+
+		// the same variables must be in packs with the same variables and constraints, possibly in different orders
+		for (Pack p : distinctPacks()) {
+			Pack q = other.packs.get(p.vars[0]);
+			if (q == p)
+				continue;
+			if (q == null || q.vars.length != p.vars.length)
+				return false;
+			int[] positions = new int[p.dim()];
+			for (int k = 0; k < p.vars.length; k++) {
+				if (other.packs.get(p.vars[k]) != q)
+					return false;
+				positions[2 * k] = 2 * q.index.get(p.vars[k]);
+				positions[2 * k + 1] = positions[2 * k] + 1;
+			}
+			int dim = p.dim();
+			for (int i = 0; i < dim; i++)
+				for (int j = 0; j < dim; j++)
+					if (p.m[i * dim + j] != q.m[positions[i] * dim + positions[j]])
+						return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+
+	@Override
+	public boolean knowsIdentifier(
+			Identifier id) {
+		return packs.containsKey(id);
+	}
+}
@@ -0,0 +1,63 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+
+import java.nio.file.Paths;
+
+/**
+ * What an analysis dumps once it has been executed.
+ */
+public enum OutputMode {
+
+	/**
+	 * The analyzed CFGs are dumped as HTML graphs, where each node shows the
+	 * representation of its pre- and post-states, as in the tests of the
+	 * tutorial.
+	 */
+	GRAPHS {
+		@Override
+		public void apply(
+				LiSAConfiguration conf) {
+			conf.analysisGraphs = GraphType.HTML;
+		}
+	},
+
+	/**
+	 * Nothing is dumped: the representations of the states are never built,
+	 * and the only outcome of the analysis are the warnings in the report
+	 * returned by LiSA.
+	 */
+	HEADLESS {
+		@Override
+		public void apply(
+				LiSAConfiguration conf) {
+			conf.analysisGraphs = GraphType.NONE;
+			conf.serializeInputs = false;
+			conf.serializeResults = false;
+			conf.jsonOutput = false;
+		}
+	},
+
+	/**
+	 * The value state after each statement is streamed to a gzip-compressed
+	 * JSON file named {@code states.json.gz} in the working directory (see
+	 * {@link JsonStateWriter}), while no graph is dumped.
+	 */
+	JSON {
+		@Override
+		public void apply(
+				LiSAConfiguration conf) {
+			HEADLESS.apply(conf);
+			conf.semanticChecks.add(new StateDumper<>(Paths.get(conf.workdir, "states.json.gz"), true));
+		}
+	};
+
+	/**
+	 * Sets the output options of the given configuration.
+	 *
+	 * @param conf the configuration
+	 */
+	public abstract void apply(
+			LiSAConfiguration conf);
+}
@@ -0,0 +1,58 @@
+package it.unive.lisa.tutorial;
+
+/**
+ * A finite lattice whose elements can be encoded in a few bits, such that the
+ * lub of two elements is the bitwise or of their codes (possibly followed by
+ * {@link #closeLub(long, long)}) and their glb is the bitwise and of their
+ * codes. The bottom element must be encoded as 0. Since the lattice is
+ * finite, its widening must coincide with the lub, and variables that are not
+ * tracked must be considered top (that is, the default behavior of
+ * {@code unknownVariable}). Domains implementing this interface can be used
+ * with a {@link PackedValueEnvironment}.
+ *
+ * @param <T> the concrete type of the lattice
+ */
+public interface PackedLattice<T extends PackedLattice<T>> {
+
+	/**
+	 * Yields the number of bits needed to encode an element of this lattice.
+	 *
+	 * @return the number of bits
+	 */
+	int bits();
+
+	/**
+	 * Yields the code of this element.
+	 *
+	 * @return the code
+	 */
+	int encode();
+
+	/**
+	 * Yields the element having the given code.
+	 *
+	 * @param code the code
+	 *
+	 * @return the element
+	 */
+	T decode(
+			int code);
+
+	/**
+	 * Fixes the result of the bitwise or between several codes, packed in a
+	 * single long, so that it is made of valid codes. This is needed when the
+	 * or of two codes is not a code itself (e.g., the or of two incomparable
+	 * elements must yield the code of their lub).
+	 *
+	 * @param codes the packed codes
+	 * @param lows  the mask having a bit set at the least significant bit of
+	 *                  each code in {@code codes}
+	 *
+	 * @return the fixed codes
+	 */
+	default long closeLub(
+			long codes,
+			long lows) {
+		return codes;
+	}
+}
@@ -0,0 +1,468 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link ValueEnvironment} for {@link PackedLattice}s, that stores the
+ * element of each variable in few bits of a {@code long[]}. Variables are
+ * numbered through an {@link IdentifierIndex} that is shared by all the
+ * environments of the same analysis (states flow between CFGs on calls, so
+ * the numbering cannot be restricted to a single CFG), and each environment
+ * only stores the range of words that contain its variables. Since the
+ * elements are encoded so that lub and glb are bitwise operations, lub, glb,
+ * widening and lessOrEqual process a whole word (i.e., several variables) at a
+ * time.
+ * <br>
+ * <br>
+ * Missing variables are treated as in {@link ValueEnvironment}: the lub (and
+ * the widening) keeps the variables present in either environment, as if
+ * they were bottom where they are missing, the glb keeps only the variables
+ * present in both, and lessOrEqual only compares the variables of the smaller
+ * environment, as if they were top where they are missing from the greater
+ * one.
+ * <br>
+ * <br>
+ * This class can be used in place of {@link ValueEnvironment}, e.g.
+ * {@code new PackedValueEnvironment<>(new Signs())}. Note that, as in any map,
+ * keys are the identifiers first seen with a given name: annotations of
+ * identifiers seen later with the same name are not merged into them.
+ *
+ * @param <T> the type of the values in the environment
+ */
+public class PackedValueEnvironment<T extends NonRelationalValueDomain<T> & PackedLattice<T>>
+		extends
+		ValueEnvironment<T> {
+
+	// the information shared by all environments of the same analysis
+	private final Packing<T> packing;
+
+	// whether this is the environment built by the public constructor, from
+	// whose top element analyses start
+	private final boolean prototype;
+
+	public PackedValueEnvironment(
+			T domain) {
+		this(domain, null, new Packing<>(domain), true);
+	}
+
+	private PackedValueEnvironment(
+			T domain,
+			Map<Identifier, T> function,
+			Packing<T> packing,
+			boolean prototype) {
+		super(domain, pack(function, packing));
+		this.packing = packing;
+		this.prototype = prototype;
+	}
+
+	private static <T extends NonRelationalValueDomain<T> & PackedLattice<T>> Map<Identifier, T> pack(
+			Map<Identifier, T> function,
+			Packing<T> packing) {
+		if (function == null || function instanceof PackedMap)
+			return function;
+		PackedMap<T> packed = new PackedMap<>(packing);
+		packed.putAll(function);
+		return packed;
+	}
+
+	@Override
+	public PackedValueEnvironment<T> mk(
+			T lattice,
+			Map<Identifier, T> function) {
+		return new PackedValueEnvironment<>(lattice, function, packing, false);
+	}
+
+	@Override
+	public Map<Identifier, T> mkNewFunction(
+			Map<Identifier, T> other,
+			boolean preserveNull) {
+		if (other == null)
+			return preserveNull ? null : new PackedMap<>(packing);
+		if (other instanceof PackedMap)
+			return new PackedMap<>((PackedMap<T>) other);
+		return pack(other, packing);
+	}
+
+	@Override
+	public PackedValueEnvironment<T> top() {
+		// we cannot rely on the implementation of ValueEnvironment as it
+		// creates a plain environment; each analysis asks the prototype for
+		// its starting state, that gets a fresh numbering so that the
+		// identifiers of earlier analyses are neither kept nor counted
+		if (prototype)
+			return new PackedValueEnvironment<>(lattice.top(), null, new Packing<>(lattice), false);
+		return isTop() ? this : mk(lattice.top(), null);
+	}
+
+	@Override
+	public PackedValueEnvironment<T> bottom() {
+		return isBottom() ? this : mk(lattice.bottom(), null);
+	}
+
+	// the lattice operations below work word by word, after packing the
+	// functions that do not use the numbering of this environment (e.g.,
+	// the null function of an environment with no variables)
+
+	private PackedMap<T> packed(
+			Map<Identifier, T> function) {
+		if (function instanceof PackedMap && ((PackedMap<T>) function).packing == packing)
+			return (PackedMap<T>) function;
+		PackedMap<T> packed = new PackedMap<>(packing);
+		if (function != null)
+			packed.putAll(function);
+		return packed;
+	}
+
+	@Override
+	public ValueEnvironment<T> lubAux(
+			ValueEnvironment<T> other)
+			throws SemanticException {
+		return mk(lattice.lub(other.lattice), packed(function).lub(packed(other.function)));
+	}
+
+	@Override
+	public ValueEnvironment<T> wideningAux(
+			ValueEnvironment<T> other)
+			throws SemanticException {
+		// packed lattices are finite, and their widening is the lub
+		return lubAux(other);
+	}
+
+	@Override
+	public ValueEnvironment<T> glbAux(
+			ValueEnvironment<T> other)
+			throws SemanticException {
+		return mk(lattice.glb(other.lattice), packed(function).glb(packed(other.function)));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			ValueEnvironment<T> other)
+			throws SemanticException {
+		return packed(function).lessOrEqual(packed(other.function));
+	}
+
+	/**
+	 * The layout of the packed maps, together with the numbering of the
+	 * identifiers. Each variable is stored in a field made of a presence bit
+	 * (the least significant one) followed by the code of its element, and
+	 * fields never span two words.
+	 */
+	private static final class Packing<T extends PackedLattice<T>> {
+
+		private final T lattice;
+
+		private final IdentifierIndex index = new IdentifierIndex();
+
+		private final int width;
+
+		private final int perWord;
+
+		// a bit set in the presence bit of each field
+		private final long presence;
+
+		private final long fieldMask;
+
+		private Packing(
+				T lattice) {
+			this.lattice = lattice;
+			this.width = lattice.bits() + 1;
+			this.perWord = Long.SIZE / width;
+			this.fieldMask = (1L << width) - 1;
+			long presence = 0;
+			for (int i = 0; i < perWord; i++)
+				presence |= 1L << (i * width);
+			this.presence = presence;
+		}
+	}
+
+	/**
+	 * A map from identifiers to elements of a {@link PackedLattice}, stored
+	 * as fields of a {@code long[]}. The array contains the words from
+	 * {@code offset} to {@code offset + words.length}, and all other words
+	 * are implicitly empty.
+	 */
+	private static final class PackedMap<T extends PackedLattice<T>> extends AbstractMap<Identifier, T> {
+
+		private final Packing<T> packing;
+
+		private long[] words;
+
+		private int offset;
+
+		private int size;
+
+		private PackedMap(
+				Packing<T> packing) {
+			this(packing, new long[0], 0, 0);
+		}
+
+		private PackedMap(
+				PackedMap<T> other) {
+			this(other.packing, other.words.clone(), other.offset, other.size);
+		}
+
+		private PackedMap(
+				Packing<T> packing,
+				long[] words,
+				int offset,
+				int size) {
+			this.packing = packing;
+			this.words = words;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		private long word(
+				int index) {
+			int i = index - offset;
+			return i >= 0 && i < words.length ? words[i] : 0;
+		}
+
+		private int field(
+				int index) {
+			return (int) ((word(index / packing.perWord) >>> shift(index)) & packing.fieldMask);
+		}
+
+		private int shift(
+				int index) {
+			return (index % packing.perWord) * packing.width;
+		}
+
+		private int field(
+				Object key) {
+			if (!(key instanceof Identifier))
+				return 0;
+			int index = packing.index.lookup((Identifier) key);
+			return index < 0 ? 0 : field(index);
+		}
+
+		private void setField(
+				int index,
+				int field) {
+			int w = index / packing.perWord;
+			if (words.length == 0) {
+				words = new long[1];
+				offset = w;
+			} else if (w < offset) {
+				long[] grown = new long[words.length + offset - w];
+				System.arraycopy(words, 0, grown, offset - w, words.length);
+				words = grown;
+				offset = w;
+			} else if (w >= offset + words.length)
+				words = Arrays.copyOf(words, Math.max(w - offset + 1, words.length + (words.length >> 1)));
+
+			int shift = shift(index);
+			long old = words[w - offset];
+			size += (int) ((field & 1) - ((old >>> shift) & 1));
+			words[w - offset] = (old & ~(packing.fieldMask << shift)) | ((long) field << shift);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean containsKey(
+				Object key) {
+			return field(key) != 0;
+		}
+
+		@Override
+		public T get(
+				Object key) {
+			int field = field(key);
+			return field == 0 ? null : packing.lattice.decode(field >>> 1);
+		}
+
+		@Override
+		public T put(
+				Identifier key,
+				T value) {
+			int index = packing.index.indexOf(key);
+			int old = field(index);
+			setField(index, (value.encode() << 1) | 1);
+			return old == 0 ? null : packing.lattice.decode(old >>> 1);
+		}
+
+		@Override
+		public T remove(
+				Object key) {
+			if (!(key instanceof Identifier))
+				return null;
+			int index = packing.index.lookup((Identifier) key);
+			if (index < 0)
+				return null;
+			int old = field(index);
+			if (old == 0)
+				return null;
+			setField(index, 0);
+			return packing.lattice.decode(old >>> 1);
+		}
+
+		@Override
+		public void clear() {
+			words = new long[0];
+			offset = 0;
+			size = 0;
+		}
+
+		// a field that is not present is all zeros, that is, the presence bit
+		// and the code of bottom: multiplying the presence bits of a word by
+		// the field mask yields a mask covering the fields that are present
+
+		private PackedMap<T> lub(
+				PackedMap<T> other) {
+			// the result keeps the variables present in either map: the or of
+			// the codes yields the lub of the ones present in both, and the
+			// value of the others as the missing field is bottom
+			if (words.length == 0)
+				return new PackedMap<>(other);
+			if (other.words.length == 0)
+				return new PackedMap<>(this);
+			int from = Math.min(offset, other.offset);
+			int to = Math.max(offset + words.length, other.offset + other.words.length);
+			long[] result = new long[to - from];
+			int size = 0;
+			long lows = packing.presence << 1;
+			for (int i = from; i < to; i++) {
+				long w = word(i) | other.word(i);
+				long present = w & packing.presence;
+				result[i - from] = packing.lattice.closeLub(w, lows) & present * packing.fieldMask;
+				size += Long.bitCount(present);
+			}
+			return new PackedMap<>(packing, result, from, size);
+		}
+
+		private PackedMap<T> glb(
+				PackedMap<T> other) {
+			// the result keeps only the variables present in both maps, where
+			// the and of the codes yields the glb
+			int from = Math.max(offset, other.offset);
+			int to = Math.min(offset + words.length, other.offset + other.words.length);
+			if (from >= to)
+				return new PackedMap<>(packing);
+			long[] result = new long[to - from];
+			int size = 0;
+			for (int i = from; i < to; i++) {
+				long w = word(i) & other.word(i);
+				result[i - from] = w;
+				size += Long.bitCount(w & packing.presence);
+			}
+			return new PackedMap<>(packing, result, from, size);
+		}
+
+		private boolean lessOrEqual(
+				PackedMap<T> other) {
+			// fields present in both maps must have their bits included in the
+			// ones of other, while fields present only here are below the top
+			// of other, and fields present only in other are not compared
+			for (int i = offset; i < offset + words.length; i++) {
+				long mine = word(i), theirs = other.word(i);
+				long both = (mine & theirs & packing.presence) * packing.fieldMask;
+				if ((mine & ~theirs & both) != 0)
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean equals(
+				Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof PackedMap) || ((PackedMap<?>) o).packing != packing)
+				return super.equals(o);
+			PackedMap<?> other = (PackedMap<?>) o;
+			if (size != other.size)
+				return false;
+			int from = Math.min(offset, other.offset);
+			int to = Math.max(offset + words.length, other.offset + other.words.length);
+			for (int i = from; i < to; i++)
+				if (word(i) != other.word(i))
+					return false;
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			// this has to be consistent with the one of other maps
+			return super.hashCode();
+		}
+
+		@Override
+		public Set<Entry<Identifier, T>> entrySet() {
+			return new AbstractSet<>() {
+
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public Iterator<Entry<Identifier, T>> iterator() {
+					return new EntryIterator();
+				}
+			};
+		}
+
+		private final class EntryIterator implements Iterator<Entry<Identifier, T>> {
+
+			private int next = offset * packing.perWord;
+
+			private int last = -1;
+
+			private final int end = (offset + words.length) * packing.perWord;
+
+			private EntryIterator() {
+				advance();
+			}
+
+			private void advance() {
+				while (next < end && field(next) == 0)
+					// we skip empty words entirely
+					if (next % packing.perWord == 0 && word(next / packing.perWord) == 0)
+						next += packing.perWord;
+					else
+						next++;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < end;
+			}
+
+			@Override
+			public Entry<Identifier, T> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				last = next;
+				next++;
+				advance();
+				return new SimpleImmutableEntry<>(packing.index.get(last),
+						packing.lattice.decode(field(last) >>> 1));
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+				// removing does not resize the array, so the iteration can go on
+				setField(last, 0);
+				last = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.interprocedural.InterproceduralAnalysis;
+import it.unive.lisa.interprocedural.InterproceduralAnalysisException;
+import it.unive.lisa.interprocedural.OpenCallPolicy;
+import it.unive.lisa.interprocedural.callgraph.CallGraph;
+import it.unive.lisa.program.Application;
+
+/**
+ * A {@link TimedInterproceduralAnalysis} that runs the pre-analysis of a
+ * {@link VariablePacks} on the whole application before the analysis it
+ * delegates to starts, and freezes them, so that a {@link PartitionedDomain}
+ * using the same packs finds them already computed.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class PackingAnalysis<A extends AbstractState<A>> extends TimedInterproceduralAnalysis<A> {
+
+	private final VariablePacks packs;
+
+	/**
+	 * Builds the analysis.
+	 *
+	 * @param analysis the analysis to delegate to
+	 * @param packs    the packs to compute, that must not have been frozen
+	 *                     yet
+	 */
+	public PackingAnalysis(
+			InterproceduralAnalysis<A> analysis,
+			VariablePacks packs) {
+		super(analysis);
+		this.packs = packs;
+	}
+
+	@Override
+	public void init(
+			Application app,
+			CallGraph callgraph,
+			OpenCallPolicy policy)
+			throws InterproceduralAnalysisException {
+		packs.collect(app.getAllCFGs());
+		packs.freeze();
+		super.init(app, callgraph, policy);
+	}
+}
@@ -0,0 +1,430 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.*;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.TernaryExpression;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.representation.MapRepresentation;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+
+/**
+ * A {@link ValueDomain} that splits the variables into the packs of a
+ * {@link VariablePacks}, and tracks each pack with an independent element of
+ * another domain (e.g., {@link Pentagons} or {@link StrictUpperBounds}).
+ * Expressions are only sent to the elements of the packs of their
+ * identifiers, and identifiers of other packs are replaced by unknown values,
+ * so that the element of a pack never refers to variables outside of it.
+ * Elements of packs that are not affected by an operation are shared between
+ * the operands and the result, and lub, widening and lessOrEqual skip them.
+ * <br>
+ * <br>
+ * The packs must be frozen before the analysis starts, and never change
+ * during it. When an expression relates identifiers of different packs (e.g.,
+ * a comparison between a variable and a heap location that the pre-analysis
+ * did not see), the relation is lost: each pack sees the identifiers of the
+ * other ones as unknown values.
+ * <br>
+ * <br>
+ * This class can wrap any value domain, e.g.
+ * {@code new PartitionedDomain<>(new Pentagons(), packs)}, and the packs can
+ * be computed before the fixpoint through a {@link PackingAnalysis}.
+ *
+ * @param <D> the type of the elements tracking each pack
+ */
+public class PartitionedDomain<D extends ValueDomain<D>>
+		implements ValueDomain<PartitionedDomain<D>>,
+		// we exploit BaseLattice to avoid writing common-sense logic
+		BaseLattice<PartitionedDomain<D>>,
+		// this allows to dump the packs without building their representation
+		JsonStreamable {
+
+	private final VariablePacks packs;
+
+	// the top element of the wrapped domain
+	private final D domain;
+
+	// the elements of the packs that are not top, keyed by the packs returned by VariablePacks.packOf
+	private final PersistentHashMap<Object, D> states;
+
+	private final boolean bottom;
+
+	public PartitionedDomain(
+			D domain,
+			VariablePacks packs) {
+		this(packs, domain.top(), new PersistentHashMap<>(), false);
+	}
+
+	private PartitionedDomain(
+			VariablePacks packs,
+			D domain,
+			PersistentHashMap<Object, D> states,
+			boolean bottom) {
+		this.packs = packs;
+		this.domain = domain;
+		this.states = states;
+		this.bottom = bottom;
+	}
+
+	/**
+	 * Yields the packs used by this domain.
+	 *
+	 * @return the packs
+	 */
+	public VariablePacks getPacks() {
+		return packs;
+	}
+
+	@Override
+	public PartitionedDomain<D> top() {
+		return new PartitionedDomain<>(packs, domain, new PersistentHashMap<>(), false);
+	}
+
+	@Override
+	public boolean isTop() {
+		// since top() does not return a constant value, we have to override this method as well
+		return !bottom && states.isEmpty();
+	}
+
+	@Override
+	public PartitionedDomain<D> bottom() {
+		return new PartitionedDomain<>(packs, domain, new PersistentHashMap<>(), true);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return bottom;
+	}
+
+	private D get(
+			Object pack) {
+		D state = states.get(pack);
+		return state == null ? domain : state;
+	}
+
+	// yields a copy of this element where the given pack has the given element
+	private PartitionedDomain<D> put(
+			Object pack,
+			D state) {
+		if (state.isBottom())
+			return bottom();
+		if (state == states.get(pack))
+			return this;
+		PersistentHashMap<Object, D> result = new PersistentHashMap<>(states);
+		if (state.isTop())
+			result.remove(pack);
+		else
+			result.put(pack, state);
+		return new PartitionedDomain<>(packs, domain, result, false);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			PartitionedDomain<D> other)
+			throws SemanticException {
+		// the packs that are shared by the two elements are not compared
+		for (Object pack : states.differingKeys(other.states))
+			if (!get(pack).lessOrEqual(other.get(pack)))
+				return false;
+		return true;
+	}
+
+	@Override
+	public PartitionedDomain<D> lubAux(
+			PartitionedDomain<D> other)
+			throws SemanticException {
+		return combine(other, false);
+	}
+
+	@Override
+	public PartitionedDomain<D> wideningAux(
+			PartitionedDomain<D> other)
+			throws SemanticException {
+		return combine(other, true);
+	}
+
+	private PartitionedDomain<D> combine(
+			PartitionedDomain<D> other,
+			boolean widening)
+			throws SemanticException {
+		PersistentHashMap<Object, D> result = new PersistentHashMap<>(states);
+		// the packs that are shared by the two elements are left untouched
+		for (Object pack : states.differingKeys(other.states)) {
+			D mine = states.get(pack), theirs = other.states.get(pack);
+			// a pack missing from one of the two elements is top there, and thus in the result
+			D state = mine == null || theirs == null ? null : widening ? mine.widening(theirs) : mine.lub(theirs);
+			if (state == null || state.isTop())
+				result.remove(pack);
+			else
+				result.put(pack, state);
+		}
+		return new PartitionedDomain<>(packs, domain, result, false);
+	}
+
+	// the identifiers in the given expression
+	private static void identifiers(
+			SymbolicExpression e,
+			Collection<Identifier> ids) {
+		if (e instanceof Identifier)
+			ids.add((Identifier) e);
+		else if (e instanceof UnaryExpression)
+			identifiers(((UnaryExpression) e).getExpression(), ids);
+		else if (e instanceof BinaryExpression) {
+			identifiers(((BinaryExpression) e).getLeft(), ids);
+			identifiers(((BinaryExpression) e).getRight(), ids);
+		} else if (e instanceof TernaryExpression) {
+			identifiers(((TernaryExpression) e).getLeft(), ids);
+			identifiers(((TernaryExpression) e).getMiddle(), ids);
+			identifiers(((TernaryExpression) e).getRight(), ids);
+		}
+	}
+
+	// the given expression where the identifiers that are not in the given pack are replaced by unknown values
+	private ValueExpression restrict(
+			ValueExpression e,
+			Object pack,
+			ProgramPoint pp) {
+		if (e instanceof Identifier)
+			return packs.packOf((Identifier) e, pp).equals(pack) ? e
+					: new PushAny(e.getStaticType(), e.getCodeLocation());
+
+		if (e instanceof UnaryExpression) {
+			UnaryExpression ue = (UnaryExpression) e;
+			ValueExpression arg = restrict((ValueExpression) ue.getExpression(), pack, pp);
+			return arg == ue.getExpression() ? e
+					: new UnaryExpression(e.getStaticType(), arg, ue.getOperator(), e.getCodeLocation());
+		}
+
+		if (e instanceof BinaryExpression) {
+			BinaryExpression be = (BinaryExpression) e;
+			ValueExpression left = restrict((ValueExpression) be.getLeft(), pack, pp);
+			ValueExpression right = restrict((ValueExpression) be.getRight(), pack, pp);
+			return left == be.getLeft() && right == be.getRight() ? e
+					: new BinaryExpression(e.getStaticType(), left, right, be.getOperator(), e.getCodeLocation());
+		}
+
+		if (e instanceof TernaryExpression) {
+			TernaryExpression te = (TernaryExpression) e;
+			ValueExpression left = restrict((ValueExpression) te.getLeft(), pack, pp);
+			ValueExpression middle = restrict((ValueExpression) te.getMiddle(), pack, pp);
+			ValueExpression right = restrict((ValueExpression) te.getRight(), pack, pp);
+			return left == te.getLeft() && middle == te.getMiddle() && right == te.getRight() ? e
+					: new TernaryExpression(e.getStaticType(), left, middle, right, te.getOperator(),
+							e.getCodeLocation());
+		}
+
+		return e;
+	}
+
+	// the packs of the identifiers in the given expression
+	private Set<Object> packsOf(
+			ValueExpression e,
+			ProgramPoint pp) {
+		List<Identifier> ids = new ArrayList<>();
+		identifiers(e, ids);
+		Set<Object> result = new LinkedHashSet<>();
+		for (Identifier id : ids)
+			result.add(packs.packOf(id, pp));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		Object pack = packs.packOf(id, pp);
+		return put(pack, get(pack).assign(id, restrict(expression, pack, pp), pp, oracle));
+	}
+
+	@Override
+	public PartitionedDomain<D> smallStepSemantics(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		PartitionedDomain<D> result = this;
+		for (Object pack : packsOf(expression, pp))
+			result = result.put(pack, result.get(pack).smallStepSemantics(restrict(expression, pack, pp), pp, oracle));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> assume(
+			ValueExpression expression,
+			ProgramPoint src,
+			ProgramPoint dest,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		PartitionedDomain<D> result = this;
+		Set<Object> involved = packsOf(expression, src);
+		if (involved.isEmpty())
+			// conditions without variables can still be unsatisfiable
+			return domain.assume(expression, src, dest, oracle).isBottom() ? bottom() : result;
+
+		for (Object pack : involved) {
+			result = result.put(pack, result.get(pack).assume(restrict(expression, pack, src), src, dest, oracle));
+			if (result.isBottom())
+				break;
+		}
+		return result;
+	}
+
+	@Override
+	public Satisfiability satisfies(
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		if (isBottom())
+			return Satisfiability.BOTTOM;
+		Set<Object> involved = packsOf(expression, pp);
+		if (involved.isEmpty())
+			return domain.satisfies(expression, pp, oracle);
+
+		// each pack gives a sound answer, and we keep the most precise one
+		Satisfiability result = Satisfiability.UNKNOWN;
+		for (Object pack : involved)
+			result = result.glb(get(pack).satisfies(restrict(expression, pack, pp), pp, oracle));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> forgetIdentifier(
+			Identifier id)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+		// without a program point we cannot tell the pack of the identifier, but only the elements knowing it
+		PartitionedDomain<D> result = this;
+		for (Entry<Object, D> entry : states.entrySet())
+			if (entry.getValue().knowsIdentifier(id))
+				result = result.put(entry.getKey(), entry.getValue().forgetIdentifier(id));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> forgetIdentifiersIf(
+			Predicate<Identifier> test)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+		PartitionedDomain<D> result = this;
+		for (Entry<Object, D> entry : states.entrySet())
+			result = result.put(entry.getKey(), entry.getValue().forgetIdentifiersIf(test));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> pushScope(
+			ScopeToken token)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+		// identifiers keep their pack when they change scope
+		PartitionedDomain<D> result = this;
+		for (Entry<Object, D> entry : states.entrySet())
+			result = result.put(entry.getKey(), entry.getValue().pushScope(token));
+		return result;
+	}
+
+	@Override
+	public PartitionedDomain<D> popScope(
+			ScopeToken token)
+			throws SemanticException {
+		if (isBottom() || isTop())
+			return this;
+		PartitionedDomain<D> result = this;
+		for (Entry<Object, D> entry : states.entrySet())
+			result = result.put(entry.getKey(), entry.getValue().popScope(token));
+		return result;
+	}
+
+	@Override
+	public boolean knowsIdentifier(
+			Identifier id) {
+		for (D state : states.values())
+			if (state.knowsIdentifier(id))
+				return true;
+		return false;
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<StructuredRepresentation, StructuredRepresentation> mapping = new HashMap<>();
+		for (Entry<Object, D> entry : states.entrySet())
+			mapping.put(new StringRepresentation(packs.getVariables(entry.getKey())),
+					entry.getValue().representation());
+		return new MapRepresentation(mapping);
+	}
+
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same content of representation(), streaming the elements of the packs when possible
+		if (isTop())
+			generator.writeString(Lattice.TOP_STRING);
+		else if (isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else {
+			generator.writeStartObject();
+			for (Entry<Object, D> entry : states.entrySet()) {
+				generator.writeFieldName(String.valueOf(packs.getVariables(entry.getKey())));
+				if (entry.getValue() instanceof JsonStreamable)
+					((JsonStreamable) entry.getValue()).writeJson(generator);
+				else
+					generator.writeString(entry.getValue().representation().toString());
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(states, bottom);
+	}
+
+	@Override
+	public boolean equals(
+			Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PartitionedDomain<?> other = (PartitionedDomain<?>) obj;
+		return bottom == other.bottom && Objects.equals(states, other.states);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
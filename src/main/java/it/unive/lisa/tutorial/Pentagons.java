@@ -1,5 +1,6 @@
 package it.unive.lisa.tutorial;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.unive.lisa.analysis.*;
 import it.unive.lisa.analysis.lattices.Satisfiability;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
@@ -16,12 +17,21 @@ import it.unive.lisa.util.representation.StringRepresentation;
 import it.unive.lisa.util.representation.StructuredRepresentation;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 /**
  * Implementation of the pentagons analysis of https://doi.org/10.1016/j.scico.2009.04.004
+ * <br>
+ * <br>
+ * The reduction between the two components performed by the lub (the sets s'' and s''' of the paper, that recover
+ * the bounds of one operand that are implied by the intervals of the other one) is computed lazily: the lub only
+ * records the variables whose bounds might be affected, together with their bounds and the intervals of the
+ * operands, and the bounds of each of these variables are computed (once) the first time they are needed by
+ * lessOrEqual, satisfies, equals, the representation, or by an assign or assume reading them.
  */
 public class Pentagons
 		// instances of this class are lattice elements such that:
@@ -29,21 +39,107 @@ public class Pentagons
 		// - they provide logic for the evaluation of expressions
 		implements ValueDomain<Pentagons>,
 		// we exploit BaseLattice to avoid writing common-sense logic
-		BaseLattice<Pentagons> {
+		BaseLattice<Pentagons>,
+		// this allows to dump pentagons without building their representation
+		JsonStreamable {
 
 	// client domains are just fields of this one
+	// the bounds of the variables in pending are not reduced, and are the ones given by reduction instead
 	private final StrictUpperBounds upperbounds;
 	private final ValueEnvironment<Interval> intervals;
 
+	// the lub whose reduction has not been computed yet, if any
+	private final Reduction reduction;
+
+	// the variables whose bounds are given by reduction
+	private final StrictUpperBounds.IdSet pending;
+
+	// the variables that have been reassigned after the lub, and thus cannot be bounds coming from reduction
+	private final StrictUpperBounds.IdSet excluded;
+
 	public Pentagons() {
-		this(new StrictUpperBounds().top(), new ValueEnvironment<>(new Interval()).top());
+		// both environments are backed by persistent maps, so that updating them does not copy all variables
+		this(new StrictUpperBounds(), new PersistentValueEnvironment<>(new Interval()).top());
 	}
 
 	public Pentagons(
 			StrictUpperBounds upperbounds,
 			ValueEnvironment<Interval> intervals) {
+		// the empty set of identifiers, numbered as the bounds
+		this(upperbounds, intervals, null, upperbounds.lattice.top(), upperbounds.lattice.top());
+	}
+
+	private Pentagons(
+			StrictUpperBounds upperbounds,
+			ValueEnvironment<Interval> intervals,
+			Reduction reduction,
+			StrictUpperBounds.IdSet pending,
+			StrictUpperBounds.IdSet excluded) {
 		this.upperbounds = upperbounds;
 		this.intervals = intervals;
+		// once all variables have been reduced, we drop the reduction
+		this.reduction = pending.isEmpty() ? null : reduction;
+		this.pending = pending;
+		this.excluded = pending.isEmpty() ? pending : excluded;
+	}
+
+	// yields an element with the given components that inherits the reduction of this one
+	private Pentagons with(
+			StrictUpperBounds upperbounds,
+			ValueEnvironment<Interval> intervals,
+			StrictUpperBounds.IdSet pending,
+			StrictUpperBounds.IdSet excluded) {
+		return new Pentagons(upperbounds, intervals, reduction, pending, excluded);
+	}
+
+	// yields the (reduced) bounds of x
+	private StrictUpperBounds.IdSet bounds(
+			Identifier x) {
+		if (reduction == null || !pending.contains(x))
+			return upperbounds.getState(x);
+		StrictUpperBounds.IdSet bounds = reduction.bounds(x);
+		for (Identifier y : excluded)
+			bounds = bounds.remove(y);
+		return bounds;
+	}
+
+	// yields this element where the bounds of the given variables are reduced
+	private Pentagons resolve(
+			Collection<Identifier> ids) {
+		if (reduction == null)
+			return this;
+		Map<Identifier, StrictUpperBounds.IdSet> closures = new HashMap<>();
+		StrictUpperBounds.IdSet left = pending;
+		for (Identifier x : ids)
+			if (pending.contains(x)) {
+				closures.put(x, bounds(x));
+				left = left.remove(x);
+			}
+		return closures.isEmpty() ? this : with(update(upperbounds, closures), intervals, left, excluded);
+	}
+
+	// yields this element where the bounds of all variables are reduced
+	private Pentagons resolve() {
+		if (reduction == null)
+			return this;
+		Map<Identifier, StrictUpperBounds.IdSet> closures = new HashMap<>();
+		for (Identifier x : pending)
+			closures.put(x, bounds(x));
+		return new Pentagons(update(upperbounds, closures), intervals);
+	}
+
+	// the identifiers read by the components when processing the given expression
+	private static List<Identifier> operands(
+			ValueExpression expression) {
+		if (!(expression instanceof BinaryExpression))
+			return Collections.emptyList();
+		BinaryExpression be = (BinaryExpression) expression;
+		List<Identifier> ids = new ArrayList<>(2);
+		if (be.getLeft() instanceof Identifier)
+			ids.add((Identifier) be.getLeft());
+		if (be.getRight() instanceof Identifier)
+			ids.add((Identifier) be.getRight());
+		return ids;
 	}
 
 	@Override
@@ -73,20 +169,29 @@ public class Pentagons
 		if (!this.intervals.lessOrEqual(other.intervals))
 			return false;
 
-		for (Entry<Identifier, StrictUpperBounds.IdSet> entry : other.upperbounds)
-			for (Identifier bound : entry.getValue()) {
-				if (this.upperbounds.getState(entry.getKey()).contains(bound))
+		for (Entry<Identifier, StrictUpperBounds.IdSet> entry : other.upperbounds) {
+			Identifier x = entry.getKey();
+			StrictUpperBounds.IdSet reduced = null;
+			for (Identifier bound : other.bounds(x)) {
+				// the unreduced bounds are contained in the reduced ones, so we reduce only if needed
+				if (this.upperbounds.getState(x).contains(bound))
 					continue;
 
-				Interval state = this.intervals.getState(entry.getKey());
+				Interval state = this.intervals.getState(x);
 				Interval boundState = this.intervals.getState(bound);
 				if (state.isBottom()
 						|| boundState.isTop()
 						|| state.interval.getHigh().compareTo(boundState.interval.getLow()) < 0)
 					continue;
 
+				if (reduced == null)
+					reduced = this.bounds(x);
+				if (reduced.contains(bound))
+					continue;
+
 				return false;
 			}
+		}
 
 		return true;
 	}
@@ -97,52 +202,165 @@ public class Pentagons
 			throws SemanticException {
 		ValueEnvironment<Interval> newIntervals = this.intervals.lub(other.intervals);
 
+		if (upperbounds.function == null || other.upperbounds.function == null)
+			// one of the operands is top or bottom, so s' is not a pointwise intersection
+			return lubAll(resolve(), other.resolve(), newIntervals);
+
 		// lub performs the intersection between the two
-		// this effectively builds s'
+		// this effectively builds s' (for the variables whose bounds are reduced in both operands)
 		StrictUpperBounds newBounds = upperbounds.lub(other.upperbounds);
+		if (newBounds.function == null)
+			return lubAll(resolve(), other.resolve(), newIntervals);
+
+		// s'(x) already contains all the bounds of x if x has the same bounds in both operands, or if it has
+		// bounds in only one of them (the functional lattice considers missing variables as bottom): s'' and
+		// s''' can thus only add bounds to the variables whose bounds differ, and to the ones whose bounds are
+		// still to be reduced in one of the operands, and we leave them to the reduction
+		StrictUpperBounds.IdSet newPending = pending.glb(other.pending);
+		for (Identifier x : upperbounds.differingKeys(other.upperbounds))
+			if (upperbounds.function.containsKey(x) && other.upperbounds.function.containsKey(x))
+				newPending = newPending.add(x);
+
+		return new Pentagons(newBounds, newIntervals, new Reduction(this, other, newPending), newPending,
+				newBounds.lattice.top());
+	}
 
-		// the following builds s''
-		for (Identifier x : upperbounds.getKeys()) {
-			StrictUpperBounds.IdSet closure = newBounds.getState(x);
+	// the lub of the given (reduced) elements, when one of them has no bounds: we build s'' and s''' by
+	// considering all variables
+	private static Pentagons lubAll(
+			Pentagons left,
+			Pentagons right,
+			ValueEnvironment<Interval> newIntervals)
+			throws SemanticException {
+		StrictUpperBounds newBounds = left.upperbounds.lub(right.upperbounds);
+		Map<Identifier, StrictUpperBounds.IdSet> closures = new HashMap<>();
+		for (Identifier x : left.upperbounds.getKeys())
+			closures.put(x, close(closures.getOrDefault(x, newBounds.getState(x)), x,
+					left.upperbounds.getState(x), right.intervals));
+		for (Identifier x : right.upperbounds.getKeys())
+			closures.put(x, close(closures.getOrDefault(x, newBounds.getState(x)), x,
+					right.upperbounds.getState(x), left.intervals));
+		return new Pentagons(update(newBounds, closures), newIntervals);
+	}
 
-			Interval b2_x = other.intervals.getState(x);
-			if (!b2_x.isBottom()) {
-				for (Identifier y : upperbounds.getState(x)) {
-					Interval b2_y = other.intervals.getState(y);
-					if (!b2_y.isBottom() && b2_x.interval.getHigh().compareTo(b2_y.interval.getLow()) < 0) {
-						closure = closure.add(y);
-					}
+	/**
+	 * The reduction of a lub, computed separately for each variable the
+	 * first time its bounds are needed. The operands of the lub are not kept:
+	 * only the bounds they give to the pending variables and their intervals
+	 * are, so that the elements of a chain of lubs do not keep the previous
+	 * ones alive.
+	 */
+	private static class Reduction {
+
+		// the bounds of the pending variables that have bounds in both operands, removed once reduced
+		private final Map<Identifier, StrictUpperBounds.IdSet> left = new ConcurrentHashMap<>();
+
+		private final Map<Identifier, StrictUpperBounds.IdSet> right = new ConcurrentHashMap<>();
+
+		private final ValueEnvironment<Interval> leftIntervals;
+
+		private final ValueEnvironment<Interval> rightIntervals;
+
+		// the bounds computed so far, shared by all the elements that inherit this reduction
+		private final Map<Identifier, StrictUpperBounds.IdSet> cache = new ConcurrentHashMap<>();
+
+		private Reduction(
+				Pentagons left,
+				Pentagons right,
+				StrictUpperBounds.IdSet pending) {
+			this.leftIntervals = left.intervals;
+			this.rightIntervals = right.intervals;
+			for (Identifier x : pending)
+				// the functional lattice considers missing variables as bottom, so if x has bounds in only one
+				// of the operands there is nothing to reduce
+				if (!left.upperbounds.function.containsKey(x))
+					cache.put(x, right.bounds(x));
+				else if (!right.upperbounds.function.containsKey(x))
+					cache.put(x, left.bounds(x));
+				else {
+					this.left.put(x, left.bounds(x));
+					this.right.put(x, right.bounds(x));
 				}
-			}
+		}
 
-			newBounds = newBounds.putState(x, closure);
+		private StrictUpperBounds.IdSet bounds(
+				Identifier x) {
+			return cache.computeIfAbsent(x, this::reduce);
 		}
 
-		// the following builds s'''
-		for (Identifier x : other.upperbounds.getKeys()) {
-			StrictUpperBounds.IdSet closure = newBounds.getState(x);
+		private StrictUpperBounds.IdSet reduce(
+				Identifier x) {
+			StrictUpperBounds.IdSet mine = left.remove(x);
+			StrictUpperBounds.IdSet theirs = right.remove(x);
+			// the following builds s'
+			StrictUpperBounds.IdSet closure = intersection(mine, theirs);
+			// the following builds s''
+			closure = close(closure, x, mine, rightIntervals);
+			// the following builds s'''
+			return close(closure, x, theirs, leftIntervals);
+		}
 
-			Interval b1_x = intervals.getState(x);
-			if (!b1_x.isBottom())
-				for (Identifier y : other.upperbounds.getState(x)) {
-					Interval b1_y = intervals.getState(y);
-					if (!b1_y.isBottom() && b1_x.interval.getHigh().compareTo(b1_y.interval.getLow()) < 0)
-						closure = closure.add(y);
-				}
+		// the lub of the given sets, that is their intersection
+		private static StrictUpperBounds.IdSet intersection(
+				StrictUpperBounds.IdSet mine,
+				StrictUpperBounds.IdSet theirs) {
+			if (mine.isBottom())
+				return theirs;
+			if (theirs.isBottom())
+				return mine;
+			StrictUpperBounds.IdSet result = mine;
+			for (Identifier y : mine)
+				if (!theirs.contains(y))
+					result = result.remove(y);
+			return result;
+		}
+	}
 
-			newBounds = newBounds.putState(x, closure);
+	// adds to the given closure the bounds y of x such that x < y holds according to the given intervals
+	private static StrictUpperBounds.IdSet close(
+			StrictUpperBounds.IdSet closure,
+			Identifier x,
+			StrictUpperBounds.IdSet bounds,
+			ValueEnvironment<Interval> intervals) {
+		Interval b_x = intervals.getState(x);
+		if (b_x.isBottom())
+			return closure;
+
+		for (Identifier y : bounds) {
+			if (closure.contains(y))
+				continue;
+			Interval b_y = intervals.getState(y);
+			if (!b_y.isBottom() && b_x.interval.getHigh().compareTo(b_y.interval.getLow()) < 0)
+				closure = closure.add(y);
 		}
 
-		return new Pentagons(newBounds, newIntervals);
+		return closure;
+	}
+
+	// stores the closures that differ from the current bounds, with a single copy of the function
+	private static StrictUpperBounds update(
+			StrictUpperBounds bounds,
+			Map<Identifier, StrictUpperBounds.IdSet> closures) {
+		Map<Identifier, StrictUpperBounds.IdSet> function = null;
+		for (Entry<Identifier, StrictUpperBounds.IdSet> entry : closures.entrySet())
+			if (bounds.function == null || !entry.getValue().equals(bounds.function.get(entry.getKey()))) {
+				if (function == null)
+					function = bounds.mkNewFunction(bounds.function, false);
+				function.put(entry.getKey(), entry.getValue());
+			}
+
+		return function == null ? bounds : bounds.mk(bounds.lattice, function);
 	}
 
 	@Override
 	public Pentagons wideningAux(
 			Pentagons other)
 			throws SemanticException {
+		Pentagons self = resolve();
+		other = other.resolve();
 		return new Pentagons(
-				upperbounds.wideningAux(other.upperbounds),
-				intervals.widening(other.intervals));
+				self.upperbounds.wideningAux(other.upperbounds),
+				self.intervals.widening(other.intervals));
 	}
 
 	@Override
@@ -152,6 +370,19 @@ public class Pentagons
 			ProgramPoint pp,
 			SemanticOracle oracle)
 			throws SemanticException {
+		// only the bounds of the operands are read: the ones of the other variables stay unreduced, but they
+		// can no longer have id as bound
+		Pentagons self = resolve(operands(expression));
+		Pentagons result = self.assignReduced(id, expression, pp, oracle);
+		return self.with(result.upperbounds, result.intervals, self.pending.remove(id), self.excluded.add(id));
+	}
+
+	private Pentagons assignReduced(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
 		StrictUpperBounds newBounds = upperbounds.assign(id, expression, pp, oracle);
 		ValueEnvironment<Interval> newIntervals = intervals.assign(id, expression, pp, oracle);
 
@@ -168,7 +399,7 @@ public class Pentagons
 						Identifier y = (Identifier) be.getRight();
 						if (newBounds.getState(y).contains(x)) {
 							newIntervals = newIntervals.putState(id, newIntervals.getState(id)
-									.glb(new Interval(MathNumber.ONE, MathNumber.PLUS_INFINITY)));
+									.glb(newIntervals.lattice.fromBounds(MathNumber.ONE, MathNumber.PLUS_INFINITY)));
 						}
 						Interval intv = intervals.getState(y);
 						if (!intv.isBottom() && intv.interval.getLow().compareTo(MathNumber.ZERO) > 0)
@@ -189,9 +420,11 @@ public class Pentagons
 			ValueExpression expression,
 			ProgramPoint pp,
 			SemanticOracle oracle) throws SemanticException {
-		return new Pentagons(
+		return with(
 				upperbounds.smallStepSemantics(expression, pp, oracle),
-				intervals.smallStepSemantics(expression, pp, oracle));
+				intervals.smallStepSemantics(expression, pp, oracle),
+				pending,
+				excluded);
 	}
 
 	@Override
@@ -201,27 +434,39 @@ public class Pentagons
 			ProgramPoint dest,
 			SemanticOracle oracle)
 			throws SemanticException {
-		return new Pentagons(
-				upperbounds.assume(expression, src, dest, oracle),
-				intervals.assume(expression, src, dest, oracle));
+		// bounds inferred by the lub still hold after an assume, so only the operands are reduced
+		Pentagons self = resolve(operands(expression));
+		return self.with(
+				self.upperbounds.assume(expression, src, dest, oracle),
+				self.intervals.assume(expression, src, dest, oracle),
+				self.pending,
+				self.excluded);
 	}
-	
+
 	@Override
 	public Pentagons forgetIdentifier(
 			Identifier id)
 			throws SemanticException {
-		return new Pentagons(
+		return with(
 				upperbounds.forgetIdentifier(id),
-				intervals.forgetIdentifier(id));
+				intervals.forgetIdentifier(id),
+				pending.remove(id),
+				excluded);
 	}
 
 	@Override
 	public Pentagons forgetIdentifiersIf(
 			Predicate<Identifier> test)
 			throws SemanticException {
-		return new Pentagons(
+		StrictUpperBounds.IdSet left = pending;
+		for (Identifier x : pending)
+			if (test.test(x))
+				left = left.remove(x);
+		return with(
 				upperbounds.forgetIdentifiersIf(test),
-				intervals.forgetIdentifiersIf(test));
+				intervals.forgetIdentifiersIf(test),
+				left,
+				excluded);
 	}
 
 	@Override
@@ -230,21 +475,25 @@ public class Pentagons
 			ProgramPoint pp,
 			SemanticOracle oracle)
 			throws SemanticException {
-		return intervals.satisfies(expression, pp, oracle).glb(upperbounds.satisfies(expression, pp, oracle));
+		Pentagons self = resolve(operands(expression));
+		return intervals.satisfies(expression, pp, oracle).glb(self.upperbounds.satisfies(expression, pp, oracle));
 	}
 
 	@Override
 	public Pentagons pushScope(
 			ScopeToken token)
 			throws SemanticException {
-		return new Pentagons(upperbounds.pushScope(token), intervals.pushScope(token));
+		// identifiers are renamed, so we cannot keep the reduction
+		Pentagons self = resolve();
+		return new Pentagons(self.upperbounds.pushScope(token), self.intervals.pushScope(token));
 	}
 
 	@Override
 	public Pentagons popScope(
 			ScopeToken token)
 			throws SemanticException {
-		return new Pentagons(upperbounds.popScope(token), intervals.popScope(token));
+		Pentagons self = resolve();
+		return new Pentagons(self.upperbounds.popScope(token), self.intervals.popScope(token));
 	}
 
 	@Override
@@ -257,13 +506,47 @@ public class Pentagons
 		for (Identifier id : CollectionUtils.union(intervals.getKeys(), upperbounds.getKeys()))
 			mapping.put(new StringRepresentation(id),
 					new StringRepresentation(intervals.getState(id).toString() + ", " +
-							upperbounds.getState(id).representation()));
+							bounds(id).representation()));
 		return new MapRepresentation(mapping);
 	}
 
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same content of representation(), but the interval and the bounds
+		// of each variable are written as separate fields
+		if (isTop())
+			generator.writeString(Lattice.TOP_STRING);
+		else if (isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else {
+			generator.writeStartObject();
+			for (Identifier id : intervals.getKeys())
+				writeVariable(generator, id);
+			for (Identifier id : upperbounds.getKeys())
+				if (!intervals.getKeys().contains(id))
+					writeVariable(generator, id);
+			generator.writeEndObject();
+		}
+	}
+
+	private void writeVariable(
+			JsonGenerator generator,
+			Identifier id)
+			throws IOException {
+		generator.writeObjectFieldStart(id.toString());
+		generator.writeFieldName("interval");
+		intervals.getState(id).writeJson(generator);
+		generator.writeFieldName("bounds");
+		bounds(id).writeJson(generator);
+		generator.writeEndObject();
+	}
+
 	@Override
 	public int hashCode() {
-		return Objects.hash(intervals, upperbounds);
+		// equal elements have equal intervals, and hashing the bounds would reduce them
+		return intervals.hashCode();
 	}
 
 	@Override
@@ -276,7 +559,9 @@ public class Pentagons
 		if (getClass() != obj.getClass())
 			return false;
 		Pentagons other = (Pentagons) obj;
-		return Objects.equals(intervals, other.intervals) && Objects.equals(upperbounds, other.upperbounds);
+		// bounds are compared only if needed, since this might reduce them
+		return Objects.equals(intervals, other.intervals)
+				&& Objects.equals(resolve().upperbounds, other.resolve().upperbounds);
 	}
 
 	@Override
@@ -0,0 +1,597 @@
+package it.unive.lisa.tutorial;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map backed by a hash array mapped trie (https://doi.org/10.5075/epfl-lab-report-2001-001),
+ * whose nodes are never modified once built. Each update copies only the
+ * path from the root to the updated entry, while the rest of the trie is
+ * shared with the previous version. This means that copying a map through
+ * {@link #PersistentHashMap(Map)} takes constant time, and the copy can then
+ * be modified in logarithmic time without affecting the original. This fits
+ * the way functional lattices update their functions: they copy the whole
+ * map (through {@code mkNewFunction}) to change a few entries.
+ * <br>
+ * <br>
+ * Keys cannot be {@code null}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+	// marker for missing keys, as values might be null
+	private static final Object NOT_FOUND = new Object();
+
+	// number of hash bits consumed at each level of the trie
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	private Node root;
+
+	private int size;
+
+	/**
+	 * Builds an empty map.
+	 */
+	public PersistentHashMap() {
+		this.root = BitmapNode.EMPTY;
+		this.size = 0;
+	}
+
+	/**
+	 * Builds a map containing the same entries of the given one. If the
+	 * given map is a {@link PersistentHashMap}, this takes constant time.
+	 *
+	 * @param other the map to copy
+	 */
+	public PersistentHashMap(
+			Map<? extends K, ? extends V> other) {
+		if (other instanceof PersistentHashMap) {
+			PersistentHashMap<?, ?> map = (PersistentHashMap<?, ?>) other;
+			this.root = map.root;
+			this.size = map.size;
+		} else {
+			this.root = BitmapNode.EMPTY;
+			this.size = 0;
+			putAll(other);
+		}
+	}
+
+	private static int hash(
+			Object key) {
+		// we spread the high bits on the low ones, that are consumed first
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(
+			Object key) {
+		return root.get(Objects.requireNonNull(key), hash(key), 0) != NOT_FOUND;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(
+			Object key) {
+		Object value = root.get(Objects.requireNonNull(key), hash(key), 0);
+		return value == NOT_FOUND ? null : (V) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(
+			K key,
+			V value) {
+		Change change = new Change();
+		root = root.put(Objects.requireNonNull(key), hash(key), value, 0, change);
+		if (change.old == NOT_FOUND) {
+			size++;
+			return null;
+		}
+		return (V) change.old;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(
+			Object key) {
+		Change change = new Change();
+		Node result = root.remove(Objects.requireNonNull(key), hash(key), 0, change);
+		root = result == null ? BitmapNode.EMPTY : result;
+		if (change.old == NOT_FOUND)
+			return null;
+		size--;
+		return (V) change.old;
+	}
+
+	@Override
+	public void clear() {
+		root = BitmapNode.EMPTY;
+		size = 0;
+	}
+
+	@Override
+	public boolean equals(
+			Object o) {
+		if (o instanceof PersistentHashMap && ((PersistentHashMap<?, ?>) o).root == root)
+			// same version of the trie
+			return true;
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return new EntryIterator(root);
+			}
+		};
+	}
+
+	/**
+	 * Yields the keys that are mapped to different values (compared by
+	 * reference) in this map and in the given one, including the keys that
+	 * are contained in only one of them. Parts of the two tries that are
+	 * shared (e.g., because one map is a modified copy of the other, or both
+	 * are modified copies of the same map) are skipped entirely, so the cost
+	 * is proportional to the number of updates that separate the two maps
+	 * rather than to their size.
+	 *
+	 * @param other the other map
+	 *
+	 * @return the keys whose values differ
+	 */
+	public List<K> differingKeys(
+			PersistentHashMap<K, V> other) {
+		List<K> keys = new ArrayList<>();
+		diff(root, other.root, keys);
+		return keys;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> void diff(
+			Node first,
+			Node second,
+			List<K> keys) {
+		if (first == second)
+			return;
+		if (!(first instanceof BitmapNode) || !(second instanceof BitmapNode)) {
+			diffSlow(first, second, keys);
+			return;
+		}
+
+		BitmapNode a = (BitmapNode) first, b = (BitmapNode) second;
+		int bits = a.bitmap | b.bitmap;
+		while (bits != 0) {
+			int bit = Integer.lowestOneBit(bits);
+			bits &= ~bit;
+			if ((a.bitmap & bit) == 0) {
+				// only in the second map
+				collect(b.array, 2 * b.index(bit), keys);
+				continue;
+			}
+			if ((b.bitmap & bit) == 0) {
+				// only in the first map
+				collect(a.array, 2 * a.index(bit), keys);
+				continue;
+			}
+
+			int i = 2 * a.index(bit), j = 2 * b.index(bit);
+			Object ka = a.array[i], kb = b.array[j];
+			Object va = a.array[i + 1], vb = b.array[j + 1];
+			if (ka == null && kb == null)
+				diff((Node) va, (Node) vb, keys);
+			else if (ka != null && kb != null)
+				if (ka.equals(kb)) {
+					if (va != vb)
+						keys.add((K) ka);
+				} else {
+					keys.add((K) ka);
+					keys.add((K) kb);
+				}
+			else
+				// an entry on one side and a sub-trie on the other
+				diffSlow(ka == null ? (Node) va : new CollisionNode(0, new Object[] { ka, va }),
+						kb == null ? (Node) vb : new CollisionNode(0, new Object[] { kb, vb }), keys);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> void diffSlow(
+			Node first,
+			Node second,
+			List<K> keys) {
+		// we compare the entries of the two sub-tries one by one
+		Map<Object, Object> a = new HashMap<>(), b = new HashMap<>();
+		entries(first, a);
+		entries(second, b);
+		for (Entry<Object, Object> entry : a.entrySet())
+			if (!b.containsKey(entry.getKey()) || b.get(entry.getKey()) != entry.getValue())
+				keys.add((K) entry.getKey());
+		for (Object key : b.keySet())
+			if (!a.containsKey(key))
+				keys.add((K) key);
+	}
+
+	private static void entries(
+			Node node,
+			Map<Object, Object> entries) {
+		Object[] array = node instanceof BitmapNode ? ((BitmapNode) node).array : ((CollisionNode) node).array;
+		for (int i = 0; i < array.length; i += 2)
+			if (array[i] == null)
+				entries((Node) array[i + 1], entries);
+			else
+				entries.put(array[i], array[i + 1]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> void collect(
+			Object[] array,
+			int i,
+			List<K> keys) {
+		if (array[i] != null)
+			keys.add((K) array[i]);
+		else {
+			Map<Object, Object> entries = new HashMap<>();
+			entries((Node) array[i + 1], entries);
+			for (Object key : entries.keySet())
+				keys.add((K) key);
+		}
+	}
+
+	// the result of an update: the previous value of the updated key, or
+	// NOT_FOUND if there was none
+	private static final class Change {
+		private Object old = NOT_FOUND;
+	}
+
+	private interface Node {
+
+		Object get(
+				Object key,
+				int hash,
+				int shift);
+
+		Node put(
+				Object key,
+				int hash,
+				Object value,
+				int shift,
+				Change change);
+
+		// yields null if the node becomes empty
+		Node remove(
+				Object key,
+				int hash,
+				int shift,
+				Change change);
+	}
+
+	/**
+	 * A node with up to 32 children, indexed by 5 bits of the hash of the
+	 * keys. Only children that exist are stored, in the order given by the
+	 * bitmap: each child takes two slots of the array, that are either a key
+	 * and its value or {@code null} and a sub-node.
+	 */
+	private static final class BitmapNode implements Node {
+
+		private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		private final int bitmap;
+
+		private final Object[] array;
+
+		private BitmapNode(
+				int bitmap,
+				Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		private int index(
+				int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		public Object get(
+				Object key,
+				int hash,
+				int shift) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return NOT_FOUND;
+			int i = 2 * index(bit);
+			Object k = array[i];
+			if (k == null)
+				return ((Node) array[i + 1]).get(key, hash, shift + BITS);
+			return key.equals(k) ? array[i + 1] : NOT_FOUND;
+		}
+
+		@Override
+		public Node put(
+				Object key,
+				int hash,
+				Object value,
+				int shift,
+				Change change) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int i = 2 * index(bit);
+			if ((bitmap & bit) == 0) {
+				// new child
+				Object[] array = new Object[this.array.length + 2];
+				System.arraycopy(this.array, 0, array, 0, i);
+				array[i] = key;
+				array[i + 1] = value;
+				System.arraycopy(this.array, i, array, i + 2, this.array.length - i);
+				return new BitmapNode(bitmap | bit, array);
+			}
+
+			Object k = array[i];
+			Object v = array[i + 1];
+			if (k == null) {
+				Node child = ((Node) v).put(key, hash, value, shift + BITS, change);
+				return child == v ? this : with(i + 1, child);
+			}
+
+			if (key.equals(k)) {
+				change.old = v;
+				return v == value ? this : with(i + 1, value);
+			}
+
+			// two different keys with the same bits: we push them one level
+			// down
+			Node child = pair(k, hash(k), v, key, hash, value, shift + BITS);
+			Object[] array = this.array.clone();
+			array[i] = null;
+			array[i + 1] = child;
+			return new BitmapNode(bitmap, array);
+		}
+
+		private BitmapNode with(
+				int i,
+				Object value) {
+			Object[] array = this.array.clone();
+			array[i] = value;
+			return new BitmapNode(bitmap, array);
+		}
+
+		private static Node pair(
+				Object k1,
+				int h1,
+				Object v1,
+				Object k2,
+				int h2,
+				Object v2,
+				int shift) {
+			if (h1 == h2)
+				return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+			Change ignored = new Change();
+			return EMPTY.put(k1, h1, v1, shift, ignored).put(k2, h2, v2, shift, ignored);
+		}
+
+		@Override
+		public Node remove(
+				Object key,
+				int hash,
+				int shift,
+				Change change) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return this;
+			int i = 2 * index(bit);
+			Object k = array[i];
+			Object v = array[i + 1];
+			if (k == null) {
+				Node child = ((Node) v).remove(key, hash, shift + BITS, change);
+				if (child == v)
+					return this;
+				if (child != null)
+					return with(i + 1, child);
+			} else if (key.equals(k))
+				change.old = v;
+			else
+				return this;
+
+			// the child has to be removed
+			if (array.length == 2)
+				return null;
+			Object[] array = new Object[this.array.length - 2];
+			System.arraycopy(this.array, 0, array, 0, i);
+			System.arraycopy(this.array, i + 2, array, i, this.array.length - i - 2);
+			return new BitmapNode(bitmap & ~bit, array);
+		}
+	}
+
+	/**
+	 * A node holding keys whose hashes are all equal, stored as consecutive
+	 * pairs of keys and values.
+	 */
+	private static final class CollisionNode implements Node {
+
+		private final int hash;
+
+		private final Object[] array;
+
+		private CollisionNode(
+				int hash,
+				Object[] array) {
+			this.hash = hash;
+			this.array = array;
+		}
+
+		private int find(
+				Object key) {
+			for (int i = 0; i < array.length; i += 2)
+				if (key.equals(array[i]))
+					return i;
+			return -1;
+		}
+
+		@Override
+		public Object get(
+				Object key,
+				int hash,
+				int shift) {
+			if (hash != this.hash)
+				return NOT_FOUND;
+			int i = find(key);
+			return i < 0 ? NOT_FOUND : array[i + 1];
+		}
+
+		@Override
+		public Node put(
+				Object key,
+				int hash,
+				Object value,
+				int shift,
+				Change change) {
+			if (hash != this.hash) {
+				// we nest this node into a bitmap one, where the new key can
+				// be placed next to it
+				int bit = 1 << ((this.hash >>> shift) & MASK);
+				return new BitmapNode(bit, new Object[] { null, this }).put(key, hash, value, shift, change);
+			}
+
+			int i = find(key);
+			if (i >= 0) {
+				change.old = array[i + 1];
+				if (array[i + 1] == value)
+					return this;
+				Object[] array = this.array.clone();
+				array[i + 1] = value;
+				return new CollisionNode(hash, array);
+			}
+
+			Object[] array = Arrays.copyOf(this.array, this.array.length + 2);
+			array[this.array.length] = key;
+			array[this.array.length + 1] = value;
+			return new CollisionNode(hash, array);
+		}
+
+		@Override
+		public Node remove(
+				Object key,
+				int hash,
+				int shift,
+				Change change) {
+			if (hash != this.hash)
+				return this;
+			int i = find(key);
+			if (i < 0)
+				return this;
+			change.old = array[i + 1];
+			if (array.length == 2)
+				return null;
+			Object[] array = new Object[this.array.length - 2];
+			System.arraycopy(this.array, 0, array, 0, i);
+			System.arraycopy(this.array, i + 2, array, i, this.array.length - i - 2);
+			return new CollisionNode(hash, array);
+		}
+	}
+
+	/**
+	 * A depth-first iterator over the entries of a trie. Since tries are
+	 * never modified, the iterator is not affected by updates of the map,
+	 * including the ones performed through {@link #remove()}.
+	 */
+	private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+		// the nodes being visited, with the position of the next slot to
+		// visit in each of them
+		private final Deque<Object[]> nodes = new ArrayDeque<>();
+
+		private final Deque<Integer> positions = new ArrayDeque<>();
+
+		private Entry<K, V> next;
+
+		private K last;
+
+		private EntryIterator(
+				Node root) {
+			push(root);
+			advance();
+		}
+
+		private void push(
+				Node node) {
+			nodes.push(node instanceof BitmapNode ? ((BitmapNode) node).array : ((CollisionNode) node).array);
+			positions.push(0);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (!nodes.isEmpty()) {
+				Object[] array = nodes.peek();
+				int i = positions.pop();
+				if (i >= array.length) {
+					nodes.pop();
+					continue;
+				}
+				positions.push(i + 2);
+				if (array[i] == null)
+					push((Node) array[i + 1]);
+				else {
+					next = new SimpleImmutableEntry<>((K) array[i], (V) array[i + 1]);
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			Entry<K, V> result = next;
+			last = result.getKey();
+			advance();
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null)
+				throw new IllegalStateException();
+			PersistentHashMap.this.remove(last);
+			last = null;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.symbolic.value.Identifier;
+
+import java.util.Map;
+
+/**
+ * A {@link ValueEnvironment} whose function is a {@link PersistentHashMap}:
+ * since the functional lattice copies the whole function before each update
+ * (e.g., in {@code putState} and {@code assign}), this turns such updates
+ * from linear to logarithmic in the number of variables.
+ *
+ * @param <T> the type of the values in the environment
+ */
+public class PersistentValueEnvironment<T extends NonRelationalValueDomain<T>> extends ValueEnvironment<T> {
+
+	public PersistentValueEnvironment(
+			T domain) {
+		super(domain);
+	}
+
+	public PersistentValueEnvironment(
+			T domain,
+			Map<Identifier, T> function) {
+		super(domain, function == null || function instanceof PersistentHashMap
+				? function
+				: new PersistentHashMap<>(function));
+	}
+
+	@Override
+	public PersistentValueEnvironment<T> mk(
+			T lattice,
+			Map<Identifier, T> function) {
+		return new PersistentValueEnvironment<>(lattice, function);
+	}
+
+	@Override
+	public Map<Identifier, T> mkNewFunction(
+			Map<Identifier, T> other,
+			boolean preserveNull) {
+		if (other == null)
+			return preserveNull ? null : new PersistentHashMap<>();
+		// this is a constant-time copy if other is persistent
+		return new PersistentHashMap<>(other);
+	}
+
+	@Override
+	public PersistentValueEnvironment<T> top() {
+		// we cannot rely on the implementation of ValueEnvironment as it
+		// creates a plain environment
+		return isTop() ? this : mk(lattice.top(), null);
+	}
+
+	@Override
+	public PersistentValueEnvironment<T> bottom() {
+		return isBottom() ? this : mk(lattice.bottom(), null);
+	}
+}
@@ -0,0 +1,63 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.interprocedural.InterproceduralAnalysis;
+import it.unive.lisa.interprocedural.InterproceduralAnalysisException;
+import it.unive.lisa.interprocedural.OpenCallPolicy;
+import it.unive.lisa.interprocedural.callgraph.CallGraph;
+import it.unive.lisa.program.Application;
+import it.unive.lisa.program.cfg.CFG;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link TimedInterproceduralAnalysis} that hides from the analysis it
+ * delegates to the {@link CFG}s rejected by a filter: these are neither entry
+ * points nor part of the application, so that analyses computing a fixpoint
+ * on each cfg (like the modular worst case one) skip them, and analyses
+ * starting from the entry points (like the context based one) reach them only
+ * through calls. Calls are still resolved against the whole program.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class RestrictedInterproceduralAnalysis<A extends AbstractState<A>> extends TimedInterproceduralAnalysis<A> {
+
+	private final Predicate<CFG> filter;
+
+	/**
+	 * Builds the analysis.
+	 *
+	 * @param analysis the analysis to delegate to
+	 * @param filter   the filter selecting the cfgs to analyze
+	 */
+	public RestrictedInterproceduralAnalysis(
+			InterproceduralAnalysis<A> analysis,
+			Predicate<CFG> filter) {
+		super(analysis);
+		this.filter = filter;
+	}
+
+	@Override
+	public void init(
+			Application app,
+			CallGraph callgraph,
+			OpenCallPolicy policy)
+			throws InterproceduralAnalysisException {
+		Collection<CFG> cfgs = app.getAllCFGs().stream().filter(filter).collect(Collectors.toSet());
+		Collection<CFG> entrypoints = app.getEntryPoints().stream().filter(filter).collect(Collectors.toSet());
+		super.init(new Application(app.getPrograms()) {
+
+			@Override
+			public Collection<CFG> getAllCFGs() {
+				return cfgs;
+			}
+
+			@Override
+			public Collection<CFG> getEntryPoints() {
+				return entrypoints;
+			}
+		}, callgraph, policy);
+	}
+}
@@ -0,0 +1,580 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAReport;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.warnings.Warning;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed cache of analysis results, stored in a local directory.
+ * The cache has two kinds of entries:
+ * <ul>
+ * <li>run entries, keyed by a hash of the analyzed file, of the analysis and
+ * of the configuration fields that affect the results (see
+ * {@link #key(Path, TutorialAnalysis, LiSAConfiguration)}), hold the warnings
+ * of the run and the CFG entries of its CFGs;</li>
+ * <li>CFG entries, keyed by a hash of the configuration and of the code of
+ * the CFGs whose results might depend on each other, hold the states computed
+ * for a CFG, as written by {@link JsonStateWriter}, and the warnings issued on
+ * it.</li>
+ * </ul>
+ * A rerun on an unchanged file hits its run entry, and no analysis is
+ * performed. When a file changes, only the CFGs without a CFG entry are
+ * analyzed, as {@link IncrementalAnalysis} does, and the warnings of the other
+ * ones are read from their entries. Which CFGs the results of a CFG depend on
+ * is decided as in {@link IncrementalAnalysis}: if the interprocedural
+ * analysis does not need a call graph, each CFG only depends on itself, and
+ * otherwise it depends on all the CFGs connected to it through calls.
+ * Statements are identified by their location, so a CFG whose statements
+ * moved to other lines has new entries too. Warnings that are not issued on a
+ * CFG are only stored in run entries, and are lost when no CFG has to be
+ * analyzed again. Since the results of connected CFGs are computed together,
+ * all of them are analyzed again as soon as one of their entries is missing.
+ * <br>
+ * <br>
+ * Entries are files, whose modification time is updated each time they are
+ * used: when the size of the directory exceeds the given limit, the least
+ * recently used entries are deleted.
+ */
+public class ResultCache {
+
+	// bumped whenever the format of the entries changes
+	private static final String VERSION = "2";
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	/**
+	 * The outcome of an analysis performed through the cache.
+	 */
+	public static class CachedRun {
+
+		/**
+		 * Whether or not the results come from the cache.
+		 */
+		public final boolean hit;
+
+		/**
+		 * The warnings issued by the analysis.
+		 */
+		public final List<String> warnings;
+
+		/**
+		 * The keys of the CFG entries, indexed by the signatures of the CFGs.
+		 */
+		public final Map<String, String> cfgs;
+
+		/**
+		 * The signatures of the CFGs that have been analyzed, as they had no
+		 * CFG entry.
+		 */
+		public final Set<String> analyzed;
+
+		private CachedRun(
+				boolean hit,
+				List<String> warnings,
+				Map<String, String> cfgs,
+				Set<String> analyzed) {
+			this.hit = hit;
+			this.warnings = warnings;
+			this.cfgs = cfgs;
+			this.analyzed = analyzed;
+		}
+	}
+
+	private final Path directory;
+
+	private final long maxBytes;
+
+	/**
+	 * Builds the cache.
+	 *
+	 * @param directory the directory where entries are stored, created if
+	 *                      needed
+	 * @param maxBytes  the maximum size of the entries in the directory
+	 *
+	 * @throws IOException if the directory cannot be created
+	 */
+	public ResultCache(
+			Path directory,
+			long maxBytes)
+			throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory.resolve("runs"));
+		Files.createDirectories(directory.resolve("cfgs"));
+	}
+
+	/**
+	 * Analyzes the given file with the given analysis, or yields the cached
+	 * results if the file has already been analyzed with the same analysis and
+	 * configuration. Otherwise, only the CFGs that have no CFG entry are
+	 * analyzed. The analysis is executed without dumping anything (see
+	 * {@link OutputMode#HEADLESS}).
+	 *
+	 * @param analysis the analysis
+	 * @param input    the path of the program to analyze
+	 * @param workdir  the directory where the analysis generates its files
+	 *
+	 * @return the results
+	 *
+	 * @throws IOException       if the file or the cache cannot be accessed
+	 * @throws ParsingException  if the input cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public CachedRun analyze(
+			TutorialAnalysis analysis,
+			Path input,
+			String workdir)
+			throws IOException,
+			ParsingException,
+			AnalysisException {
+		LiSAConfiguration conf = analysis.configure(workdir, OutputMode.HEADLESS);
+		String key = key(input, analysis, conf);
+		CachedRun cached = get(key);
+		if (cached != null)
+			return cached;
+
+		Program program = IMPFrontend.processFile(input.toString());
+		boolean calls = conf.interproceduralAnalysis.needsCallGraph();
+		Map<CFG, String> keys = cfgKeys(program.getAllCFGs(), configurationKey(analysis, conf), calls);
+
+		// the cfgs with an entry are not analyzed again
+		Map<String, List<String>> warnings = new HashMap<>();
+		Map<CFG, String> missing = new HashMap<>();
+		for (Map.Entry<CFG, String> cfg : keys.entrySet()) {
+			List<String> stored = cfgWarnings(cfg.getValue());
+			if (stored == null)
+				missing.put(cfg.getKey(), cfg.getValue());
+			else
+				warnings.put(IncrementalAnalysis.signature(cfg.getKey()), stored);
+		}
+
+		// entries are evicted one by one, but the results of a cfg can only be
+		// computed together with the ones of the cfgs connected to it: if a
+		// callee has been evicted while its callers have not, the callers are
+		// the only way to reach it
+		if (calls && !missing.isEmpty())
+			for (CFG cfg : IncrementalAnalysis.connected(program.getAllCFGs(), missing.keySet()))
+				if (missing.putIfAbsent(cfg, keys.get(cfg)) == null)
+					warnings.remove(IncrementalAnalysis.signature(cfg));
+
+		Set<String> analyzed = new TreeSet<>();
+		if (!missing.isEmpty()) {
+			conf.interproceduralAnalysis = new RestrictedInterproceduralAnalysis(conf.interproceduralAnalysis,
+					missing::containsKey);
+			List<SemanticCheck<?>> checks = new ArrayList<>();
+			for (SemanticCheck<?> check : conf.semanticChecks)
+				checks.add(new FilteredCheck(check, missing::containsKey));
+			conf.semanticChecks.clear();
+			conf.semanticChecks.addAll(checks);
+			conf.semanticChecks.add(new Recorder<>(missing));
+			LiSAReport report = new LiSA(conf).run(program);
+
+			for (CFG cfg : missing.keySet()) {
+				analyzed.add(IncrementalAnalysis.signature(cfg));
+				warnings.put(IncrementalAnalysis.signature(cfg), new ArrayList<>());
+			}
+			for (Warning warning : report.getWarnings())
+				warnings.computeIfAbsent(IncrementalAnalysis.owner(warning), k -> new ArrayList<>())
+						.add(warning.toString());
+			for (Map.Entry<CFG, String> cfg : missing.entrySet())
+				putCfgWarnings(cfg.getValue(), warnings.get(IncrementalAnalysis.signature(cfg.getKey())));
+		}
+
+		List<String> all = new ArrayList<>();
+		for (List<String> cfg : warnings.values())
+			all.addAll(cfg);
+		Collections.sort(all);
+		Map<String, String> cfgs = new TreeMap<>();
+		for (Map.Entry<CFG, String> cfg : keys.entrySet())
+			cfgs.put(IncrementalAnalysis.signature(cfg.getKey()), cfg.getValue());
+		put(key, all, cfgs);
+		return new CachedRun(false, all, cfgs, analyzed);
+	}
+
+	/**
+	 * Yields the key of the run entry of the given file, analysis and
+	 * configuration.
+	 *
+	 * @param input    the path of the program
+	 * @param analysis the analysis
+	 * @param conf     the configuration of the analysis
+	 *
+	 * @return the key
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String key(
+			Path input,
+			TutorialAnalysis analysis,
+			LiSAConfiguration conf)
+			throws IOException {
+		MessageDigest digest = digest();
+		digest.update(Files.readAllBytes(input));
+		digest.update(configurationKey(analysis, conf).getBytes(StandardCharsets.UTF_8));
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Yields a string describing the analysis and the configuration fields
+	 * that affect the results of the analysis. Output options are not
+	 * included.
+	 *
+	 * @param analysis the analysis
+	 * @param conf     the configuration of the analysis
+	 *
+	 * @return the string
+	 */
+	public static String configurationKey(
+			TutorialAnalysis analysis,
+			LiSAConfiguration conf) {
+		// the abstract state is the top state, whose representation names its
+		// components, and checks are described by their classes
+		List<String> checks = conf.semanticChecks.stream()
+				.map(check -> check.getClass().getName())
+				.sorted()
+				.collect(Collectors.toList());
+		return String.join("\n",
+				VERSION,
+				analysis.name(),
+				className(conf.abstractState),
+				String.valueOf(conf.abstractState),
+				className(conf.interproceduralAnalysis),
+				className(conf.callGraph),
+				className(conf.openCallPolicy),
+				String.valueOf(conf.fixpointWorkingSet),
+				String.valueOf(conf.wideningThreshold),
+				String.valueOf(conf.recursionWideningThreshold),
+				String.valueOf(conf.glbThreshold),
+				String.valueOf(conf.descendingPhaseType),
+				String.valueOf(conf.useWideningPoints),
+				String.valueOf(conf.optimize),
+				String.valueOf(checks));
+	}
+
+	private static String className(
+			Object object) {
+		return object == null ? "null" : object.getClass().getName();
+	}
+
+	/**
+	 * Yields the keys of the CFG entries of the given CFGs. The key of a CFG
+	 * hashes the configuration and the code of the CFGs its results depend on:
+	 * only the CFG itself if {@code calls} is {@code false}, and otherwise the
+	 * CFGs connected to it through calls.
+	 *
+	 * @param cfgs          the CFGs of the program
+	 * @param configuration the configuration, as yielded by
+	 *                          {@link #configurationKey(TutorialAnalysis, LiSAConfiguration)}
+	 * @param calls         whether or not the results of a CFG depend on the
+	 *                          CFGs it calls and is called by
+	 *
+	 * @return the keys
+	 */
+	public static Map<CFG, String> cfgKeys(
+			Collection<CFG> cfgs,
+			String configuration,
+			boolean calls) {
+		Map<CFG, String> keys = new HashMap<>();
+		for (CFG cfg : cfgs) {
+			if (keys.containsKey(cfg))
+				continue;
+
+			// all the cfgs connected to this one have the same dependencies
+			Collection<CFG> group = calls ? IncrementalAnalysis.connected(cfgs, Set.of(cfg)) : List.of(cfg);
+			List<String> hashes = new ArrayList<>();
+			for (CFG other : group)
+				hashes.add(codeHash(other));
+			Collections.sort(hashes);
+
+			MessageDigest digest = digest();
+			digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+			for (String hash : hashes)
+				digest.update(hash.getBytes(StandardCharsets.UTF_8));
+			String common = hex(digest.digest());
+			for (CFG other : group) {
+				// the entries of the cfgs in the group are different ones
+				digest.update(common.getBytes(StandardCharsets.UTF_8));
+				digest.update(IncrementalAnalysis.signature(other).getBytes(StandardCharsets.UTF_8));
+				keys.put(other, hex(digest.digest()));
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Yields a hash of the code of the given CFG: its signature, and its
+	 * statements and edges with their locations.
+	 *
+	 * @param cfg the CFG
+	 *
+	 * @return the hash
+	 */
+	public static String codeHash(
+			CFG cfg) {
+		List<String> lines = new ArrayList<>();
+		for (Statement node : cfg.getNodes())
+			lines.add(node.getLocation() + " " + node);
+		for (Edge edge : cfg.getEdges())
+			lines.add(edge.getSource().getLocation() + " " + edge.getClass().getSimpleName() + " "
+					+ edge.getDestination().getLocation());
+		// the order of nodes and edges in the CFG is not relevant
+		Collections.sort(lines);
+
+		MessageDigest digest = digest();
+		digest.update(cfg.getDescriptor().getFullSignatureWithParNames().getBytes(StandardCharsets.UTF_8));
+		for (String line : lines)
+			digest.update(("\n" + line).getBytes(StandardCharsets.UTF_8));
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Yields the path of the file holding the states of the given CFG entry.
+	 *
+	 * @param key the key of the CFG entry
+	 *
+	 * @return the path, that exists only if the entry is in the cache
+	 */
+	public Path states(
+			String key) {
+		return directory.resolve("cfgs").resolve(key + ".json.gz");
+	}
+
+	private Path run(
+			String key) {
+		return directory.resolve("runs").resolve(key + ".json");
+	}
+
+	private Path cfgWarningsFile(
+			String key) {
+		return directory.resolve("cfgs").resolve(key + ".json");
+	}
+
+	// yields the warnings of the given cfg entry, or null if the entry is not (entirely) in the cache
+	private List<String> cfgWarnings(
+			String key)
+			throws IOException {
+		Path file = cfgWarningsFile(key);
+		if (!Files.exists(file) || !Files.exists(states(key)))
+			return null;
+
+		List<String> warnings = new ArrayList<>();
+		try (JsonParser parser = FACTORY.createParser(file.toFile())) {
+			// [warning, ...]
+			parser.nextToken();
+			while (parser.nextToken() != JsonToken.END_ARRAY)
+				warnings.add(parser.getText());
+		}
+		touch(file);
+		touch(states(key));
+		return warnings;
+	}
+
+	private void putCfgWarnings(
+			String key,
+			List<String> warnings)
+			throws IOException {
+		Path file = cfgWarningsFile(key);
+		Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+		try (JsonGenerator generator = FACTORY.createGenerator(tmp.toFile(), JsonEncoding.UTF8)) {
+			generator.writeStartArray();
+			for (String warning : warnings)
+				generator.writeString(warning);
+			generator.writeEndArray();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private CachedRun get(
+			String key)
+			throws IOException {
+		Path file = run(key);
+		if (!Files.exists(file))
+			return null;
+
+		List<String> warnings = new ArrayList<>();
+		Map<String, String> cfgs = new TreeMap<>();
+		try (JsonParser parser = FACTORY.createParser(file.toFile())) {
+			// {"warnings": [...], "cfgs": {signature: key, ...}}
+			parser.nextToken();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if (field.equals("warnings"))
+					while (parser.nextToken() != JsonToken.END_ARRAY)
+						warnings.add(parser.getText());
+				else
+					while (parser.nextToken() != JsonToken.END_OBJECT) {
+						String signature = parser.getCurrentName();
+						cfgs.put(signature, parser.nextTextValue());
+					}
+			}
+		}
+
+		for (String cfg : cfgs.values())
+			if (!Files.exists(states(cfg)) || !Files.exists(cfgWarningsFile(cfg)))
+				// a CFG entry has been evicted: the run is incomplete
+				return null;
+
+		touch(file);
+		for (String cfg : cfgs.values()) {
+			touch(states(cfg));
+			touch(cfgWarningsFile(cfg));
+		}
+		return new CachedRun(true, warnings, cfgs, Set.of());
+	}
+
+	private void put(
+			String key,
+			List<String> warnings,
+			Map<String, String> cfgs)
+			throws IOException {
+		Path file = run(key);
+		Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+		try (JsonGenerator generator = FACTORY.createGenerator(tmp.toFile(), JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("warnings");
+			for (String warning : warnings)
+				generator.writeString(warning);
+			generator.writeEndArray();
+			generator.writeObjectFieldStart("cfgs");
+			for (Map.Entry<String, String> cfg : cfgs.entrySet())
+				generator.writeStringField(cfg.getKey(), cfg.getValue());
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		evict();
+	}
+
+	private static void touch(
+			Path file)
+			throws IOException {
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Deletes the least recently used entries until the size of the cache is
+	 * within its limit.
+	 *
+	 * @throws IOException if the directory cannot be accessed
+	 */
+	public synchronized void evict() throws IOException {
+		List<Path> entries;
+		try (Stream<Path> files = Files.walk(directory)) {
+			entries = files.filter(Files::isRegularFile)
+					.filter(file -> !file.toString().endsWith(".tmp"))
+					.collect(Collectors.toList());
+		}
+
+		long size = 0;
+		Map<Path, FileTime> times = new HashMap<>();
+		for (Path entry : entries) {
+			size += Files.size(entry);
+			times.put(entry, Files.getLastModifiedTime(entry));
+		}
+		if (size <= maxBytes)
+			return;
+
+		entries.sort(Comparator.comparing(times::get));
+		for (Path entry : entries) {
+			if (size <= maxBytes)
+				break;
+			size -= Files.size(entry);
+			Files.deleteIfExists(entry);
+		}
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(
+			byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return builder.toString();
+	}
+
+	/**
+	 * A check that stores the states of the CFGs that have been analyzed in
+	 * their CFG entries.
+	 *
+	 * @param <A> the type of {@link AbstractState} computed by the analysis
+	 */
+	private class Recorder<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+		// the keys of the entries to write
+		private final Map<CFG, String> keys;
+
+		private Recorder(
+				Map<CFG, String> keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<A> tool,
+				CFG graph) {
+			String key = keys.get(graph);
+			if (key == null)
+				return false;
+
+			Path file = states(key);
+			try {
+				Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+				try (JsonStateWriter writer = new JsonStateWriter(tmp, true)) {
+					writer.write(graph, tool.getResultOf(graph));
+				}
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to cache the results of " + graph, e);
+			}
+			return false;
+		}
+	}
+}
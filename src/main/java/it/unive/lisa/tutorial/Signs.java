@@ -1,5 +1,6 @@
 package it.unive.lisa.tutorial;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.unive.lisa.analysis.Lattice;
 import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.SemanticOracle;
@@ -16,6 +17,7 @@ import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
 import it.unive.lisa.util.representation.StringRepresentation;
 import it.unive.lisa.util.representation.StructuredRepresentation;
 
+import java.io.IOException;
 import java.util.Objects;
 
 public class Signs
@@ -27,7 +29,11 @@ public class Signs
 		BaseNonRelationalValueDomain<
 				// java requires this type parameter to have this class
 				// as type in fields/methods
-				Signs> {
+				Signs>,
+		// this allows to store signs in a PackedValueEnvironment
+		PackedLattice<Signs>,
+		// this allows to dump signs without building their representation
+		JsonStreamable {
 
 	// as this is a finite lattice, we can optimize by having constant elements
 	// for each of them
@@ -37,9 +43,45 @@ public class Signs
 	private static final Signs POSITIVE = new Signs(1);
 	private static final Signs TOP = new Signs(10);
 
+	// the elements above, indexed by their ordinals
+	private static final Signs[] ELEMENTS = { BOTTOM, NEGATIVE, ZERO, POSITIVE, TOP };
+
+	// since the lattice is finite, all transfer functions and lattice operations are computed once by the reference
+	// implementations below, and then evaluating them is just a lookup in these tables
+	private static final Signs[] NEGATE = TransferTables.unary(ELEMENTS, Signs::negate);
+	private static final Signs[][] ADD = TransferTables.binary(ELEMENTS, Signs::add);
+	private static final Signs[][] SUB = TransferTables.binary(ELEMENTS, Signs::sub);
+	private static final Signs[][] MUL = TransferTables.binary(ELEMENTS, Signs::mul);
+	private static final Signs[][] DIV = TransferTables.binary(ELEMENTS, Signs::div);
+	private static final Signs[][] LUB = TransferTables.binary(ELEMENTS, Signs::baseLub);
+	private static final Signs[][] GLB = TransferTables.binary(ELEMENTS, Signs::baseGlb);
+	private static final boolean[][] LEQ = TransferTables.relation(ELEMENTS, Signs::baseLessOrEqual);
+
+	// the table of each class of binary operators, if any
+	private static final ClassValue<Signs[][]> OPERATORS = new ClassValue<>() {
+
+		@Override
+		protected Signs[][] computeValue(
+				Class<?> type) {
+			// an operator uses the table of the first of these interfaces it implements
+			if (AdditionOperator.class.isAssignableFrom(type))
+				return ADD;
+			if (SubtractionOperator.class.isAssignableFrom(type))
+				return SUB;
+			if (MultiplicationOperator.class.isAssignableFrom(type))
+				return MUL;
+			if (DivisionOperator.class.isAssignableFrom(type))
+				return DIV;
+			return null;
+		}
+	};
+
 	// this is just needed to distinguish the elements
 	private final int sign;
 
+	// the position of this element in ELEMENTS
+	private final int ordinal;
+
 	public Signs() {
 		this(10);
 	}
@@ -47,6 +89,22 @@ public class Signs
 	public Signs(
 			int sign) {
 		this.sign = sign;
+		switch (sign) {
+		case -10:
+			ordinal = 0;
+			break;
+		case -1:
+			ordinal = 1;
+			break;
+		case 0:
+			ordinal = 2;
+			break;
+		case 1:
+			ordinal = 3;
+			break;
+		default:
+			ordinal = 4;
+		}
 	}
 
 	@Override
@@ -97,6 +155,113 @@ public class Signs
 		return TOP;
 	}
 
+	// the lattice operations below replace the ones of BaseLattice (that are used to build the tables) with lookups
+
+	@Override
+	public Signs lub(
+			Signs other)
+			throws SemanticException {
+		return other == null ? this : LUB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public Signs widening(
+			Signs other)
+			throws SemanticException {
+		// the lattice is finite, so widening is the lub
+		return other == null ? this : LUB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public Signs glb(
+			Signs other)
+			throws SemanticException {
+		return other == null ? this : GLB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public boolean lessOrEqual(
+			Signs other)
+			throws SemanticException {
+		return other != null && LEQ[ordinal][other.ordinal];
+	}
+
+	// the operations of BaseLattice, used to build the tables
+
+	private Signs baseLub(
+			Signs other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.lub(other);
+	}
+
+	private Signs baseGlb(
+			Signs other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.glb(other);
+	}
+
+	private boolean baseLessOrEqual(
+			Signs other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.lessOrEqual(other);
+	}
+
+	// encoding for PackedValueEnvironment below: each sign is a set of
+	// bits (negative, zero, positive), so that the or of two codes is the
+	// lub when they are comparable
+
+	@Override
+	public int bits() {
+		return 3;
+	}
+
+	@Override
+	public int encode() {
+		switch (sign) {
+		case -10:
+			return 0b000;
+		case -1:
+			return 0b001;
+		case 0:
+			return 0b010;
+		case 1:
+			return 0b100;
+		default:
+			return 0b111;
+		}
+	}
+
+	@Override
+	public Signs decode(
+			int code) {
+		switch (code) {
+		case 0b000:
+			return BOTTOM;
+		case 0b001:
+			return NEGATIVE;
+		case 0b010:
+			return ZERO;
+		case 0b100:
+			return POSITIVE;
+		default:
+			return TOP;
+		}
+	}
+
+	@Override
+	public long closeLub(
+			long codes,
+			long lows) {
+		// the or of two incomparable signs has two bits set, and it must
+		// become top: we find the codes with at least two bits set, and
+		// then we set all of their bits
+		long neg = codes & lows;
+		long zero = (codes >>> 1) & lows;
+		long pos = (codes >>> 2) & lows;
+		long incomparable = (neg & zero) | (neg & pos) | (zero & pos);
+		return codes | incomparable * 0b111;
+	}
+
 	@Override
 	public StructuredRepresentation representation() {
 		// this method serializes instances of this domain
@@ -112,6 +277,23 @@ public class Signs
 		return new StringRepresentation("0");
 	}
 
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation()
+		if (this == TOP)
+			generator.writeString(Lattice.TOP_STRING);
+		else if (this == BOTTOM)
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else if (this == POSITIVE)
+			generator.writeString("+");
+		else if (this == NEGATIVE)
+			generator.writeString("-");
+		else
+			generator.writeString("0");
+	}
+
 	// logic for evaluating expressions below
 
 	@Override
@@ -132,15 +314,6 @@ public class Signs
 		return top();
 	}
 
-	private Signs negate() {
-		if (this == NEGATIVE)
-			return POSITIVE;
-		else if (this == POSITIVE)
-			return NEGATIVE;
-		else
-			return this;
-	}
-
 	@Override
 	public Signs evalUnaryExpression(
 			UnaryOperator operator,
@@ -149,7 +322,7 @@ public class Signs
 			SemanticOracle oracle)
 			throws SemanticException {
 		if (operator instanceof NumericNegation)
-			return arg.negate();
+			return NEGATE[arg.ordinal];
 
 		return TOP;
 	}
@@ -162,59 +335,86 @@ public class Signs
 			ProgramPoint pp,
 			SemanticOracle oracle)
 			throws SemanticException {
-		if (operator instanceof AdditionOperator) {
-			if (left == NEGATIVE) {
-				if (right == ZERO || right == NEGATIVE)
-					return left;
-				else
-					return TOP;
-			} else if (left == POSITIVE) {
-				if (right == ZERO || right == POSITIVE)
-					return left;
-				else
-					return TOP;
-			} else if (left == ZERO) {
-				return right;
-			} else
+		Signs[][] table = OPERATORS.get(operator.getClass());
+		return table == null ? TOP : table[left.ordinal][right.ordinal];
+	}
+
+	// reference implementations of the transfer functions, used to build the tables
+
+	private static Signs negate(
+			Signs arg) {
+		if (arg == NEGATIVE)
+			return POSITIVE;
+		else if (arg == POSITIVE)
+			return NEGATIVE;
+		else
+			return arg;
+	}
+
+	private static Signs add(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			if (right == ZERO || right == NEGATIVE)
+				return left;
+			else
 				return TOP;
-		} else if (operator instanceof SubtractionOperator) {
-			if (left == NEGATIVE) {
-				if (right == ZERO || right == POSITIVE)
-					return left;
-				else
-					return TOP;
-			} else if (left == POSITIVE) {
-				if (right == ZERO || right == NEGATIVE)
-					return left;
-				else
-					return TOP;
-			} else if (left == ZERO) {
-				return right;
-			} else
+		} else if (left == POSITIVE) {
+			if (right == ZERO || right == POSITIVE)
+				return left;
+			else
 				return TOP;
-		} else if (operator instanceof MultiplicationOperator) {
-			if (left == NEGATIVE) {
-				return right.negate();
-			} else if (left == POSITIVE) {
-				return right;
-			} else if (left == ZERO) {
-				return ZERO;
-			} else
+		} else if (left == ZERO) {
+			return right;
+		} else
+			return TOP;
+	}
+
+	private static Signs sub(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			if (right == ZERO || right == POSITIVE)
+				return left;
+			else
 				return TOP;
-		} else if (operator instanceof DivisionOperator) {
-			if (right == ZERO)
-				return BOTTOM;
-
-			if (left == NEGATIVE) {
-				return right.negate();
-			} else if (left == POSITIVE) {
-				return right;
-			} else if (left == ZERO) {
-				return ZERO;
-			} else
+		} else if (left == POSITIVE) {
+			if (right == ZERO || right == NEGATIVE)
+				return left;
+			else
 				return TOP;
-		}
+		} else if (left == ZERO) {
+			return right;
+		} else
+			return TOP;
+	}
 
-		return TOP;
+	private static Signs mul(
+			Signs left,
+			Signs right) {
+		if (left == NEGATIVE) {
+			return negate(right);
+		} else if (left == POSITIVE) {
+			return right;
+		} else if (left == ZERO) {
+			return ZERO;
+		} else
+			return TOP;
+	}
+
+	private static Signs div(
+			Signs left,
+			Signs right) {
+		if (right == ZERO)
+			return BOTTOM;
+
+		if (left == NEGATIVE) {
+			return negate(right);
+		} else if (left == POSITIVE) {
+			return right;
+		} else if (left == ZERO) {
+			return ZERO;
+		} else
+			return TOP;
 	}
-}
\ No newline at end of file
+}
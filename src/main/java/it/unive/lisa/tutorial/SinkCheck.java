@@ -0,0 +1,333 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.interprocedural.callgraph.CallGraphNode;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.annotations.matcher.AnnotationMatcher;
+import it.unive.lisa.program.annotations.matcher.BasicAnnotationMatcher;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.call.ResolvedCall;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.StringUtilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A check that inspects the values passed to parameters annotated as sinks
+ * (see {@link #SINK_ANNOTATION}), issuing a warning when the value
+ * computed by a non-relational domain tells that tainted information might
+ * reach the sink. Subclasses decide which values are tainted for a given sink.
+ *
+ * @param <T> the type of non-relational domain tracking taintedness
+ */
+public abstract class SinkCheck<T extends BaseNonRelationalValueDomain<T>>
+		implements
+		// a semantic check is an iterator of CFGs that has access
+		// to the states computed by the analysis
+		SemanticCheck<
+				// the type parameter for the semantic checks is
+				// the abstract state used for the analysis
+				SimpleAbstractState<
+						PointBasedHeap,
+						ValueEnvironment<T>,
+						TypeEnvironment<InferredTypes>>> {
+
+	/**
+	 * The annotation used to mark sinks where tainted information should not flow.
+	 */
+	public static final Annotation SINK_ANNOTATION = new Annotation("lisa.taint.Sink");
+
+	/**
+	 * An {@link AnnotationMatcher} for {@link #SINK_ANNOTATION}. Annotation matchers are just utility objects that *
+	 * allow for conditional matching of annotations based on names, parameters, ...
+	 */
+	public static final AnnotationMatcher SINK_MATCHER = new BasicAnnotationMatcher(SINK_ANNOTATION);
+
+	// the number of threads used to inspect the CFGs
+	private final int parallelism;
+
+	// the CFGs to inspect, in the order they have been visited
+	private final List<CFG> graphs = new ArrayList<>();
+
+	// the calls that might reach a sink, grouped by the CFG containing them
+	private final Map<CFG, Set<UnresolvedCall>> sinkCalls = new HashMap<>();
+
+	// how many times the taintedness of a parameter has been reused or
+	// computed: these are updated concurrently when inspecting in parallel
+	private final AtomicLong cacheHits = new AtomicLong();
+
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param parallelism the number of CFGs that can be inspected in parallel
+	 */
+	protected SinkCheck(
+			int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public void beforeExecution(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<T>, TypeEnvironment<InferredTypes>>> tool) {
+		graphs.clear();
+		sinkCalls.clear();
+		cacheHits.set(0);
+		cacheMisses.set(0);
+
+		// before visiting the program, we look for the code members having a
+		// parameter annotated as sink, and we use the call graph to collect
+		// the calls that might target them: these are the only calls that
+		// have to be inspected
+		for (CallGraphNode node : tool.getCallGraph().getNodes()) {
+			CodeMember member = node.getCodeMember();
+			if (!hasSink(member))
+				continue;
+			for (Call call : tool.getCallSites(member))
+				if (call instanceof UnresolvedCall)
+					sinkCalls.computeIfAbsent(call.getCFG(), cfg -> new HashSet<>()).add((UnresolvedCall) call);
+		}
+	}
+
+	/**
+	 * Yields the number of times that the taintedness of a parameter has been
+	 * reused, instead of being computed again, during the last execution of
+	 * this check.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Yields the number of times that the taintedness of a parameter has been
+	 * computed during the last execution of this check.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	private static boolean hasSink(
+			CodeMember member) {
+		for (Parameter formal : member.getDescriptor().getFormals())
+			if (formal.getAnnotations().contains(SINK_MATCHER))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Yields how the given value is tainted with respect to the given sink,
+	 * to be used in the warning issued on the call passing the value to the
+	 * sink (e.g., {@code "tainted"}).
+	 *
+	 * @param value the value passed to the sink
+	 * @param sink  the parameter annotated as sink
+	 *
+	 * @return the description of the taintedness, or {@code null} if the
+	 *             value cannot carry tainted information to the sink
+	 */
+	protected abstract String taintedness(
+			T value,
+			Parameter sink);
+
+	// This method is called for each analyzed CFG
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<T>, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph) {
+		// we just record the CFG, and we skip its statements: all CFGs are
+		// inspected at the end, when they can be processed in parallel.
+		// CFGs that do not contain calls to sinks are not inspected at all
+		if (sinkCalls.containsKey(graph))
+			graphs.add(graph);
+		return false;
+	}
+
+	// This method is called once all CFGs have been visited
+	@Override
+	public void afterExecution(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<T>, TypeEnvironment<InferredTypes>>> tool) {
+		List<List<Report>> reports;
+		if (parallelism == 1)
+			reports = graphs.stream().map(graph -> inspect(tool, graph)).collect(Collectors.toList());
+		else {
+			// parallel streams submitted to a pool run on the threads of that pool
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				reports = pool.submit(() -> graphs.parallelStream()
+						.map(graph -> inspect(tool, graph))
+						.collect(Collectors.toList()))
+						.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while checking taintedness", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Unable to check taintedness", e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		// warnings are issued here, sequentially, so that their order does
+		// not depend on the scheduling of the threads
+		for (List<Report> graphReports : reports)
+			for (Report report : graphReports)
+				tool.warnOn(report.call, report.message);
+		graphs.clear();
+		sinkCalls.clear();
+	}
+
+	// yields the warnings to issue for the given CFG, sorted by call
+	private List<Report> inspect(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<T>, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph) {
+		List<Report> reports = new ArrayList<>();
+		// only calls that might target a sink need to be inspected: the
+		// others cannot have parameters annotated as sinks
+		for (UnresolvedCall call : sinkCalls.get(graph))
+			inspect(tool, call, reports);
+		reports.sort((r1, r2) -> r1.call.compareTo(r2.call));
+		return reports;
+	}
+
+	private void inspect(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<T>, TypeEnvironment<InferredTypes>>> tool,
+			UnresolvedCall call,
+			List<Report> reports) {
+		// we try to detect calls with a sink parameter for which the analysis determined
+		// that there might be tainted information reaching that parameter
+		try {
+			// we get the taint analysis results mapped on the CFG containing the call that we want investigate
+			for (var result : tool.getResultOf(call.getCFG())) {
+				// we resolve the call, i.e. we ensure that call has been correctly processed by the analysis
+				// (resolution caches its results in the call graph, that cannot be accessed concurrently)
+				Call res;
+				synchronized (tool) {
+					res = tool.getResolvedVersion(call, result);
+				}
+				if (res == null)
+					// if the call has not been resolved, we cannot inspect its targets to find the annotations
+					return;
+
+				// the value of each parameter in this context, computed the first
+				// time a target has a sink there: the targets of a polymorphic
+				// call share the same actual parameters
+				List<T> values = new ArrayList<>(Collections.nCopies(call.getParameters().length, null));
+				for (CodeMember target : ((ResolvedCall) res).getTargets()) {
+					// we check if the call parameters are annotated as sinks
+					Parameter[] parameters = target.getDescriptor().getFormals();
+					for (int par = 0; par < parameters.length; par++) {
+						if (!parameters[par].getAnnotations().contains(SINK_MATCHER))
+							continue;
+						String taintedness = taintedness(valueOf(result, call, par, values), parameters[par]);
+						if (taintedness != null)
+							// tainted data might flow into the sink: we report a warning
+							reports.add(new Report(call, "The value passed for the "
+									+ StringUtilities.ordinal(par + 1)
+									+ " parameter of this call may be "
+									+ taintedness
+									+ ", and it reaches the sink at parameter '"
+									+ parameters[par].getName()
+									+ "' of "
+									+ res.getFullTargetName()));
+					}
+				}
+			}
+		} catch (SemanticException e) {
+			System.err.println("Cannot check " + call);
+			e.printStackTrace(System.err);
+		}
+	}
+
+	// a warning to be issued on a call
+	private static final class Report {
+
+		private final UnresolvedCall call;
+
+		private final String message;
+
+		private Report(
+				UnresolvedCall call,
+				String message) {
+			this.call = call;
+			this.message = message;
+		}
+	}
+
+	private T valueOf(
+			AnalyzedCFG<
+					SimpleAbstractState<
+							PointBasedHeap,
+							ValueEnvironment<T>,
+							TypeEnvironment<InferredTypes>>> result,
+			UnresolvedCall call,
+			int parIndex,
+			List<T> cache) throws SemanticException {
+		T value = cache.get(parIndex);
+		if (value != null) {
+			cacheHits.incrementAndGet();
+			return value;
+		}
+		cacheMisses.incrementAndGet();
+		value = valueOf(result, call, parIndex);
+		cache.set(parIndex, value);
+		return value;
+	}
+
+	private T valueOf(
+			AnalyzedCFG<
+					SimpleAbstractState<
+							PointBasedHeap,
+							ValueEnvironment<T>,
+							TypeEnvironment<InferredTypes>>> result,
+			UnresolvedCall call,
+			int parIndex) throws SemanticException {
+		// we retrieve the state after the parameter of the call has been evaluated
+		var state = result.getAnalysisStateAfter(call.getParameters()[parIndex]);
+
+		// our objective is to ask our taintedness analysis how the parameter can be tainted
+		// we first retrieve the parameter
+		ExpressionSet param = state.getComputedExpressions();
+
+		// the taint analysis is a value analysis: it can only deal with value expressions!
+		// we must rewrite each expression in param before inspecting it
+		ValueEnvironment<T> valueState = state.getState().getValueState();
+		T value = valueState.lattice.bottom();
+		for (SymbolicExpression e : state.getState().rewrite(param, call, state.getState()))
+			// now we ask the taint analysis what is the taintedness of our target parameter
+			value = value.lub(valueState.eval((ValueExpression) e, call, state.getState()));
+		return value;
+	}
+}
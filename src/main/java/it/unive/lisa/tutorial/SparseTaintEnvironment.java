@@ -0,0 +1,340 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link ValueEnvironment} of {@link Taint} values with a cheaper
+ * representation of clean variables. The function stores the variables that
+ * might be tainted (or that are unreachable) in a map, and the clean ones in a
+ * {@link PersistentHashMap} used as a set, that copies of the function share.
+ * Since taint only originates from sources and from the parameters of entry
+ * points, the map usually stays small, and copying the function (that the
+ * functional lattice does before each update) costs as much as the tainted
+ * variables instead of all of them. Assignments that leave the function
+ * unchanged (e.g., assigning a clean value to a variable that was already
+ * clean) do not copy it at all.
+ * <br>
+ * <br>
+ * Similarly, lub, widening, glb and lessOrEqual only look at the variables
+ * that might be tainted, and at the clean ones that are not shared by the
+ * two environments (see {@link PersistentHashMap#differingKeys}): joining two
+ * states that descend from the same one, as it happens at the end of a
+ * branch, costs as much as the variables updated on the branches and the
+ * tainted ones.
+ * <br>
+ * <br>
+ * The lattice is the one of {@link ValueEnvironment}, and so is its meaning:
+ * variables that were never assigned, or that have been forgotten, are
+ * tainted.
+ */
+public class SparseTaintEnvironment extends ValueEnvironment<Taint> {
+
+	public SparseTaintEnvironment() {
+		super(new Taint());
+	}
+
+	public SparseTaintEnvironment(
+			Taint domain,
+			Map<Identifier, Taint> function) {
+		super(domain, function == null || function instanceof TaintMap
+				? function
+				: new TaintMap(domain.clean(), function));
+	}
+
+	@Override
+	public SparseTaintEnvironment mk(
+			Taint lattice,
+			Map<Identifier, Taint> function) {
+		return new SparseTaintEnvironment(lattice, function);
+	}
+
+	@Override
+	public Map<Identifier, Taint> mkNewFunction(
+			Map<Identifier, Taint> other,
+			boolean preserveNull) {
+		if (other == null)
+			return preserveNull ? null : new TaintMap(lattice.clean());
+		// this copies only the tainted variables if other is a TaintMap
+		return new TaintMap(lattice.clean(), other);
+	}
+
+	@Override
+	public SparseTaintEnvironment assign(
+			Identifier id,
+			ValueExpression expression,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// same as Environment.assign, but the function is copied only if it
+		// changes
+		if (isBottom() || !lattice.canProcess(expression, pp, oracle))
+			return this;
+
+		Taint value = lattice.eval(expression, this, pp, oracle);
+		Taint fixed = lattice.fixedVariable(id, pp, oracle);
+		if (!fixed.isBottom())
+			value = fixed;
+		else if (id.isWeak() && function != null && function.containsKey(id))
+			value = value.lub(getState(id));
+
+		if (function != null && value.equals(function.get(id)))
+			return this;
+
+		Map<Identifier, Taint> func = mkNewFunction(function, false);
+		func.put(id, value);
+		return mk(lattice, func);
+	}
+
+	// the lattice operations below are the ones of FunctionalLattice, but
+	// they skip the clean variables shared by the two functions, whose value
+	// cannot change: the result starts as a copy of this function (constant
+	// time for the clean variables), and only the variables that differ are
+	// updated
+
+	private List<Identifier> differing(
+			ValueEnvironment<Taint> other) {
+		if (!(function instanceof TaintMap) || !(other.function instanceof TaintMap))
+			return null;
+		return ((TaintMap) function).cleans.differingKeys(((TaintMap) other.function).cleans);
+	}
+
+	@Override
+	public ValueEnvironment<Taint> lubAux(
+			ValueEnvironment<Taint> other)
+			throws SemanticException {
+		List<Identifier> differing = differing(other);
+		if (differing == null)
+			return super.lubAux(other);
+
+		// variables missing from one of the functions are bottom there
+		TaintMap result = new TaintMap(lattice.clean(), function);
+		for (Identifier id : differing)
+			result.put(id, lub(function.get(id), other.function.get(id)));
+		for (Map.Entry<Identifier, Taint> entry : ((TaintMap) other.function).others.entrySet())
+			result.put(entry.getKey(), lub(function.get(entry.getKey()), entry.getValue()));
+		return mk(lattice.lub(other.lattice), result);
+	}
+
+	private static Taint lub(
+			Taint mine,
+			Taint theirs)
+			throws SemanticException {
+		return mine == null ? theirs : theirs == null ? mine : mine.lub(theirs);
+	}
+
+	@Override
+	public ValueEnvironment<Taint> wideningAux(
+			ValueEnvironment<Taint> other)
+			throws SemanticException {
+		// taint is a finite lattice, and its widening is the lub
+		return lubAux(other);
+	}
+
+	@Override
+	public ValueEnvironment<Taint> glbAux(
+			ValueEnvironment<Taint> other)
+			throws SemanticException {
+		List<Identifier> differing = differing(other);
+		if (differing == null)
+			return super.glbAux(other);
+
+		// only the variables in both functions are kept
+		TaintMap result = new TaintMap(lattice.clean(), function);
+		for (Identifier id : differing)
+			glb(result, id, function.get(id), other.function.get(id));
+		for (Map.Entry<Identifier, Taint> entry : ((TaintMap) function).others.entrySet())
+			glb(result, entry.getKey(), entry.getValue(), other.function.get(entry.getKey()));
+		return mk(lattice.lub(other.lattice), result);
+	}
+
+	private static void glb(
+			TaintMap result,
+			Identifier id,
+			Taint mine,
+			Taint theirs)
+			throws SemanticException {
+		if (mine == null || theirs == null)
+			result.remove(id);
+		else
+			result.put(id, mine.glb(theirs));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			ValueEnvironment<Taint> other)
+			throws SemanticException {
+		List<Identifier> differing = differing(other);
+		if (differing == null)
+			return super.lessOrEqualAux(other);
+
+		// variables missing from other are tainted there, that is top
+		for (Identifier id : differing)
+			if (!lessOrEqual(function.get(id), other.function.get(id)))
+				return false;
+		for (Map.Entry<Identifier, Taint> entry : ((TaintMap) function).others.entrySet())
+			if (!lessOrEqual(entry.getValue(), other.function.get(entry.getKey())))
+				return false;
+		return true;
+	}
+
+	private static boolean lessOrEqual(
+			Taint mine,
+			Taint theirs)
+			throws SemanticException {
+		return mine == null || theirs == null || mine.lessOrEqual(theirs);
+	}
+
+	@Override
+	public SparseTaintEnvironment top() {
+		// we cannot rely on the implementation of ValueEnvironment as it
+		// creates a plain environment
+		return isTop() ? this : mk(lattice.top(), null);
+	}
+
+	@Override
+	public SparseTaintEnvironment bottom() {
+		return isBottom() ? this : mk(lattice.bottom(), null);
+	}
+
+	/**
+	 * A map from identifiers to {@link Taint} values, storing the clean
+	 * identifiers as keys of a {@link PersistentHashMap} and the other ones in
+	 * a plain map. The two never share a key.
+	 */
+	private static final class TaintMap extends AbstractMap<Identifier, Taint> {
+
+		private final Taint clean;
+
+		private final PersistentHashMap<Identifier, Boolean> cleans;
+
+		private final Map<Identifier, Taint> others;
+
+		private TaintMap(
+				Taint clean) {
+			this.clean = clean;
+			this.cleans = new PersistentHashMap<>();
+			this.others = new HashMap<>();
+		}
+
+		private TaintMap(
+				Taint clean,
+				Map<Identifier, Taint> other) {
+			this.clean = clean;
+			if (other instanceof TaintMap) {
+				// constant time for the clean identifiers
+				this.cleans = new PersistentHashMap<>(((TaintMap) other).cleans);
+				this.others = new HashMap<>(((TaintMap) other).others);
+			} else {
+				this.cleans = new PersistentHashMap<>();
+				this.others = new HashMap<>();
+				putAll(other);
+			}
+		}
+
+		@Override
+		public int size() {
+			return cleans.size() + others.size();
+		}
+
+		@Override
+		public boolean containsKey(
+				Object key) {
+			return others.containsKey(key) || cleans.containsKey(key);
+		}
+
+		@Override
+		public Taint get(
+				Object key) {
+			Taint value = others.get(key);
+			if (value != null)
+				return value;
+			return cleans.containsKey(key) ? clean : null;
+		}
+
+		@Override
+		public Taint put(
+				Identifier key,
+				Taint value) {
+			Taint old = get(key);
+			if (value.equals(clean)) {
+				others.remove(key);
+				// this avoids copying the path of a key that is already there
+				if (old == null || !old.equals(clean))
+					cleans.put(key, Boolean.TRUE);
+			} else {
+				if (old != null && old.equals(clean))
+					cleans.remove(key);
+				others.put(key, value);
+			}
+			return old;
+		}
+
+		@Override
+		public Taint remove(
+				Object key) {
+			Taint old = others.remove(key);
+			if (old != null)
+				return old;
+			return cleans.remove(key) != null ? clean : null;
+		}
+
+		@Override
+		public void clear() {
+			cleans.clear();
+			others.clear();
+		}
+
+		@Override
+		public Set<Entry<Identifier, Taint>> entrySet() {
+			return new AbstractSet<>() {
+
+				@Override
+				public int size() {
+					return TaintMap.this.size();
+				}
+
+				@Override
+				public Iterator<Entry<Identifier, Taint>> iterator() {
+					return new EntryIterator();
+				}
+			};
+		}
+
+		// iterates over the other identifiers first, and then over the clean
+		// ones
+		private final class EntryIterator implements Iterator<Entry<Identifier, Taint>> {
+
+			private final Iterator<Entry<Identifier, Taint>> tainted = others.entrySet().iterator();
+
+			private final Iterator<Identifier> untainted = cleans.keySet().iterator();
+
+			@Override
+			public boolean hasNext() {
+				return tainted.hasNext() || untainted.hasNext();
+			}
+
+			@Override
+			public Entry<Identifier, Taint> next() {
+				if (tainted.hasNext())
+					return tainted.next();
+				if (untainted.hasNext())
+					return new SimpleImmutableEntry<>(untainted.next(), clean);
+				throw new NoSuchElementException();
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.cfg.CFG;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * A {@link SemanticCheck} that issues no warnings, but dumps the results of
+ * each CFG through a {@link JsonStateWriter} as soon as it is visited.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class StateDumper<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	private final Path file;
+
+	private final boolean gzip;
+
+	private JsonStateWriter writer;
+
+	private long nanos;
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param file the file where the results are dumped
+	 * @param gzip whether or not the file has to be compressed
+	 */
+	public StateDumper(
+			Path file,
+			boolean gzip) {
+		this.file = file;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Yields the time spent opening the file and dumping the results into it,
+	 * that happens while the other checks are executing. The file is closed
+	 * after all the other checks have terminated, and that is not included.
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public void beforeExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		long start = System.nanoTime();
+		try {
+			writer = new JsonStateWriter(file, gzip);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to create " + file, e);
+		} finally {
+			nanos += System.nanoTime() - start;
+		}
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph) {
+		long start = System.nanoTime();
+		try {
+			writer.write(graph, tool.getResultOf(graph));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to dump the results of " + graph, e);
+		} finally {
+			nanos += System.nanoTime() - start;
+		}
+		// the statements have already been dumped
+		return false;
+	}
+
+	@Override
+	public void afterExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to close " + file, e);
+		} finally {
+			writer = null;
+		}
+	}
+}
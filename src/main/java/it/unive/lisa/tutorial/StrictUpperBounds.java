@@ -1,8 +1,11 @@
 package it.unive.lisa.tutorial;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
 import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.SemanticOracle;
-import it.unive.lisa.analysis.lattices.InverseSetLattice;
+import it.unive.lisa.analysis.lattices.FunctionalLattice.FunctionalLift;
 import it.unive.lisa.analysis.lattices.Satisfiability;
 import it.unive.lisa.analysis.nonrelational.Environment;
 import it.unive.lisa.analysis.nonrelational.NonRelationalDomain;
@@ -15,7 +18,11 @@ import it.unive.lisa.symbolic.value.Identifier;
 import it.unive.lisa.symbolic.value.ValueExpression;
 import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
 import it.unive.lisa.symbolic.value.operator.binary.*;
+import it.unive.lisa.util.representation.SetRepresentation;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -30,16 +37,49 @@ public class StrictUpperBounds
 		// have to make IdSet an NRVD even if we do not need it
 		Environment<StrictUpperBounds, ValueExpression, StrictUpperBounds.IdSet>
 		// we make explicit that this is a value domain
-		implements ValueDomain<StrictUpperBounds> {
+		implements ValueDomain<StrictUpperBounds>,
+		// this allows to dump bounds without building their representation
+		JsonStreamable {
+
+	// whether this is the element built by the no-argument constructor, from
+	// whose top element analyses start
+	private final boolean prototype;
+
+	// whether the analyses started from the prototype intern their sets
+	private final boolean intern;
 
 	public StrictUpperBounds() {
-		super(new IdSet(Collections.emptySet()).top());
+		this(false);
+	}
+
+	/**
+	 * Builds the element from whose top element analyses start, as
+	 * {@link #StrictUpperBounds()} does, that can also make equal sets of
+	 * identifiers of each analysis share the same instance (see
+	 * {@link Interner}).
+	 *
+	 * @param intern whether or not the sets of the analyses are interned
+	 */
+	public StrictUpperBounds(
+			boolean intern) {
+		super(new IdSet(Collections.emptySet(), true, intern).top());
+		this.prototype = true;
+		this.intern = intern;
 	}
 
+	/**
+	 * Builds an element whose sets of identifiers are numbered as the given
+	 * lattice (see {@link IdSet#fromElements(Set)}).
+	 *
+	 * @param lattice  the underlying lattice
+	 * @param function the bounds of each variable
+	 */
 	public StrictUpperBounds(
 			IdSet lattice,
 			Map<Identifier, IdSet> function) {
-		super(lattice, function);
+		super(lattice, function == null || function instanceof BoundsMap ? function : new BoundsMap(lattice, function));
+		this.prototype = false;
+		this.intern = false;
 	}
 
 	@Override
@@ -49,8 +89,24 @@ public class StrictUpperBounds
 		return new StrictUpperBounds(lattice, function);
 	}
 
+	@Override
+	public Map<Identifier, IdSet> mkNewFunction(
+			Map<Identifier, IdSet> other,
+			boolean preserveNull) {
+		// functions are persistent maps, so that copying them before an update
+		// (as done by putState, assign, ...) takes constant time
+		if (other == null)
+			return preserveNull ? null : new BoundsMap(lattice);
+		return new BoundsMap(lattice, other);
+	}
+
 	@Override
 	public StrictUpperBounds top() {
+		// each analysis asks the prototype for its starting state, that gets a
+		// fresh numbering of the identifiers so that the ones of earlier
+		// analyses are neither kept nor mixed with the new ones
+		if (prototype)
+			return new StrictUpperBounds(new IdSet(Collections.emptySet(), true, intern).top(), null);
 		return new StrictUpperBounds(lattice.top(), null);
 	}
 
@@ -59,24 +115,75 @@ public class StrictUpperBounds
 		return new StrictUpperBounds(lattice.bottom(), null);
 	}
 
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same content of representation()
+		JsonStateWriter.writeFunction(generator, this);
+	}
+
+	/**
+	 * Yields the variables whose bounds differ in this and in other, including the ones that have bounds in only one
+	 * of them. Since functions are persistent maps, the parts of them that are shared are not visited.
+	 *
+	 * @param other the other element
+	 *
+	 * @return the variables whose bounds differ
+	 */
+	public List<Identifier> differingKeys(
+			StrictUpperBounds other) {
+		BoundsMap mine = function == null ? new BoundsMap(lattice) : (BoundsMap) function;
+		BoundsMap theirs = other.function == null ? new BoundsMap(lattice) : (BoundsMap) other.function;
+		return mine.differingKeys(theirs);
+	}
+
+	@Override
+	public StrictUpperBounds lubAux(
+			StrictUpperBounds other)
+			throws SemanticException {
+		if (function == null || other.function == null)
+			return super.lubAux(other);
+		return liftDifferences(other, IdSet::lub);
+	}
+
+	@Override
+	public StrictUpperBounds wideningAux(
+			StrictUpperBounds other)
+			throws SemanticException {
+		if (function == null || other.function == null)
+			return super.wideningAux(other);
+		return liftDifferences(other, IdSet::widening);
+	}
+
+	private StrictUpperBounds liftDifferences(
+			StrictUpperBounds other,
+			FunctionalLift<IdSet> lifter)
+			throws SemanticException {
+		// the functional lattice considers missing variables as bottom: variables that have the same bounds in both
+		// elements, or that have bounds only in this one, keep them, and we only have to update the other ones
+		Map<Identifier, IdSet> result = mkNewFunction(function, false);
+		for (Identifier x : differingKeys(other)) {
+			IdSet mine = function.get(x);
+			IdSet theirs = other.function.get(x);
+			if (theirs != null)
+				result.put(x, mine == null ? theirs : lifter.lift(mine, theirs));
+		}
+		return mk(lattice.lub(other.lattice), result);
+	}
+
 	@Override
 	public StrictUpperBounds assign(
 			Identifier id,
 			ValueExpression expression,
 			ProgramPoint pp,
 			SemanticOracle oracle) throws SemanticException {
-		// cleanup: if a variable is reassigned, it can no longer be an upperbound of other variables
-		Map<Identifier, IdSet> cleanup = new HashMap<>();
-		for (Map.Entry<Identifier, IdSet> entry : this) {
-			if (entry.getKey().equals(id))
-				continue;
-			if (!entry.getValue().contains(id))
-				cleanup.put(entry.getKey(), entry.getValue());
-
-			Set<Identifier> copy = new HashSet<>(entry.getValue().elements);
-			copy.remove(id);
-			cleanup.put(entry.getKey(), new IdSet(copy));
-		}
+		// cleanup: if a variable is reassigned, it can no longer be an upperbound of other variables,
+		// and its own bounds are lost: the reverse index tells us which variables are bounded by it
+		BoundsMap cleanup = (BoundsMap) mkNewFunction(function, false);
+		cleanup.remove(id);
+		for (Identifier x : cleanup.boundedBy(id))
+			cleanup.put(x, cleanup.get(x).remove(id));
 
 		if (expression instanceof BinaryExpression) {
 			BinaryExpression be = (BinaryExpression) expression;
@@ -166,7 +273,7 @@ public class StrictUpperBounds
 			// [[x < y]](s) = s[x -> s(x) U s(y) U {y}]
 			IdSet s_x = getState(x);
 			IdSet s_y = getState(y);
-			IdSet y_singleton = new IdSet(Collections.singleton(y));
+			IdSet y_singleton = lattice.top().add(y);
 			IdSet set = s_x.glb(s_y).glb(y_singleton);
 			return putState(x, set);
 		} else if (operator instanceof ComparisonEq) {
@@ -210,34 +317,168 @@ public class StrictUpperBounds
 		return this;
 	}
 
+	/**
+	 * The function of {@link StrictUpperBounds}: a persistent map that also
+	 * keeps a reverse index from each identifier to the variables it bounds.
+	 */
+	private static class BoundsMap extends PersistentHashMap<Identifier, IdSet> {
+
+		// y -> { x | y is in the bounds of x }, stored as an IdSet for compactness
+		private final PersistentHashMap<Identifier, IdSet> reverse;
+
+		// the empty set, numbered as the sets stored in this map
+		private final IdSet empty;
+
+		private BoundsMap(
+				IdSet lattice) {
+			this.reverse = new PersistentHashMap<>();
+			this.empty = lattice.top();
+		}
+
+		private BoundsMap(
+				IdSet lattice,
+				Map<Identifier, IdSet> other) {
+			super(other instanceof BoundsMap ? other : Collections.emptyMap());
+			this.empty = lattice.top();
+			if (other instanceof BoundsMap)
+				this.reverse = new PersistentHashMap<>(((BoundsMap) other).reverse);
+			else {
+				this.reverse = new PersistentHashMap<>();
+				putAll(other);
+			}
+		}
+
+		/**
+		 * Yields the variables that are bounded by the given one. The result
+		 * is not affected by later updates of this map.
+		 *
+		 * @param id the identifier
+		 *
+		 * @return the variables having {@code id} as bound
+		 */
+		private IdSet boundedBy(
+				Identifier id) {
+			IdSet bounded = reverse.get(id);
+			return bounded == null ? empty : bounded;
+		}
+
+		@Override
+		public IdSet put(
+				Identifier key,
+				IdSet value) {
+			IdSet old = super.put(key, value);
+			if (old != null)
+				for (Identifier bound : old)
+					if (!value.contains(bound))
+						unlink(bound, key);
+			for (Identifier bound : value)
+				if (old == null || !old.contains(bound))
+					reverse.put(bound, boundedBy(bound).add(key));
+			return old;
+		}
+
+		@Override
+		public IdSet remove(
+				Object key) {
+			IdSet old = super.remove(key);
+			if (old != null)
+				for (Identifier bound : old)
+					unlink(bound, (Identifier) key);
+			return old;
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			reverse.clear();
+		}
+
+		private void unlink(
+				Identifier bound,
+				Identifier key) {
+			IdSet bounded = boundedBy(bound).remove(key);
+			if (bounded.isEmpty())
+				reverse.remove(bound);
+			else
+				reverse.put(bound, bounded);
+		}
+	}
+
 	public static class IdSet
 			// instances of this class are lattice elements such that:
 			// - their state (fields) hold the information contained into a single
 			//   variable
-			extends
-			// the inverse set lattice is a lattice implementation provided by LiSA that uses:
+			implements
+			// the lattice is the inverse set lattice (as InverseSetLattice provided by LiSA):
 			// - sets of elements as the abstract information carried by each lattice instance
 			// - superset inclusion as partial order
 			// - set intersection as lub
 			// - set union as glb
 			// this makes it so the less information you have, the more you are close to the top element
-			InverseSetLattice<IdSet, Identifier>
+			// sets are stored as bitsets over a numbering of the identifiers, so that all set
+			// operations work on several identifiers at a time: the numbering belongs to the
+			// analysis, and it is shared by all the sets built from the same top element
+			BaseLattice<IdSet>,
+			Iterable<Identifier>,
 			// this is a hack: we do not need the NRVD structure here, but we use it to
 			// plug this class inside environments
-			implements NonRelationalDomain<IdSet, ValueExpression, StrictUpperBounds> {
+			NonRelationalDomain<IdSet, ValueExpression, StrictUpperBounds>,
+			// this allows to dump sets without building their representation
+			JsonStreamable {
+
+		private static final long[] EMPTY = new long[0];
+
+		/**
+		 * The numbering of the identifiers of an analysis, together with the
+		 * constant elements of the analysis.
+		 */
+		private static final class Numbering {
+
+			// shared by all sets of the analysis so that bitsets can be compared
+			// directly (identifiers are never removed from it)
+			private final IdentifierIndex index = new IdentifierIndex();
+
+			// the table of canonical sets, used only if interning is enabled
+			private final Interner<IdSet> interner;
+
+			private IdSet top, bottom;
+
+			private Numbering(
+					boolean intern) {
+				this.interner = new Interner<>(intern);
+			}
+		}
+
+		private final Numbering numbering;
+
+		// bit i is set if the identifier with index i is in the set; the
+		// array never has trailing zero words, so that equal sets have
+		// equal arrays
+		private final long[] bits;
+
+		// whether or not this is the top or bottom element, valid only if
+		// the set is empty
+		private final boolean isTop;
+
+		// cached hash code, computed lazily (0 means not computed yet)
+		private int hash;
 
 		/**
-		 * Builds the lattice.
+		 * Builds the lattice, with a fresh numbering of the identifiers: the
+		 * sets to be compared with this one must be built through
+		 * {@link #fromElements(Set)}.
 		 *
 		 * @param elements the elements that are contained in the lattice
 		 */
 		public IdSet(
 				Set<Identifier> elements) {
-			super(elements, elements.isEmpty());
+			this(elements, elements.isEmpty());
 		}
 
 		/**
-		 * Builds the lattice.
+		 * Builds the lattice, with a fresh numbering of the identifiers: the
+		 * sets to be compared with this one must be built through
+		 * {@link #fromElements(Set)}.
 		 *
 		 * @param elements the elements that are contained in the lattice
 		 * @param isTop    whether or not this is the top or bottom element of the lattice, valid only if the set of
@@ -246,37 +487,273 @@ public class StrictUpperBounds
 		public IdSet(
 				Set<Identifier> elements,
 				boolean isTop) {
-			super(elements, isTop);
+			this(elements, isTop, false);
+		}
+
+		/**
+		 * Builds the lattice, with a fresh numbering of the identifiers: the
+		 * sets to be compared with this one must be built through
+		 * {@link #fromElements(Set)}.
+		 *
+		 * @param elements the elements that are contained in the lattice
+		 * @param isTop    whether or not this is the top or bottom element of the lattice, valid only if the set of
+		 *                 elements is empty
+		 * @param intern   whether or not equal sets built from this one share the same instance (see
+		 *                 {@link Interner})
+		 */
+		public IdSet(
+				Set<Identifier> elements,
+				boolean isTop,
+				boolean intern) {
+			this.numbering = new Numbering(intern);
+			this.bits = toBits(numbering, elements);
+			this.isTop = isTop && bits.length == 0;
+			numbering.top = numbering.interner.forceIntern(new IdSet(numbering, EMPTY, true));
+			numbering.bottom = numbering.interner.forceIntern(new IdSet(numbering, EMPTY, false));
+		}
+
+		private IdSet(
+				Numbering numbering,
+				long[] bits,
+				boolean isTop) {
+			this.numbering = numbering;
+			this.bits = bits;
+			this.isTop = isTop && bits.length == 0;
+		}
+
+		/**
+		 * Yields the set of the given identifiers, numbered as this one.
+		 *
+		 * @param elements the elements of the set
+		 *
+		 * @return the set, that is the top element if {@code elements} is empty
+		 */
+		public IdSet fromElements(
+				Set<Identifier> elements) {
+			return mk(toBits(numbering, elements));
+		}
+
+		private static long[] toBits(
+				Numbering numbering,
+				Set<Identifier> elements) {
+			long[] bits = EMPTY;
+			for (Identifier id : elements) {
+				int index = numbering.index.indexOf(id);
+				if (index >> 6 >= bits.length)
+					bits = Arrays.copyOf(bits, (index >> 6) + 1);
+				bits[index >> 6] |= 1L << index;
+			}
+			return bits;
+		}
+
+		private static long[] trim(
+				long[] bits) {
+			int length = bits.length;
+			while (length > 0 && bits[length - 1] == 0)
+				length--;
+			return length == bits.length ? bits : length == 0 ? EMPTY : Arrays.copyOf(bits, length);
+		}
+
+		private IdSet mk(
+				long[] bits) {
+			// as in the inverse set lattice, an empty set is the top element
+			return bits.length == 0 ? numbering.top : numbering.interner.intern(new IdSet(numbering, bits, true));
+		}
+
+		@Override
+		public IdSet lubAux(
+				IdSet other)
+				throws SemanticException {
+			// intersection
+			long[] lub = new long[Math.min(bits.length, other.bits.length)];
+			for (int i = 0; i < lub.length; i++)
+				lub[i] = bits[i] & other.bits[i];
+			return mk(trim(lub));
+		}
+
+		@Override
+		public IdSet glbAux(
+				IdSet other)
+				throws SemanticException {
+			// union
+			long[] longer = bits.length >= other.bits.length ? bits : other.bits;
+			long[] shorter = longer == bits ? other.bits : bits;
+			long[] glb = longer.clone();
+			for (int i = 0; i < shorter.length; i++)
+				glb[i] |= shorter[i];
+			return mk(glb);
+		}
+
+		@Override
+		public boolean lessOrEqualAux(
+				IdSet other)
+				throws SemanticException {
+			// superset inclusion
+			return containsAll(other);
+		}
+
+		private boolean containsAll(
+				IdSet other) {
+			if (other.bits.length > bits.length)
+				// the last word of other is not empty
+				return false;
+			for (int i = 0; i < other.bits.length; i++)
+				if ((other.bits[i] & ~bits[i]) != 0)
+					return false;
+			return true;
 		}
 
 		@Override
 		public IdSet wideningAux(IdSet other) throws SemanticException {
 			// widening as provided in the paper
-			return other.elements.containsAll(elements) ? other : top();
+			return other.containsAll(this) ? other : top();
 		}
 
 		@Override
 		public IdSet top() {
-			// isTop() is already redefined in the superclass
-			return new IdSet(Collections.emptySet(), true);
+			return numbering.top;
+		}
+
+		@Override
+		public boolean isTop() {
+			return isTop;
 		}
 
 		@Override
 		public IdSet bottom() {
-			// isBottom() is already redefined in the superclass
-			return new IdSet(Collections.emptySet(), false);
+			return numbering.bottom;
 		}
 
 		@Override
-		public IdSet mk(Set<Identifier> set) {
-			return new IdSet(set);
+		public boolean isBottom() {
+			return !isTop && bits.length == 0;
+		}
+
+		public boolean contains(
+				Identifier id) {
+			int index = numbering.index.lookup(id);
+			return index >= 0 && index >> 6 < bits.length && (bits[index >> 6] & (1L << index)) != 0;
 		}
 
 		public IdSet add(
 				Identifier id) {
-			Set<Identifier> res = new HashSet<>(elements);
-			res.add(id);
-			return new IdSet(res);
+			int index = numbering.index.indexOf(id);
+			if (index >> 6 < bits.length && (bits[index >> 6] & (1L << index)) != 0)
+				return this;
+			long[] res = Arrays.copyOf(bits, Math.max(bits.length, (index >> 6) + 1));
+			res[index >> 6] |= 1L << index;
+			return mk(res);
+		}
+
+		public IdSet remove(
+				Identifier id) {
+			if (!contains(id))
+				return this;
+			int index = numbering.index.lookup(id);
+			long[] res = bits.clone();
+			res[index >> 6] &= ~(1L << index);
+			return mk(trim(res));
+		}
+
+		public int size() {
+			int size = 0;
+			for (long word : bits)
+				size += Long.bitCount(word);
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return bits.length == 0;
+		}
+
+		/**
+		 * Yields the elements of this set, in the order they have been
+		 * numbered.
+		 *
+		 * @return the elements
+		 */
+		public Set<Identifier> elements() {
+			Set<Identifier> elements = new LinkedHashSet<>();
+			for (Identifier id : this)
+				elements.add(id);
+			return elements;
+		}
+
+		@Override
+		public Iterator<Identifier> iterator() {
+			return new Iterator<>() {
+
+				private int word = 0;
+
+				private long remaining = bits.length == 0 ? 0 : bits[0];
+
+				@Override
+				public boolean hasNext() {
+					while (remaining == 0 && word < bits.length - 1)
+						remaining = bits[++word];
+					return remaining != 0;
+				}
+
+				@Override
+				public Identifier next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					int index = (word << 6) + Long.numberOfTrailingZeros(remaining);
+					remaining &= remaining - 1;
+					return numbering.index.get(index);
+				}
+			};
+		}
+
+		@Override
+		public int hashCode() {
+			// sets are immutable, so we can compute this only once
+			int h = hash;
+			if (h == 0)
+				hash = h = Arrays.hashCode(bits) * 31 + (isTop ? 1231 : 1237);
+			return h;
+		}
+
+		@Override
+		public boolean equals(
+				Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			IdSet other = (IdSet) obj;
+			if (hash != 0 && other.hash != 0 && hash != other.hash)
+				// this avoids comparing the bits of different sets
+				return false;
+			// sets of different analyses are never equal, as their bits have different meanings
+			return numbering == other.numbering && isTop == other.isTop && Arrays.equals(bits, other.bits);
+		}
+
+		@Override
+		public String toString() {
+			if (isTop())
+				return Lattice.TOP_STRING;
+
+			if (isBottom())
+				return Lattice.BOTTOM_STRING;
+
+			return elements().toString();
+		}
+
+		@Override
+		public StructuredRepresentation representation() {
+			return new SetRepresentation(elements(), StringRepresentation::new);
+		}
+
+		@Override
+		public void writeJson(
+				JsonGenerator generator)
+				throws IOException {
+			// the same elements of representation()
+			generator.writeStartArray();
+			for (Identifier id : this)
+				generator.writeString(id.toString());
+			generator.writeEndArray();
 		}
 
 		@Override
@@ -1,5 +1,6 @@
 package it.unive.lisa.tutorial;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.unive.lisa.analysis.Lattice;
 import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.SemanticOracle;
@@ -17,6 +18,7 @@ import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
 import it.unive.lisa.util.representation.StringRepresentation;
 import it.unive.lisa.util.representation.StructuredRepresentation;
 
+import java.io.IOException;
 import java.util.Objects;
 
 public class Taint
@@ -28,7 +30,11 @@ public class Taint
 		BaseNonRelationalValueDomain<
 				// java requires this type parameter to have this class
 				// as type in fields/methods
-				Taint> {
+				Taint>,
+		// this allows to store taintedness in a PackedValueEnvironment
+		PackedLattice<Taint>,
+		// this allows to dump taintedness without building its representation
+		JsonStreamable {
 
 	/**
 	 * The annotation used to mark tainted variables.
@@ -58,9 +64,21 @@ public class Taint
 	private static final Taint CLEAN = new Taint(false);
 	private static final Taint BOTTOM = new Taint(null);
 
+	// the elements above, indexed by their ordinals
+	private static final Taint[] ELEMENTS = { BOTTOM, CLEAN, TAINT };
+
+	// as for Signs, the lattice operations are computed once by the reference implementations below, and then
+	// evaluating them (and the expressions, that just propagate taintedness through the lub) is a lookup
+	private static final Taint[][] LUB = TransferTables.binary(ELEMENTS, Taint::baseLub);
+	private static final Taint[][] GLB = TransferTables.binary(ELEMENTS, Taint::baseGlb);
+	private static final boolean[][] LEQ = TransferTables.relation(ELEMENTS, Taint::baseLessOrEqual);
+
 	// this is just to distinguish the three elements
 	private final Boolean taint;
 
+	// the position of this element in ELEMENTS
+	private final int ordinal;
+
 	public Taint() {
 		this(true);
 	}
@@ -68,12 +86,22 @@ public class Taint
 	public Taint(
 			Boolean taint) {
 		this.taint = taint;
+		this.ordinal = taint == null ? 0 : taint ? 2 : 1;
 	}
 
 	public boolean isPossiblyTainted() {
 		return this == TAINT;
 	}
 
+	/**
+	 * Yields the element of clean values.
+	 *
+	 * @return the clean element
+	 */
+	public Taint clean() {
+		return CLEAN;
+	}
+
 	@Override
 	public boolean equals(
 			Object o) {
@@ -120,6 +148,80 @@ public class Taint
 		return TAINT;
 	}
 
+	// the lattice operations below replace the ones of BaseLattice (that are used to build the tables) with lookups
+
+	@Override
+	public Taint lub(
+			Taint other)
+			throws SemanticException {
+		return other == null ? this : LUB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public Taint widening(
+			Taint other)
+			throws SemanticException {
+		// the lattice is finite, so widening is the lub
+		return other == null ? this : LUB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public Taint glb(
+			Taint other)
+			throws SemanticException {
+		return other == null ? this : GLB[ordinal][other.ordinal];
+	}
+
+	@Override
+	public boolean lessOrEqual(
+			Taint other)
+			throws SemanticException {
+		return other != null && LEQ[ordinal][other.ordinal];
+	}
+
+	// the operations of BaseLattice, used to build the tables
+
+	private Taint baseLub(
+			Taint other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.lub(other);
+	}
+
+	private Taint baseGlb(
+			Taint other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.glb(other);
+	}
+
+	private boolean baseLessOrEqual(
+			Taint other)
+			throws SemanticException {
+		return BaseNonRelationalValueDomain.super.lessOrEqual(other);
+	}
+
+	// encoding for PackedValueEnvironment below: since the lattice is a
+	// chain, each code includes the bits of the ones below it
+
+	@Override
+	public int bits() {
+		return 2;
+	}
+
+	@Override
+	public int encode() {
+		if (taint == null)
+			return 0b00;
+		return taint ? 0b11 : 0b01;
+	}
+
+	@Override
+	public Taint decode(
+			int code) {
+		if (code == 0b00)
+			return BOTTOM;
+		return code == 0b01 ? CLEAN : TAINT;
+	}
+
 	@Override
 	public StructuredRepresentation representation() {
 		// this method serializes instances of this domain
@@ -131,6 +233,19 @@ public class Taint
 		return new StringRepresentation("#");
 	}
 
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation()
+		if (this == BOTTOM)
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else if (this == CLEAN)
+			generator.writeString("_");
+		else
+			generator.writeString("#");
+	}
+
 	// logic for evaluating expressions below
 
 	@Override
@@ -192,7 +307,7 @@ public class Taint
 			ProgramPoint pp,
 			SemanticOracle oracle)
 			throws SemanticException {
-		return left.lub(right);
+		return LUB[left.ordinal][right.ordinal];
 	}
 
 	@Override
@@ -204,7 +319,7 @@ public class Taint
 			ProgramPoint pp,
 			SemanticOracle oracle)
 			throws SemanticException {
-		return left.lub(middle).lub(right);
+		return LUB[LUB[left.ordinal][middle.ordinal].ordinal][right.ordinal];
 	}
 
 	@Override
@@ -0,0 +1,236 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisSetupException;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.conf.FixpointConfiguration;
+import it.unive.lisa.interprocedural.InterproceduralAnalysis;
+import it.unive.lisa.interprocedural.InterproceduralAnalysisException;
+import it.unive.lisa.interprocedural.OpenCallPolicy;
+import it.unive.lisa.interprocedural.callgraph.CallGraph;
+import it.unive.lisa.program.Application;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
+import it.unive.lisa.util.collections.workset.WorkingSet;
+import it.unive.lisa.util.datastructures.graph.algorithms.FixpointException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A {@link TimedInterproceduralAnalysis} that makes the widening of
+ * {@link Interval} use the integer constants of the program (and their
+ * neighbours) as thresholds, so that loops like {@code while (b < 10)} are
+ * stabilized at {@code [0, 10]} instead of {@code [0, +Inf]}. The thresholds
+ * are handed to the intervals through the {@link WideningThresholds} given to
+ * both this analysis and the top element of the intervals (see
+ * {@link Interval#Interval(WideningThresholds)}). How many iterations are
+ * performed before widening is still controlled by
+ * {@link it.unive.lisa.conf.LiSAConfiguration#wideningThreshold}, and the
+ * descending phase by
+ * {@link it.unive.lisa.conf.LiSAConfiguration#descendingPhaseType}.
+ * <br>
+ * <br>
+ * The analysis also counts how many times the fixpoint processes each loop
+ * head (see {@link #getIterations()}), to tune the widening delay against the
+ * precision of the results.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class ThresholdWideningAnalysis<A extends AbstractState<A>> extends TimedInterproceduralAnalysis<A> {
+
+	private final WideningThresholds widening;
+
+	private final Set<Long> thresholds = new TreeSet<>();
+
+	// the application of the last run
+	private Application app;
+
+	// how many times each statement has been processed by the last run
+	private final Map<Statement, Integer> visits = new HashMap<>();
+
+	/**
+	 * Builds the analysis.
+	 *
+	 * @param analysis the analysis to delegate to
+	 * @param widening the thresholds of the intervals of the analysis, that
+	 *                     are set to the ones collected from the program
+	 */
+	public ThresholdWideningAnalysis(
+			InterproceduralAnalysis<A> analysis,
+			WideningThresholds widening) {
+		super(analysis);
+		this.widening = widening;
+	}
+
+	/**
+	 * Yields the thresholds collected from the program.
+	 *
+	 * @return the thresholds, sorted
+	 */
+	public Set<Long> getThresholds() {
+		return Collections.unmodifiableSet(thresholds);
+	}
+
+	/**
+	 * Yields how many times each loop head has been processed by the fixpoints
+	 * computed by the last run of this analysis, in both the ascending and the
+	 * descending phases and summing up all the fixpoints over the same cfg.
+	 * The statements are counted while the fixpoints run, through the working
+	 * sets they use (see {@link CountingWorkingSet}).
+	 *
+	 * @return the number of iterations of each loop head
+	 */
+	public Map<Statement, Integer> getIterations() {
+		Map<Statement, Integer> result = new HashMap<>();
+		if (app == null)
+			return result;
+
+		for (CFG cfg : app.getAllCFGs())
+			for (Statement head : cfg.getCycleEntries())
+				if (visits.containsKey(head))
+					result.put(head, visits.get(head));
+		return result;
+	}
+
+	@Override
+	public void init(
+			Application app,
+			CallGraph callgraph,
+			OpenCallPolicy policy)
+			throws InterproceduralAnalysisException {
+		thresholds.clear();
+		for (CFG cfg : app.getAllCFGs())
+			for (Statement st : cfg.getNodes())
+				collect(st);
+		widening.set(thresholds);
+		this.app = app;
+		super.init(app, callgraph, policy);
+	}
+
+	private void collect(
+			Statement st) {
+		if (st instanceof Literal && ((Literal<?>) st).getValue() instanceof Integer) {
+			// guards like i < c and i <= c stabilize at c, c - 1 or c + 1
+			long c = (Integer) ((Literal<?>) st).getValue();
+			thresholds.add(c - 1);
+			thresholds.add(c);
+			thresholds.add(c + 1);
+		} else if (st instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) st).getSubExpressions())
+				collect(sub);
+	}
+
+	@Override
+	public void fixpoint(
+			AnalysisState<A> entryState,
+			Class<? extends WorkingSet<Statement>> fixpointWorkingSet,
+			FixpointConfiguration conf)
+			throws FixpointException {
+		// the working sets are built by the delegate through WorkingSet.of,
+		// that can only call a static factory: this is how the ones built
+		// during this fixpoint find the working set to delegate to, and the
+		// map to count into
+		visits.clear();
+		CountingWorkingSet.RUN.set(new CountingWorkingSet.Run(fixpointWorkingSet, visits));
+		try {
+			super.fixpoint(entryState, CountingWorkingSet.class, conf);
+		} finally {
+			CountingWorkingSet.RUN.remove();
+		}
+	}
+
+	/**
+	 * A {@link WorkingSet} that delegates to the one of the configuration,
+	 * counting how many times each statement is popped. Instances can only be
+	 * built while a {@link ThresholdWideningAnalysis} computes its fixpoint,
+	 * on the same thread.
+	 */
+	public static final class CountingWorkingSet implements WorkingSet<Statement> {
+
+		// what the working sets built on each thread count into
+		private static final ThreadLocal<Run> RUN = new ThreadLocal<>();
+
+		private static final class Run {
+
+			private final Class<? extends WorkingSet<Statement>> workingSet;
+
+			private final Map<Statement, Integer> visits;
+
+			private Run(
+					Class<? extends WorkingSet<Statement>> workingSet,
+					Map<Statement, Integer> visits) {
+				this.workingSet = workingSet;
+				this.visits = visits;
+			}
+		}
+
+		private final WorkingSet<Statement> ws;
+
+		private final Map<Statement, Integer> visits;
+
+		private CountingWorkingSet(
+				WorkingSet<Statement> ws,
+				Map<Statement, Integer> visits) {
+			this.ws = ws;
+			this.visits = visits;
+		}
+
+		/**
+		 * Builds a new working set, that counts into the analysis computing
+		 * its fixpoint on the current thread.
+		 *
+		 * @return the working set
+		 *
+		 * @throws AnalysisSetupException if the working set to delegate to
+		 *                                    cannot be built
+		 */
+		public static CountingWorkingSet mk()
+				throws AnalysisSetupException {
+			Run run = RUN.get();
+			if (run == null)
+				throw new IllegalStateException("No fixpoint of a ThresholdWideningAnalysis is running");
+			return new CountingWorkingSet(WorkingSet.of(run.workingSet), run.visits);
+		}
+
+		@Override
+		public void push(
+				Statement e) {
+			ws.push(e);
+		}
+
+		@Override
+		public Statement pop() {
+			Statement st = ws.pop();
+			visits.merge(st, 1, Integer::sum);
+			return st;
+		}
+
+		@Override
+		public Statement peek() {
+			return ws.peek();
+		}
+
+		@Override
+		public int size() {
+			return ws.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return ws.isEmpty();
+		}
+
+		@Override
+		public Collection<Statement> getContents() {
+			return ws.getContents();
+		}
+	}
+}
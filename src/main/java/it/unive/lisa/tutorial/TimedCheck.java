@@ -0,0 +1,111 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A {@link SemanticCheck} that delegates everything to another one, recording
+ * when the checks phase starts and ends. The phase is timed once, in
+ * {@link #beforeExecution(CheckToolWithAnalysisResults)} and
+ * {@link #afterExecution(CheckToolWithAnalysisResults)}, as timing each visit
+ * would cost as much as the visits of the cheapest checks.
+ *
+ * @param <A> the type of {@link AbstractState} inspected by the check
+ */
+public class TimedCheck<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	private final SemanticCheck<A> check;
+
+	private long start;
+
+	private long end;
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param check the check to delegate to
+	 */
+	public TimedCheck(
+			SemanticCheck<A> check) {
+		this.check = check;
+	}
+
+	/**
+	 * Yields the instant when the checks phase started, as given by
+	 * {@link System#nanoTime()}.
+	 *
+	 * @return the instant
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * Yields the instant when the checks phase ended, as given by
+	 * {@link System#nanoTime()}.
+	 *
+	 * @return the instant
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	@Override
+	public void beforeExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		start = System.nanoTime();
+		check.beforeExecution(tool);
+	}
+
+	@Override
+	public void afterExecution(
+			CheckToolWithAnalysisResults<A> tool) {
+		check.afterExecution(tool);
+		end = System.nanoTime();
+	}
+
+	@Override
+	public boolean visitUnit(
+			CheckToolWithAnalysisResults<A> tool,
+			Unit unit) {
+		return check.visitUnit(tool, unit);
+	}
+
+	@Override
+	public void visitGlobal(
+			CheckToolWithAnalysisResults<A> tool,
+			Unit unit,
+			Global global,
+			boolean instance) {
+		check.visitGlobal(tool, unit, global, instance);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph) {
+		return check.visit(tool, graph);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph,
+			Statement node) {
+		return check.visit(tool, graph, node);
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<A> tool,
+			CFG graph,
+			Edge edge) {
+		return check.visit(tool, graph, edge);
+	}
+}
@@ -0,0 +1,156 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.StatementStore;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.symbols.SymbolAliasing;
+import it.unive.lisa.conf.FixpointConfiguration;
+import it.unive.lisa.interprocedural.FixpointResults;
+import it.unive.lisa.interprocedural.InterproceduralAnalysis;
+import it.unive.lisa.interprocedural.InterproceduralAnalysisException;
+import it.unive.lisa.interprocedural.OpenCallPolicy;
+import it.unive.lisa.interprocedural.callgraph.CallGraph;
+import it.unive.lisa.interprocedural.callgraph.CallResolutionException;
+import it.unive.lisa.program.Application;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.call.CFGCall;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.call.OpenCall;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+import it.unive.lisa.type.Type;
+import it.unive.lisa.util.collections.workset.WorkingSet;
+import it.unive.lisa.util.datastructures.graph.algorithms.FixpointException;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * An {@link InterproceduralAnalysis} that delegates everything to another one,
+ * measuring the time spent computing the fixpoint.
+ *
+ * @param <A> the type of {@link AbstractState} computed by the analysis
+ */
+public class TimedInterproceduralAnalysis<A extends AbstractState<A>> implements InterproceduralAnalysis<A> {
+
+	private final InterproceduralAnalysis<A> analysis;
+
+	private long fixpointNanos;
+
+	/**
+	 * Builds the analysis.
+	 *
+	 * @param analysis the analysis to delegate to
+	 */
+	public TimedInterproceduralAnalysis(
+			InterproceduralAnalysis<A> analysis) {
+		this.analysis = analysis;
+	}
+
+	/**
+	 * Yields the time spent in {@link #fixpoint(AnalysisState, Class, FixpointConfiguration)}.
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	public long getFixpointNanos() {
+		return fixpointNanos;
+	}
+
+	@Override
+	public boolean needsCallGraph() {
+		return analysis.needsCallGraph();
+	}
+
+	@Override
+	public void init(
+			Application app,
+			CallGraph callgraph,
+			OpenCallPolicy policy)
+			throws InterproceduralAnalysisException {
+		analysis.init(app, callgraph, policy);
+	}
+
+	@Override
+	public void fixpoint(
+			AnalysisState<A> entryState,
+			Class<? extends WorkingSet<Statement>> fixpointWorkingSet,
+			FixpointConfiguration conf)
+			throws FixpointException {
+		long start = System.nanoTime();
+		try {
+			analysis.fixpoint(entryState, fixpointWorkingSet, conf);
+		} finally {
+			fixpointNanos += System.nanoTime() - start;
+		}
+	}
+
+	@Override
+	public Collection<AnalyzedCFG<A>> getAnalysisResultsOf(
+			CFG cfg) {
+		return analysis.getAnalysisResultsOf(cfg);
+	}
+
+	@Override
+	public AnalysisState<A> getAbstractResultOf(
+			CFGCall call,
+			AnalysisState<A> entryState,
+			ExpressionSet[] parameters,
+			StatementStore<A> expressions)
+			throws SemanticException {
+		return analysis.getAbstractResultOf(call, entryState, parameters, expressions);
+	}
+
+	@Override
+	public AnalysisState<A> getAbstractResultOf(
+			OpenCall call,
+			AnalysisState<A> entryState,
+			ExpressionSet[] parameters,
+			StatementStore<A> expressions)
+			throws SemanticException {
+		return analysis.getAbstractResultOf(call, entryState, parameters, expressions);
+	}
+
+	@Override
+	public Call resolve(
+			UnresolvedCall call,
+			Set<Type>[] types,
+			SymbolAliasing aliasing)
+			throws CallResolutionException {
+		return analysis.resolve(call, types, aliasing);
+	}
+
+	@Override
+	public FixpointResults<A> getFixpointResults() {
+		return analysis.getFixpointResults();
+	}
+
+	@Override
+	public Pair<AnalysisState<A>, ExpressionSet[]> scope(
+			AnalysisState<A> state,
+			ScopeToken scope,
+			ExpressionSet[] actuals)
+			throws SemanticException {
+		return analysis.scope(state, scope, actuals);
+	}
+
+	@Override
+	public AnalysisState<A> unscope(
+			CFGCall call,
+			ScopeToken scope,
+			AnalysisState<A> state)
+			throws SemanticException {
+		return analysis.unscope(call, scope, state);
+	}
+
+	@Override
+	public boolean returnsVoid(
+			Call call,
+			AnalysisState<A> returned) {
+		return analysis.returnsVoid(call, returned);
+	}
+}
@@ -0,0 +1,389 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.annotations.Annotations;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.*;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.ternary.TernaryOperator;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+import it.unive.lisa.util.representation.StringRepresentation;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A taint domain that records which source calls (see
+ * {@link Taint#TAINTED_ANNOTATION}) a tainted value might come from, so that
+ * warnings can name them (see {@link TracedTaintCheck}). Sources are
+ * identified by the location of the call, interned in a table shared by all
+ * the elements built from the same instance of this class, and each element
+ * stores the indexes of its sources in a small sorted array. Arrays never grow
+ * beyond a given cap: when a value might come from more sources, it is just
+ * tainted by unknown sources, that is the top element.
+ * <br>
+ * <br>
+ * The top element is also the value of variables that are not known to be
+ * clean, as in {@link Taint}.
+ */
+public class TracedTaint
+		implements
+		BaseNonRelationalValueDomain<TracedTaint>,
+		// this allows to dump sources without building their representation
+		JsonStreamable {
+
+	/**
+	 * The default maximum number of sources tracked for a value.
+	 */
+	public static final int DEFAULT_CAP = 8;
+
+	private static final int[] NONE = new int[0];
+
+	/**
+	 * The table of the sources found by an analysis, together with the
+	 * constant elements of the analysis.
+	 */
+	private static final class Table {
+
+		private final int cap;
+
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		private final List<String> sites = new ArrayList<>();
+
+		private TracedTaint top, clean, bottom;
+
+		private Table(
+				int cap) {
+			this.cap = cap;
+		}
+
+		// sources are interned during the fixpoint, but their names might be
+		// read by checks running in parallel
+		private synchronized int intern(
+				String site) {
+			return indexes.computeIfAbsent(site, s -> {
+				sites.add(s);
+				return sites.size() - 1;
+			});
+		}
+
+		private synchronized String site(
+				int index) {
+			return sites.get(index);
+		}
+	}
+
+	private final Table table;
+
+	// the sorted indexes of the sources, or null if the value might come from
+	// unknown sources (empty if the value is clean)
+	private final int[] sources;
+
+	// to distinguish bottom from clean, that both have no sources
+	private final boolean bottom;
+
+	/**
+	 * Builds the top element of a new analysis, with a fresh table of sources
+	 * and the default cap.
+	 */
+	public TracedTaint() {
+		this(DEFAULT_CAP);
+	}
+
+	/**
+	 * Builds the top element of a new analysis, with a fresh table of sources.
+	 *
+	 * @param cap the maximum number of sources tracked for a value
+	 */
+	public TracedTaint(
+			int cap) {
+		if (cap < 1)
+			throw new IllegalArgumentException("The cap must be positive");
+		this.table = new Table(cap);
+		this.sources = null;
+		this.bottom = false;
+		table.top = this;
+		table.clean = new TracedTaint(table, NONE, false);
+		table.bottom = new TracedTaint(table, NONE, true);
+	}
+
+	private TracedTaint(
+			Table table,
+			int[] sources,
+			boolean bottom) {
+		this.table = table;
+		this.sources = sources;
+		this.bottom = bottom;
+	}
+
+	/**
+	 * Yields the element of a value coming from the source called at the
+	 * given site.
+	 *
+	 * @param site the site of the call to the source
+	 *
+	 * @return the element
+	 */
+	public TracedTaint source(
+			String site) {
+		return new TracedTaint(table, new int[] { table.intern(site) }, false);
+	}
+
+	/**
+	 * Yields whether or not this value might be tainted.
+	 *
+	 * @return {@code true} if this value might be tainted
+	 */
+	public boolean isPossiblyTainted() {
+		return !bottom && (sources == null || sources.length > 0);
+	}
+
+	/**
+	 * Yields the sites of the sources this value might come from.
+	 *
+	 * @return the sites, in the order they have been found by the analysis,
+	 *             or {@code null} if the value might come from unknown sources
+	 */
+	public List<String> getSources() {
+		if (sources == null)
+			return null;
+		List<String> sites = new ArrayList<>(sources.length);
+		for (int source : sources)
+			sites.add(table.site(source));
+		return sites;
+	}
+
+	@Override
+	public boolean equals(
+			Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		TracedTaint other = (TracedTaint) o;
+		return bottom == other.bottom && Arrays.equals(sources, other.sources);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(sources) ^ Boolean.hashCode(bottom);
+	}
+
+	@Override
+	public TracedTaint top() {
+		return table.top;
+	}
+
+	@Override
+	public TracedTaint bottom() {
+		return table.bottom;
+	}
+
+	// elements are built by the merges below, so these cannot rely on
+	// reference equality
+
+	@Override
+	public boolean isTop() {
+		return sources == null;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return bottom;
+	}
+
+	@Override
+	public boolean lessOrEqualAux(
+			TracedTaint other)
+			throws SemanticException {
+		// both arrays are sorted: we check inclusion in a single pass
+		int j = 0;
+		for (int source : sources) {
+			while (j < other.sources.length && other.sources[j] < source)
+				j++;
+			if (j == other.sources.length || other.sources[j] != source)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public TracedTaint lubAux(
+			TracedTaint other)
+			throws SemanticException {
+		// merge of the sorted arrays, giving up as soon as the cap is exceeded
+		int[] merged = new int[Math.min(sources.length + other.sources.length, table.cap + 1)];
+		int i = 0, j = 0, k = 0;
+		while (i < sources.length || j < other.sources.length) {
+			if (k == table.cap)
+				return table.top;
+			if (j == other.sources.length || (i < sources.length && sources[i] < other.sources[j]))
+				merged[k++] = sources[i++];
+			else if (i == sources.length || other.sources[j] < sources[i])
+				merged[k++] = other.sources[j++];
+			else {
+				merged[k++] = sources[i++];
+				j++;
+			}
+		}
+		return new TracedTaint(table, Arrays.copyOf(merged, k), false);
+	}
+
+	@Override
+	public TracedTaint glbAux(
+			TracedTaint other)
+			throws SemanticException {
+		int[] common = new int[Math.min(sources.length, other.sources.length)];
+		int i = 0, j = 0, k = 0;
+		while (i < sources.length && j < other.sources.length)
+			if (sources[i] < other.sources[j])
+				i++;
+			else if (other.sources[j] < sources[i])
+				j++;
+			else {
+				common[k++] = sources[i++];
+				j++;
+			}
+		return k == 0 ? table.clean : new TracedTaint(table, Arrays.copyOf(common, k), false);
+	}
+
+	// the cap bounds the height of the lattice, so the default widening (the
+	// lub) is fine
+
+	@Override
+	public StructuredRepresentation representation() {
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		if (isTop())
+			return new StringRepresentation("#");
+		if (sources.length == 0)
+			return new StringRepresentation("_");
+		return new StringRepresentation(String.valueOf(getSources()));
+	}
+
+	@Override
+	public void writeJson(
+			JsonGenerator generator)
+			throws IOException {
+		// the same strings of representation(), but with an array of sources
+		if (isBottom())
+			generator.writeString(Lattice.BOTTOM_STRING);
+		else if (isTop())
+			generator.writeString("#");
+		else if (sources.length == 0)
+			generator.writeString("_");
+		else {
+			generator.writeStartArray();
+			for (int source : sources)
+				generator.writeString(table.site(source));
+			generator.writeEndArray();
+		}
+	}
+
+	// logic for evaluating expressions below
+
+	@Override
+	public TracedTaint evalIdentifier(
+			Identifier id,
+			ValueEnvironment<TracedTaint> environment,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		// as in Taint, annotations are found on the variables holding the
+		// values returned by calls, whose location is the one of the call
+		Annotations annots = id.getAnnotations();
+		if (annots.isEmpty())
+			return BaseNonRelationalValueDomain.super.evalIdentifier(id, environment, pp, oracle);
+
+		if (annots.contains(Taint.TAINTED_MATCHER))
+			return source(String.valueOf(id.getCodeLocation()));
+
+		if (annots.contains(Taint.CLEAN_MATCHER))
+			return table.clean;
+
+		return BaseNonRelationalValueDomain.super.evalIdentifier(id, environment, pp, oracle);
+	}
+
+	@Override
+	public TracedTaint evalNullConstant(
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return table.clean;
+	}
+
+	@Override
+	public TracedTaint evalNonNullConstant(
+			Constant constant,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return table.clean;
+	}
+
+	@Override
+	public TracedTaint evalUnaryExpression(
+			UnaryOperator operator,
+			TracedTaint arg,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return arg;
+	}
+
+	@Override
+	public TracedTaint evalBinaryExpression(
+			BinaryOperator operator,
+			TracedTaint left,
+			TracedTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Override
+	public TracedTaint evalTernaryExpression(
+			TernaryOperator operator,
+			TracedTaint left,
+			TracedTaint middle,
+			TracedTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left.lub(middle).lub(right);
+	}
+
+	@Override
+	public TracedTaint evalTypeCast(
+			BinaryExpression cast,
+			TracedTaint left,
+			TracedTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left;
+	}
+
+	@Override
+	public TracedTaint evalTypeConv(
+			BinaryExpression conv,
+			TracedTaint left,
+			TracedTaint right,
+			ProgramPoint pp,
+			SemanticOracle oracle)
+			throws SemanticException {
+		return left;
+	}
+}
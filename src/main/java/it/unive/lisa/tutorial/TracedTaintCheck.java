@@ -0,0 +1,45 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.program.cfg.Parameter;
+
+import java.util.List;
+
+/**
+ * A {@link SinkCheck} for the {@link TracedTaint} domain: as {@link TaintCheck},
+ * a warning is issued on each call passing a value that might be tainted to a
+ * sink, but the warning also names the source calls the value might come from,
+ * when these are known.
+ */
+public class TracedTaintCheck extends SinkCheck<TracedTaint> {
+
+	/**
+	 * Builds the check, that will inspect one CFG at a time.
+	 */
+	public TracedTaintCheck() {
+		this(1);
+	}
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param parallelism the number of CFGs that can be inspected in parallel
+	 */
+	public TracedTaintCheck(
+			int parallelism) {
+		super(parallelism);
+	}
+
+	@Override
+	protected String taintedness(
+			TracedTaint value,
+			Parameter sink) {
+		if (!value.isPossiblyTainted())
+			return null;
+		List<String> sources = value.getSources();
+		if (sources == null)
+			// too many sources, or none known (e.g., parameters of entry points)
+			return "tainted";
+		return "tainted by the source" + (sources.size() == 1 ? "" : "s") + " called at "
+				+ String.join(", ", sources);
+	}
+}
@@ -0,0 +1,142 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Precomputed transfer functions for finite lattices. The elements of the
+ * lattice are numbered by small ordinals (their position in the array passed
+ * to the methods of this class), and each function is evaluated once on all
+ * elements (or pairs of elements) when the table is built: afterwards,
+ * applying the function is just an array load, e.g.
+ * {@code table[left.ordinal][right.ordinal]}.
+ * <br>
+ * <br>
+ * Tables are meant to be built in static initializers, from a reference
+ * implementation of the functions (e.g., the lattice operations provided by
+ * {@link it.unive.lisa.analysis.BaseLattice}), so that the domain keeps the
+ * readable definition of its semantics.
+ */
+final class TransferTables {
+
+	/**
+	 * A unary function over the elements of a lattice.
+	 *
+	 * @param <L> the type of the elements
+	 */
+	@FunctionalInterface
+	interface Unary<L> {
+
+		L apply(
+				L arg)
+				throws SemanticException;
+	}
+
+	/**
+	 * A binary function over the elements of a lattice.
+	 *
+	 * @param <L> the type of the elements
+	 */
+	@FunctionalInterface
+	interface Binary<L> {
+
+		L apply(
+				L left,
+				L right)
+				throws SemanticException;
+	}
+
+	/**
+	 * A binary relation over the elements of a lattice.
+	 *
+	 * @param <L> the type of the elements
+	 */
+	@FunctionalInterface
+	interface Relation<L> {
+
+		boolean test(
+				L left,
+				L right)
+				throws SemanticException;
+	}
+
+	private TransferTables() {
+		// this class is just a static holder
+	}
+
+	/**
+	 * Tabulates the given unary function.
+	 *
+	 * @param <L>      the type of the elements
+	 * @param elements the elements, indexed by their ordinals
+	 * @param function the function
+	 *
+	 * @return the table, where position {@code i} holds the result on the
+	 *             element with ordinal {@code i}
+	 */
+	static <L> L[] unary(
+			L[] elements,
+			Unary<L> function) {
+		L[] table = Arrays.copyOf(elements, elements.length);
+		try {
+			for (int i = 0; i < elements.length; i++)
+				table[i] = function.apply(elements[i]);
+		} catch (SemanticException e) {
+			throw new IllegalStateException("Cannot tabulate a transfer function", e);
+		}
+		return table;
+	}
+
+	/**
+	 * Tabulates the given binary function.
+	 *
+	 * @param <L>      the type of the elements
+	 * @param elements the elements, indexed by their ordinals
+	 * @param function the function
+	 *
+	 * @return the table, where position {@code [i][j]} holds the result on
+	 *             the elements with ordinals {@code i} and {@code j}
+	 */
+	static <L> L[][] binary(
+			L[] elements,
+			Binary<L> function) {
+		@SuppressWarnings("unchecked")
+		L[][] table = (L[][]) Array.newInstance(elements.getClass(), elements.length);
+		try {
+			for (int i = 0; i < elements.length; i++) {
+				table[i] = Arrays.copyOf(elements, elements.length);
+				for (int j = 0; j < elements.length; j++)
+					table[i][j] = function.apply(elements[i], elements[j]);
+			}
+		} catch (SemanticException e) {
+			throw new IllegalStateException("Cannot tabulate a transfer function", e);
+		}
+		return table;
+	}
+
+	/**
+	 * Tabulates the given relation.
+	 *
+	 * @param <L>      the type of the elements
+	 * @param elements the elements, indexed by their ordinals
+	 * @param relation the relation
+	 *
+	 * @return the table, where position {@code [i][j]} tells whether the
+	 *             elements with ordinals {@code i} and {@code j} are related
+	 */
+	static <L> boolean[][] relation(
+			L[] elements,
+			Relation<L> relation) {
+		boolean[][] table = new boolean[elements.length][elements.length];
+		try {
+			for (int i = 0; i < elements.length; i++)
+				for (int j = 0; j < elements.length; j++)
+					table[i][j] = relation.test(elements[i], elements[j]);
+		} catch (SemanticException e) {
+			throw new IllegalStateException("Cannot tabulate a transfer function", e);
+		}
+		return table;
+	}
+}
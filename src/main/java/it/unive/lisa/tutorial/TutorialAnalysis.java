@@ -0,0 +1,249 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.heap.pointbased.FieldSensitivePointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.DescendingPhaseType;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+
+/**
+ * The analyses of the tutorial, each configured as in its JUnit test and
+ * paired with the input that the test analyzes.
+ */
+public enum TutorialAnalysis {
+
+	SIGNS("inputs/signs.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new Signs()),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	INTERVAL("inputs/signs.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new Interval()),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	THRESHOLD_INTERVAL("inputs/signs.imp") {
+		@Override
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		protected void setup(
+				LiSAConfiguration conf) {
+			WideningThresholds widening = new WideningThresholds();
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new Interval(widening)),
+					DefaultConfiguration.defaultTypeDomain());
+			// widening uses the constants of the program, and narrowing recovers the bounds it still loses
+			conf.interproceduralAnalysis = new ThresholdWideningAnalysis(conf.interproceduralAnalysis, widening);
+			conf.descendingPhaseType = DescendingPhaseType.NARROWING;
+		}
+	},
+
+	LONG_INTERVAL("inputs/signs.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new LongInterval()),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	PENTAGONS("inputs/pentagons.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					new FieldSensitivePointBasedHeap(),
+					new Pentagons(),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	OCTAGONS("inputs/pentagons.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					new FieldSensitivePointBasedHeap(),
+					new Octagons(),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	PARTITIONED_PENTAGONS("inputs/pentagons.imp") {
+		@Override
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		protected void setup(
+				LiSAConfiguration conf) {
+			// the packs are computed on the whole program before the fixpoint starts
+			VariablePacks packs = new VariablePacks();
+			conf.abstractState = DefaultConfiguration.simpleState(
+					new FieldSensitivePointBasedHeap(),
+					new PartitionedDomain<>(new Pentagons(), packs),
+					DefaultConfiguration.defaultTypeDomain());
+			conf.interproceduralAnalysis = new PackingAnalysis(conf.interproceduralAnalysis, packs);
+		}
+	},
+
+	UPPER_BOUNDS("inputs/upperbounds.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					new FieldSensitivePointBasedHeap(),
+					new StrictUpperBounds(),
+					DefaultConfiguration.defaultTypeDomain());
+		}
+	},
+
+	TAINT("inputs/taint.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new Taint()),
+					DefaultConfiguration.defaultTypeDomain());
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(new TaintCheck());
+		}
+	},
+
+	SPARSE_TAINT("inputs/taint.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new SparseTaintEnvironment(),
+					DefaultConfiguration.defaultTypeDomain());
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(new TaintCheck());
+		}
+	},
+
+	TRACED_TAINT("inputs/taint.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new TracedTaint()),
+					DefaultConfiguration.defaultTypeDomain());
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(new TracedTaintCheck());
+		}
+	},
+
+	LABELED_TAINT("inputs/labeled-taint.imp") {
+		@Override
+		protected void setup(
+				LiSAConfiguration conf) {
+			conf.abstractState = DefaultConfiguration.simpleState(
+					DefaultConfiguration.defaultHeapDomain(),
+					new ValueEnvironment<>(new LabeledTaint()),
+					DefaultConfiguration.defaultTypeDomain());
+			conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+			conf.semanticChecks.add(new LabeledTaintCheck());
+		}
+	};
+
+	private final String input;
+
+	private TutorialAnalysis(
+			String input) {
+		this.input = input;
+	}
+
+	/**
+	 * Yields the analysis with the given name. Names are case insensitive, and
+	 * underscores, dashes and a trailing {@code s} are ignored, so that, e.g.,
+	 * both {@code upperbounds} and {@code UPPER_BOUNDS} name
+	 * {@link #UPPER_BOUNDS}, and {@code intervals} names {@link #INTERVAL}.
+	 *
+	 * @param name the name
+	 *
+	 * @return the analysis
+	 *
+	 * @throws IllegalArgumentException if no analysis has the given name
+	 */
+	public static TutorialAnalysis forName(
+			String name) {
+		String normalized = normalize(name);
+		for (TutorialAnalysis analysis : values())
+			if (normalize(analysis.name()).equals(normalized))
+				return analysis;
+		throw new IllegalArgumentException("No analysis named " + name);
+	}
+
+	private static String normalize(
+			String name) {
+		String normalized = name.toLowerCase().replace("_", "").replace("-", "");
+		return normalized.endsWith("s") ? normalized.substring(0, normalized.length() - 1) : normalized;
+	}
+
+	/**
+	 * Yields the path of the program analyzed by the test of this analysis.
+	 *
+	 * @return the path of the input
+	 */
+	public String getInput() {
+		return input;
+	}
+
+	/**
+	 * Yields a fresh configuration for this analysis, that dumps the analysis
+	 * results as HTML graphs in the given directory.
+	 *
+	 * @param workdir the directory where files are generated
+	 *
+	 * @return the configuration
+	 */
+	public LiSAConfiguration configure(
+			String workdir) {
+		return configure(workdir, OutputMode.GRAPHS);
+	}
+
+	/**
+	 * Yields a fresh configuration for this analysis, that generates its
+	 * outputs in the given directory.
+	 *
+	 * @param workdir the directory where files are generated
+	 * @param mode    what the analysis dumps
+	 *
+	 * @return the configuration
+	 */
+	public LiSAConfiguration configure(
+			String workdir,
+			OutputMode mode) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir;
+		setup(conf);
+		mode.apply(conf);
+		return conf;
+	}
+
+	/**
+	 * Sets the abstract state, and the interprocedural analysis and checks
+	 * when needed, of the given configuration.
+	 *
+	 * @param conf the configuration
+	 */
+	protected abstract void setup(
+			LiSAConfiguration conf);
+}
@@ -0,0 +1,261 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.program.cfg.statement.call.CFGCall;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A partition of the variables of a program into packs, such that variables
+ * in different packs are never related by comparisons or subtractions (e.g.,
+ * {@code i < arraylen(arr)} or {@code r = x - y}). Relational domains can
+ * then track each pack independently (see {@link PartitionedDomain}).
+ * <br>
+ * <br>
+ * Packs are computed by a pre-analysis of the syntax of the program (see
+ * {@link #collect(Collection)}), and then frozen (see {@link #freeze()})
+ * before the analysis starts: the partition never changes while the fixpoint
+ * runs. Variables are identified by the cfg they belong to and by their name,
+ * so variables with the same name in different code members have different
+ * packs. Identifiers that the pre-analysis cannot see (e.g., heap locations or
+ * the temporaries of calls) are alone in their pack.
+ */
+public class VariablePacks {
+
+	// the constructs whose operands are related by relational domains
+	private static final Set<String> RELATIONS = Set.of("<", "<=", ">", ">=", "==", "!=", "-");
+
+	// the index of each variable, by cfg and name; once frozen, the index of its pack
+	private final Map<CFG, Map<String, Integer>> indexes = new HashMap<>();
+
+	// union-find over the indexes of the variables: roots are the packs
+	private int[] parent = new int[16];
+
+	private int size;
+
+	// the names of the variables in each pack, by root
+	private final Map<Integer, List<String>> members = new HashMap<>();
+
+	private volatile boolean frozen;
+
+	/**
+	 * Builds the packs of the given program, and freezes them.
+	 *
+	 * @param program the program
+	 *
+	 * @return the packs
+	 */
+	public static VariablePacks of(
+			Program program) {
+		VariablePacks packs = new VariablePacks();
+		packs.collect(program.getAllCFGs());
+		packs.freeze();
+		return packs;
+	}
+
+	/**
+	 * Runs the pre-analysis on the given cfgs, relating the variables that
+	 * appear in the same comparison or subtraction, together with the variable
+	 * the result is assigned to.
+	 *
+	 * @param cfgs the cfgs
+	 *
+	 * @throws IllegalStateException if the packs have already been frozen
+	 */
+	public synchronized void collect(
+			Collection<CFG> cfgs) {
+		if (frozen)
+			throw new IllegalStateException("Packs cannot change once frozen");
+		for (CFG cfg : cfgs) {
+			// formals are assigned at the calls, even if the body never uses them
+			for (Parameter formal : cfg.getDescriptor().getFormals())
+				index(cfg, formal.getName());
+			for (Statement st : cfg.getNodes())
+				collect(cfg, st, null);
+		}
+	}
+
+	/**
+	 * Freezes the packs: after this, the pre-analysis cannot relate other
+	 * variables, and the packs can be queried (also from several threads at
+	 * once) through {@link #packOf(Identifier, ProgramPoint)}.
+	 */
+	public synchronized void freeze() {
+		if (frozen)
+			return;
+		for (Map<String, Integer> variables : indexes.values())
+			variables.replaceAll((name, index) -> find(index));
+		frozen = true;
+	}
+
+	private void collect(
+			CFG cfg,
+			Statement st,
+			String target) {
+		if (!(st instanceof NaryExpression))
+			return;
+
+		Expression[] subs = ((NaryExpression) st).getSubExpressions();
+		if (st instanceof Assignment && subs[0] instanceof VariableRef) {
+			collect(cfg, subs[1], ((VariableRef) subs[0]).getName());
+			return;
+		}
+
+		if (RELATIONS.contains(((NaryExpression) st).getConstructName())) {
+			Set<String> names = new LinkedHashSet<>();
+			variables(st, names);
+			if (target != null)
+				names.add(target);
+			relate(cfg, names);
+		}
+
+		for (Expression sub : subs)
+			collect(cfg, sub, target);
+	}
+
+	private static void variables(
+			Statement st,
+			Set<String> names) {
+		if (st instanceof VariableRef)
+			names.add(((VariableRef) st).getName());
+		else if (st instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) st).getSubExpressions())
+				variables(sub, names);
+	}
+
+	/**
+	 * Yields the pack of the given identifier at the given program point,
+	 * that is, the one of the variable with the same name in the cfg of the
+	 * program point. At calls, where the variables of the caller are out of
+	 * scope, the identifiers that are not out of scope are the formals of the
+	 * callee, and are looked up in the cfgs targeted by the call.
+	 *
+	 * @param id the identifier
+	 * @param pp the program point where the identifier is used
+	 *
+	 * @return the index of the pack, or the name of the identifier if the
+	 *             pre-analysis has not seen it (and it is thus alone in its
+	 *             pack)
+	 *
+	 * @throws IllegalStateException if the packs have not been frozen yet
+	 */
+	public Object packOf(
+			Identifier id,
+			ProgramPoint pp) {
+		if (!frozen)
+			throw new IllegalStateException("Packs must be frozen before the analysis starts");
+
+		String name = name(id);
+		if (pp instanceof CFGCall && !(id instanceof OutOfScopeIdentifier))
+			for (CFG target : ((CFGCall) pp).getTargetedCFGs()) {
+				Integer pack = indexes.getOrDefault(target, Map.of()).get(name);
+				if (pack != null)
+					return pack;
+			}
+
+		Integer pack = indexes.getOrDefault(pp.getCFG(), Map.of()).get(name);
+		return pack == null ? name : pack;
+	}
+
+	/**
+	 * Yields the names of the variables in the given pack.
+	 *
+	 * @param pack the pack, as returned by
+	 *                 {@link #packOf(Identifier, ProgramPoint)}
+	 *
+	 * @return the names, in the order they have been seen
+	 */
+	public synchronized List<String> getVariables(
+			Object pack) {
+		if (pack instanceof String)
+			return List.of((String) pack);
+		return new ArrayList<>(members.getOrDefault(pack, List.of()));
+	}
+
+	/**
+	 * Yields all the packs.
+	 *
+	 * @return the names of the variables in each pack
+	 */
+	public synchronized Collection<List<String>> getPacks() {
+		List<List<String>> packs = new ArrayList<>();
+		for (List<String> pack : members.values())
+			packs.add(new ArrayList<>(pack));
+		return packs;
+	}
+
+	private static String name(
+			Identifier id) {
+		// identifiers out of scope are the same variables of the identifiers they wrap
+		while (id instanceof OutOfScopeIdentifier) {
+			OutOfScopeIdentifier out = (OutOfScopeIdentifier) id;
+			try {
+				id = out.popScope(out.getScope());
+			} catch (SemanticException e) {
+				// cannot happen, since the scope is the one of the identifier
+				break;
+			}
+		}
+		return id.getName();
+	}
+
+	private int find(
+			int index) {
+		while (parent[index] != index)
+			index = parent[index] = parent[parent[index]];
+		return index;
+	}
+
+	private int index(
+			CFG cfg,
+			String name) {
+		Map<String, Integer> variables = indexes.computeIfAbsent(cfg, c -> new HashMap<>());
+		Integer index = variables.get(name);
+		if (index != null)
+			return index;
+
+		int next = size++;
+		if (next == parent.length)
+			parent = Arrays.copyOf(parent, next * 2);
+		parent[next] = next;
+		variables.put(name, next);
+		members.put(next, new ArrayList<>(List.of(name)));
+		return next;
+	}
+
+	private void relate(
+			CFG cfg,
+			Collection<String> names) {
+		int root = -1;
+		for (String name : names) {
+			int other = find(index(cfg, name));
+			if (root == -1)
+				root = other;
+			else if (other != root) {
+				// the smallest index stays the root, so packs have stable names
+				int from = Math.max(root, other);
+				root = Math.min(root, other);
+				parent[from] = root;
+				members.get(root).addAll(members.remove(from));
+			}
+		}
+	}
+}
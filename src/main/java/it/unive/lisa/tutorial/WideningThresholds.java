@@ -0,0 +1,61 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.util.numeric.MathNumber;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The thresholds used by the widening of the {@link Interval}s of an analysis:
+ * unstable bounds are moved to the closest threshold before being moved to
+ * infinity. The thresholds are given to the top element of the analysis (see
+ * {@link Interval#Interval(WideningThresholds)}), that shares them with all the
+ * intervals derived from it, and they are usually collected from the program
+ * by a {@link ThresholdWideningAnalysis} before the fixpoint starts. Without
+ * thresholds, widening moves unstable bounds straight to infinity.
+ */
+public class WideningThresholds {
+
+	// replaced as a whole, so that widenings running on other threads never
+	// see a partially updated set
+	private volatile NavigableSet<MathNumber> thresholds = Collections.emptyNavigableSet();
+
+	/**
+	 * Sets the thresholds, replacing the ones set before.
+	 *
+	 * @param thresholds the thresholds
+	 */
+	public void set(
+			Collection<? extends Number> thresholds) {
+		NavigableSet<MathNumber> set = new TreeSet<>();
+		for (Number threshold : thresholds)
+			set.add(new MathNumber(threshold.longValue()));
+		this.thresholds = Collections.unmodifiableNavigableSet(set);
+	}
+
+	/**
+	 * Yields the smallest threshold greater than or equal to the given bound.
+	 *
+	 * @param bound the bound
+	 *
+	 * @return the threshold, or {@code null} if there is none
+	 */
+	public MathNumber above(
+			MathNumber bound) {
+		return thresholds.ceiling(bound);
+	}
+
+	/**
+	 * Yields the greatest threshold less than or equal to the given bound.
+	 *
+	 * @param bound the bound
+	 *
+	 * @return the threshold, or {@code null} if there is none
+	 */
+	public MathNumber below(
+			MathNumber bound) {
+		return thresholds.floor(bound);
+	}
+}
@@ -0,0 +1,72 @@
+package it.unive.lisa.tutorial;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.imp.ParsingException;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisRunnerTest {
+
+    @Test
+    public void testRunner() throws ParsingException, AnalysisException, IOException {
+        // we run the taint analysis as in its test, timing each phase
+        AnalysisRunner runner = new AnalysisRunner("outputs/runner");
+        AnalysisRunner.Result result = runner.run(TutorialAnalysis.TAINT);
+        assertTrue(result.statements > 0);
+        assertTrue(result.fixpointNanos > 0);
+        assertTrue(result.checksNanos > 0);
+        assertTrue(result.peakHeap > 0);
+
+        // one line for the header and one for the result
+        Path csv = Paths.get("outputs/runner/results.csv");
+        AnalysisRunner.writeCsv(List.of(result), csv);
+        assertEquals(2, Files.readAllLines(csv).size());
+        AnalysisRunner.writeJson(List.of(result), Paths.get("outputs/runner/results.json"));
+    }
+
+    @Test
+    public void testHeadless() throws ParsingException, AnalysisException, IOException {
+        // without graphs, the warnings are streamed and no html file is generated
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        AnalysisRunner runner = new AnalysisRunner("outputs/runner-headless", OutputMode.HEADLESS, new PrintStream(stream));
+        AnalysisRunner.Result result = runner.run(TutorialAnalysis.TAINT);
+        assertEquals(result.warnings, stream.toString().lines().count());
+
+        Path workdir = Paths.get("outputs/runner-headless/taint");
+        if (Files.exists(workdir))
+            try (Stream<Path> files = Files.walk(workdir)) {
+                assertTrue(files.noneMatch(file -> file.toString().endsWith(".html")));
+            }
+    }
+
+    @Test
+    public void testJsonStates() throws ParsingException, AnalysisException, IOException {
+        // the states are streamed to a compressed file, that must contain valid json
+        AnalysisRunner runner = new AnalysisRunner("outputs/runner-json", OutputMode.JSON, null);
+        runner.run(TutorialAnalysis.PENTAGONS);
+
+        int cfgs = 0;
+        try (JsonParser parser = new JsonFactory().createParser(
+                new GZIPInputStream(Files.newInputStream(Paths.get("outputs/runner-json/pentagons/states.json.gz"))))) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken())
+                if (token == JsonToken.FIELD_NAME && parser.getCurrentName().equals("cfg"))
+                    cfgs++;
+        }
+        assertEquals(3, cfgs);
+    }
+}
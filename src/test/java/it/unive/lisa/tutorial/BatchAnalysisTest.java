@@ -0,0 +1,29 @@
+package it.unive.lisa.tutorial;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchAnalysisTest {
+
+    @Test
+    public void testBatch() throws IOException, InterruptedException {
+        // we analyze all the inputs of the tutorial with signs, two at a time
+        List<Path> files = BatchAnalysis.inputs(Paths.get("inputs"));
+        BatchAnalysis batch = new BatchAnalysis(TutorialAnalysis.forName("signs"), OutputMode.HEADLESS, 2,
+                Paths.get("outputs/batch-test"));
+        List<AnalysisRunner.Result> results = batch.run(files);
+
+        // each program has been analyzed, and the results follow the order of the inputs
+        assertTrue(batch.getFailures().isEmpty());
+        assertEquals(files.size(), results.size());
+        for (int i = 0; i < files.size(); i++)
+            assertEquals(files.get(i).toString(), results.get(i).input);
+    }
+}
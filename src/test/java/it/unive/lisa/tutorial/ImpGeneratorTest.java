@@ -0,0 +1,53 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.Program;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ImpGeneratorTest {
+
+    @Test
+    public void testDeterministic() {
+        // the same seed must yield the same program, and a different one a different program
+        String first = new ImpGenerator(ImpGenerator.Options.scaled(2, 1)).generate();
+        String second = new ImpGenerator(ImpGenerator.Options.scaled(2, 1)).generate();
+        String third = new ImpGenerator(ImpGenerator.Options.scaled(2, 2)).generate();
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+    }
+
+    @Test
+    public void testGenerated() throws IOException, ParsingException, AnalysisException {
+        // we generate a program ten times bigger than the inputs of the tutorial
+        ImpGenerator.Options options = ImpGenerator.Options.scaled(10, 42);
+        new ImpGenerator(options).write("outputs/generated/gen10.imp");
+
+        // the generated program must be parseable
+        Program program = IMPFrontend.processFile("outputs/generated/gen10.imp");
+        assertEquals(options.classes, program.getUnits().size());
+
+        // and it must be possible to run the taint analysis on it
+        LiSAConfiguration conf = new DefaultConfiguration();
+        conf.workdir = "outputs/generated/taint";
+        conf.abstractState = DefaultConfiguration.simpleState(
+                DefaultConfiguration.defaultHeapDomain(),
+                new ValueEnvironment<>(new Taint()),
+                DefaultConfiguration.defaultTypeDomain());
+        conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+        conf.semanticChecks.add(new TaintCheck());
+        new LiSA(conf).run(program);
+    }
+}
@@ -0,0 +1,41 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.imp.ParsingException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalAnalysisTest {
+
+    @Test
+    public void testIncremental() throws IOException, ParsingException, AnalysisException {
+        Path file = new ImpGenerator(ImpGenerator.Options.scaled(3, 7)).write("outputs/incremental/program.imp");
+        IncrementalAnalysis incremental = new IncrementalAnalysis(TutorialAnalysis.TAINT, "outputs/incremental");
+
+        // the first version is analyzed entirely
+        IncrementalAnalysis.Update first = incremental.analyze(file.toString());
+        assertTrue(first.analyzed.size() > 3);
+
+        // an unchanged version is not analyzed at all
+        IncrementalAnalysis.Update second = incremental.analyze(file.toString());
+        assertTrue(second.analyzed.isEmpty());
+        assertEquals(first.warnings, second.warnings);
+
+        // a new class with a new method does not affect the other ones
+        String code = new String(Files.readAllBytes(file));
+        Files.write(file, (code + "\nclass extra {\n\tunused(x) {\n\t\tdef y = x + 1;\n\t\treturn y;\n\t}\n}\n").getBytes());
+        IncrementalAnalysis.Update third = incremental.analyze(file.toString());
+        assertEquals(1, third.analyzed.size());
+        assertTrue(third.analyzed.iterator().next().contains("extra::unused"));
+
+        // and the warnings are the ones of a full analysis
+        IncrementalAnalysis full = new IncrementalAnalysis(TutorialAnalysis.TAINT, "outputs/incremental");
+        assertEquals(full.analyze(file.toString()).warnings, third.warnings);
+    }
+}
@@ -5,12 +5,34 @@ import org.junit.Test;
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.DescendingPhaseType;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Return;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Untyped;
+import it.unive.lisa.util.numeric.MathNumber;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class IntervalTest {
 
@@ -40,4 +62,73 @@ public class IntervalTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testInternedInterval() throws ParsingException, AnalysisException {
+		// same as above, but with canonical instances for intervals
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = "outputs/interval-interned";
+		conf.analysisGraphs = GraphType.HTML;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Interval(new WideningThresholds(), true)),
+				DefaultConfiguration.defaultTypeDomain());
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+	}
+
+	@Test
+	public void testInterningPerAnalysis() throws SemanticException {
+		// only the analysis asking for it interns its intervals
+		Interval interned = new Interval(new WideningThresholds(), true);
+		Interval plain = new Interval(new WideningThresholds(), false);
+		MathNumber one = MathNumber.ONE, two = new MathNumber(2);
+		assertSame(interned.fromBounds(one, two), interned.fromBounds(one, two));
+		assertSame(interned.fromBounds(one, two), interned.fromBounds(one, one).lub(interned.fromBounds(two, two)));
+		assertNotSame(plain.fromBounds(one, two), plain.fromBounds(one, two));
+		assertEquals(plain.fromBounds(one, two), interned.fromBounds(one, two));
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testThresholdInterval() throws ParsingException, AnalysisException, SemanticException {
+		// same as the first test, but widening uses the constants of the program and narrowing is applied after it
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = "outputs/interval-thresholds";
+		conf.analysisGraphs = GraphType.HTML;
+		WideningThresholds widening = new WideningThresholds();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Interval(widening)),
+				DefaultConfiguration.defaultTypeDomain());
+		ThresholdWideningAnalysis analysis = new ThresholdWideningAnalysis(conf.interproceduralAnalysis, widening);
+		conf.interproceduralAnalysis = analysis;
+		conf.descendingPhaseType = DescendingPhaseType.NARROWING;
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		// 10 appears in the guard of the loop, and the loop head is processed at least once
+		assertTrue(analysis.getThresholds().contains(10L));
+		assertFalse(analysis.getIterations().isEmpty());
+
+		// widening stops at the threshold instead of +Inf, and narrowing
+		// then refines b to the value it has when the loop exits
+		CFG loop = null;
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals("loop"))
+				loop = cfg;
+		Statement ret = null;
+		for (Statement st : loop.getNodes())
+			if (st instanceof Return)
+				ret = st;
+		Interval expected = new Interval(widening).fromBounds(new MathNumber(10), new MathNumber(10));
+		Variable b = new Variable(Untyped.INSTANCE, "b", SyntheticLocation.INSTANCE);
+		Collection<AnalyzedCFG<SimpleAbstractState<MonolithicHeap, ValueEnvironment<Interval>, TypeEnvironment<InferredTypes>>>> results = analysis
+				.getAnalysisResultsOf(loop);
+		assertFalse(results.isEmpty());
+		for (AnalyzedCFG<SimpleAbstractState<MonolithicHeap, ValueEnvironment<Interval>, TypeEnvironment<InferredTypes>>> result : results)
+			assertEquals(expected, result.getAnalysisStateAfter(ret).getState().getValueState().getState(b));
+	}
+}
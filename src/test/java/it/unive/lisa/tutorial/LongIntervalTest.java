@@ -0,0 +1,77 @@
+package it.unive.lisa.tutorial;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+
+public class LongIntervalTest {
+
+	@Test
+	public void testLongInterval() throws ParsingException, AnalysisException {
+		// we parse the program to get the CFG representation of the code in it
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+
+		// we build a new configuration for the analysis
+		LiSAConfiguration conf = new DefaultConfiguration();
+
+		// we specify where we want files to be generated
+		conf.workdir = "outputs/longinterval";
+
+		// we specify the visual format of the analysis results
+		conf.analysisGraphs = GraphType.HTML;
+
+		// we specify the analysis that we want to execute
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new LongInterval()),
+				DefaultConfiguration.defaultTypeDomain());
+
+		// we instantiate LiSA with our configuration
+		LiSA lisa = new LiSA(conf);
+
+		// finally, we tell LiSA to analyze the program
+		lisa.run(program);
+	}
+
+	@Test
+	public void testSameArithmeticOfInterval() {
+		long[] bounds = { Long.MIN_VALUE, -3, -1, 0, 1, 2, 9, Long.MAX_VALUE };
+		List<LongInterval> elements = new ArrayList<>();
+		for (long low : bounds)
+			for (long high : bounds)
+				if (low <= high && low != Long.MAX_VALUE && high != Long.MIN_VALUE)
+					elements.add(new LongInterval(low, high));
+
+		BinaryOperator[] operators = { NumericNonOverflowingAdd.INSTANCE, NumericNonOverflowingSub.INSTANCE,
+				NumericNonOverflowingMul.INSTANCE, NumericNonOverflowingDiv.INSTANCE };
+		for (BinaryOperator operator : operators)
+			for (LongInterval left : elements)
+				for (LongInterval right : elements)
+					assertEquals(operator + " " + left + " " + right,
+							LongInterval.of(Interval.TOP.evalBinaryExpression(operator, left.toInterval(),
+									right.toInterval(), null, null)),
+							LongInterval.TOP.evalBinaryExpression(operator, left, right, null, null));
+
+		// division multiplies by the rounded reciprocal, as Interval does
+		assertEquals(new LongInterval(2, 3), LongInterval.TOP.evalBinaryExpression(NumericNonOverflowingDiv.INSTANCE,
+				new LongInterval(9, 9), new LongInterval(3, 3), null, null));
+	}
+}
@@ -0,0 +1,303 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.FieldSensitivePointBasedHeap;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.ModularWorstCaseAnalysis;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.BinaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonEq;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonGe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.type.Untyped;
+import org.junit.Test;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OctagonsTest {
+
+    private static final Variable I = variable("i");
+
+    private static final Variable LEN = variable("len");
+
+    private static final Variable X = variable("x");
+
+    private static final Variable Y = variable("y");
+
+    private static final Variable Z = variable("z");
+
+    @Test
+    public void testOctagons() throws ParsingException, AnalysisException, SemanticException {
+        // we parse the program to get the CFG representation of the code in it
+        Program program = IMPFrontend.processFile("inputs/pentagons.imp");
+
+        // we build a new configuration for the analysis
+        LiSAConfiguration conf = new DefaultConfiguration();
+
+        // we specify where we want files to be generated
+        conf.workdir = "outputs/octagons";
+
+        // we specify the visual format of the analysis results
+        conf.analysisGraphs = GraphType.HTML;
+
+        // we specify the analysis that we want to execute
+
+        conf.abstractState = DefaultConfiguration.simpleState(
+                new FieldSensitivePointBasedHeap(),
+                new Octagons(),
+                DefaultConfiguration.defaultTypeDomain());
+
+        // we keep the interprocedural analysis to inspect its results
+        ModularWorstCaseAnalysis<SimpleAbstractState<FieldSensitivePointBasedHeap, Octagons,
+                TypeEnvironment<InferredTypes>>> analysis = new ModularWorstCaseAnalysis<>();
+        conf.interproceduralAnalysis = analysis;
+
+        // we instantiate LiSA with our configuration
+        LiSA lisa = new LiSA(conf);
+
+        // finally, we tell LiSA to analyze the program
+        lisa.run(program);
+
+        // in every loop, i starts from 0 and is only incremented: it is
+        // non-negative when the array is accessed, and positive after the
+        // increment
+        ValueExpression nonNegative = binary(I, constant(0), ComparisonGe.INSTANCE);
+        ValueExpression positive = binary(I, constant(1), ComparisonGe.INSTANCE);
+        int increments = 0;
+        for (CFG cfg : program.getAllCFGs())
+            for (Statement st : cfg.getNodes()) {
+                if (!(st instanceof Assignment))
+                    continue;
+                Assignment assignment = (Assignment) st;
+                if (!assignment.getLeft().toString().equals("i")
+                        || !(assignment.getRight() instanceof BinaryExpression))
+                    continue;
+                increments++;
+                Collection<AnalyzedCFG<SimpleAbstractState<FieldSensitivePointBasedHeap, Octagons,
+                        TypeEnvironment<InferredTypes>>>> results = analysis.getAnalysisResultsOf(cfg);
+                assertFalse(results.isEmpty());
+                for (AnalyzedCFG<SimpleAbstractState<FieldSensitivePointBasedHeap, Octagons,
+                        TypeEnvironment<InferredTypes>>> result : results) {
+                    Octagons before = result.getAnalysisStateBefore(st).getState().getValueState();
+                    Octagons after = result.getAnalysisStateAfter(st).getState().getValueState();
+                    assertEquals(Satisfiability.SATISFIED, before.satisfies(nonNegative, st, null));
+                    assertEquals(Satisfiability.SATISFIED, after.satisfies(positive, st, null));
+                }
+            }
+        assertEquals(3, increments);
+    }
+
+    @Test
+    public void testLoopBody() throws SemanticException {
+        // i = 0; while (i < len) i = i + 1; where len is non-negative: the
+        // iterates of the loop head are computed by hand, applying widening
+        // as the fixpoint does
+        Octagons entry = new Octagons()
+                .assume(binary(LEN, constant(0), ComparisonGe.INSTANCE), null, null, null)
+                .assign(I, constant(0), null, null);
+        ValueExpression guard = binary(I, LEN, ComparisonLt.INSTANCE);
+        ValueExpression increment = binary(I, constant(1), NumericNonOverflowingAdd.INSTANCE);
+
+        Octagons head = entry, body, next;
+        int iterations = 0;
+        while (true) {
+            body = head.assume(guard, null, null, null);
+            next = body.assign(I, increment, null, null);
+            Octagons joined = entry.lub(next);
+            if (joined.lessOrEqual(head))
+                break;
+            head = head.widening(joined);
+            assertTrue(++iterations < 10);
+        }
+
+        // in the body, i - len <= -1 is tight, and closing the matrix
+        // derives len >= 1 from it and from i >= 0
+        ValueExpression diff = binary(I, LEN, NumericNonOverflowingSub.INSTANCE);
+        assertEquals(Satisfiability.SATISFIED,
+                body.satisfies(binary(diff, constant(-1), ComparisonLe.INSTANCE), null, null));
+        assertEquals(Satisfiability.UNKNOWN,
+                body.satisfies(binary(diff, constant(-2), ComparisonLe.INSTANCE), null, null));
+        assertEquals(Satisfiability.SATISFIED,
+                body.satisfies(binary(LEN, constant(1), ComparisonGe.INSTANCE), null, null));
+        assertEquals(new Octagons()
+                .assume(binary(I, constant(0), ComparisonGe.INSTANCE), null, null, null)
+                .assume(binary(diff, constant(-1), ComparisonLe.INSTANCE), null, null, null), body);
+
+        // the increment translates the constraints of i, that stay closed
+        assertEquals(Satisfiability.SATISFIED,
+                next.satisfies(binary(diff, constant(0), ComparisonLe.INSTANCE), null, null));
+        assertEquals(Satisfiability.UNKNOWN,
+                next.satisfies(binary(diff, constant(-1), ComparisonLe.INSTANCE), null, null));
+        assertEquals(Satisfiability.SATISFIED,
+                next.satisfies(binary(I, constant(1), ComparisonGe.INSTANCE), null, null));
+
+        // the head keeps i <= len, so the loop exits with i = len
+        Octagons exit = head.assume(binary(I, LEN, ComparisonGe.INSTANCE), null, null, null);
+        assertEquals(Satisfiability.SATISFIED,
+                exit.satisfies(binary(I, LEN, ComparisonEq.INSTANCE), null, null));
+    }
+
+    @Test
+    public void testLub() throws SemanticException {
+        // x in [0, 1] and y = x, joined with x in [2, 3] and y = x + 1:
+        // 0 <= y - x <= 1 bounds y in [0, 4] and x + y in [0, 7]
+        Octagons first = bounded(X, 0, 1)
+                .assume(binary(Y, X, ComparisonEq.INSTANCE), null, null, null);
+        Octagons second = bounded(X, 2, 3)
+                .assume(binary(Y, binary(X, constant(1), NumericNonOverflowingAdd.INSTANCE), ComparisonEq.INSTANCE),
+                        null, null, null);
+        Octagons lub = first.lub(second);
+
+        Octagons expected = bounded(X, 0, 3)
+                .assume(binary(X, Y, ComparisonLe.INSTANCE), null, null, null)
+                .assume(binary(Y, binary(X, constant(1), NumericNonOverflowingAdd.INSTANCE), ComparisonLe.INSTANCE),
+                        null, null, null);
+        assertEquals(expected, lub);
+        assertEquals(expected.hashCode(), lub.hashCode());
+        assertTrue(first.lessOrEqual(lub));
+        assertTrue(second.lessOrEqual(lub));
+        assertFalse(lub.lessOrEqual(first));
+        assertEquals(Satisfiability.SATISFIED, lub.satisfies(
+                binary(binary(X, Y, NumericNonOverflowingAdd.INSTANCE), constant(7), ComparisonLe.INSTANCE),
+                null, null));
+        assertEquals(Satisfiability.UNKNOWN, lub.satisfies(
+                binary(binary(X, Y, NumericNonOverflowingAdd.INSTANCE), constant(6), ComparisonLe.INSTANCE),
+                null, null));
+
+        // a variable constrained in only one of the operands is unconstrained in the lub
+        Octagons third = second.assign(LEN, constant(5), null, null);
+        assertEquals(lub, first.lub(third));
+        assertFalse(first.lub(third).knowsIdentifier(LEN));
+    }
+
+    @Test
+    public void testWidening() throws SemanticException {
+        // x in [0, 0] and y = x, widened with x in [0, 1] and y = x: the
+        // upper bounds of x, y and x + y are unstable and dropped, while
+        // y = x and the lower bounds are kept
+        Octagons first = bounded(X, 0, 0)
+                .assume(binary(Y, X, ComparisonEq.INSTANCE), null, null, null);
+        Octagons second = bounded(X, 0, 1)
+                .assume(binary(Y, X, ComparisonEq.INSTANCE), null, null, null);
+        Octagons widening = first.widening(second);
+
+        Octagons expected = new Octagons()
+                .assume(binary(X, constant(0), ComparisonGe.INSTANCE), null, null, null)
+                .assume(binary(Y, X, ComparisonEq.INSTANCE), null, null, null);
+        assertEquals(expected, widening);
+        assertTrue(first.lessOrEqual(widening));
+        assertTrue(second.lessOrEqual(widening));
+
+        // the result is stable with respect to larger increments
+        Octagons third = bounded(X, 0, 5)
+                .assume(binary(Y, X, ComparisonEq.INSTANCE), null, null, null);
+        assertTrue(third.lessOrEqual(widening));
+        assertEquals(widening, widening.widening(third));
+
+        // only the constraints that grow are dropped: y - x does, x - y does not
+        Octagons shifted = bounded(X, 0, 0)
+                .assume(binary(Y, binary(X, constant(1), NumericNonOverflowingAdd.INSTANCE), ComparisonEq.INSTANCE),
+                        null, null, null);
+        Octagons relaxed = first.widening(first.lub(shifted));
+        assertTrue(shifted.lessOrEqual(relaxed));
+        assertEquals(Satisfiability.UNKNOWN,
+                relaxed.satisfies(binary(Y, X, ComparisonLe.INSTANCE), null, null));
+        assertEquals(Satisfiability.SATISFIED,
+                relaxed.satisfies(binary(X, Y, ComparisonLe.INSTANCE), null, null));
+    }
+
+    @Test
+    public void testUnsatisfiable() throws SemanticException {
+        Octagons top = new Octagons();
+
+        // contradicting bounds
+        assertTrue(bounded(X, 0, 3).assume(binary(X, constant(4), ComparisonGe.INSTANCE), null, null, null)
+                .isBottom());
+
+        // a negative cycle: x < y and y < x
+        Octagons lt = top.assume(binary(X, Y, ComparisonLt.INSTANCE), null, null, null);
+        assertFalse(lt.isBottom());
+        assertTrue(lt.assume(binary(Y, X, ComparisonLt.INSTANCE), null, null, null).isBottom());
+
+        // only closure relates the sum to the bounds: x + y <= 1 with x >= 1 and y >= 1
+        Octagons sum = top.assume(
+                binary(binary(X, Y, NumericNonOverflowingAdd.INSTANCE), constant(1), ComparisonLe.INSTANCE),
+                null, null, null)
+                .assume(binary(X, constant(1), ComparisonGe.INSTANCE), null, null, null);
+        assertFalse(sum.isBottom());
+        assertTrue(sum.assume(binary(Y, constant(1), ComparisonGe.INSTANCE), null, null, null).isBottom());
+        assertEquals(Satisfiability.NOT_SATISFIED,
+                sum.satisfies(binary(Y, constant(1), ComparisonGe.INSTANCE), null, null));
+
+        // strengthening rounds the bounds of variables already in the same
+        // pack: x - y <= 0, x + y <= 1, z - y <= 0 and z + y <= 1 give 2x <= 1
+        // and 2z <= 1, that is x <= 0 and z <= 0, so x + z >= 1 has no solution
+        Octagons packed = top
+                .assume(binary(X, binary(Z, constant(100), NumericNonOverflowingAdd.INSTANCE), ComparisonLe.INSTANCE),
+                        null, null, null)
+                .assume(binary(Y, binary(Z, constant(100), NumericNonOverflowingAdd.INSTANCE), ComparisonLe.INSTANCE),
+                        null, null, null)
+                .assume(binary(X, Y, ComparisonLe.INSTANCE), null, null, null)
+                .assume(binary(binary(X, Y, NumericNonOverflowingAdd.INSTANCE), constant(1), ComparisonLe.INSTANCE),
+                        null, null, null)
+                .assume(binary(Z, Y, ComparisonLe.INSTANCE), null, null, null)
+                .assume(binary(binary(Z, Y, NumericNonOverflowingAdd.INSTANCE), constant(1), ComparisonLe.INSTANCE),
+                        null, null, null);
+        ValueExpression total = binary(X, Z, NumericNonOverflowingAdd.INSTANCE);
+        assertTrue(packed.assume(binary(total, constant(1), ComparisonGe.INSTANCE), null, null, null).isBottom());
+        assertEquals(Satisfiability.SATISFIED,
+                packed.satisfies(binary(total, constant(0), ComparisonLe.INSTANCE), null, null));
+
+        // bottom is absorbed by further constraints and by the lub
+        Octagons bottom = lt.assume(binary(Y, X, ComparisonLt.INSTANCE), null, null, null);
+        assertTrue(bottom.assume(binary(X, constant(0), ComparisonGe.INSTANCE), null, null, null).isBottom());
+        assertEquals(lt, bottom.lub(lt));
+        assertNotEquals(lt, bottom);
+    }
+
+    private static Octagons bounded(Variable x, int low, int high) throws SemanticException {
+        return new Octagons()
+                .assume(binary(x, constant(low), ComparisonGe.INSTANCE), null, null, null)
+                .assume(binary(x, constant(high), ComparisonLe.INSTANCE), null, null, null);
+    }
+
+    private static Variable variable(String name) {
+        return new Variable(Untyped.INSTANCE, name, SyntheticLocation.INSTANCE);
+    }
+
+    private static Constant constant(int value) {
+        return new Constant(Untyped.INSTANCE, value, SyntheticLocation.INSTANCE);
+    }
+
+    private static ValueExpression binary(ValueExpression left, ValueExpression right, BinaryOperator operator) {
+        return new it.unive.lisa.symbolic.value.BinaryExpression(Untyped.INSTANCE, left, right, operator,
+                SyntheticLocation.INSTANCE);
+    }
+}
@@ -0,0 +1,138 @@
+package it.unive.lisa.tutorial;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Untyped;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedValueEnvironmentTest {
+
+	// enough variables to span several words, and to leave some of them out
+	// of the window of each environment
+	private static final int VARIABLES = 50;
+
+	private static final int ROUNDS = 2000;
+
+	@Test
+	public void testPackedSigns() throws SemanticException {
+		compareWithValueEnvironment(new Signs(), 42);
+	}
+
+	@Test
+	public void testPackedTaint() throws SemanticException {
+		compareWithValueEnvironment(new Taint(), 42);
+	}
+
+	@Test
+	public void testOneSidedVariable() throws SemanticException {
+		// a variable defined on one branch only keeps its value after the
+		// join, instead of becoming tainted
+		Taint domain = new Taint();
+		Identifier x = new Variable(Untyped.INSTANCE, "x", SyntheticLocation.INSTANCE);
+		Identifier y = new Variable(Untyped.INSTANCE, "y", SyntheticLocation.INSTANCE);
+		PackedValueEnvironment<Taint> prototype = new PackedValueEnvironment<>(domain).top();
+		PackedValueEnvironment<Taint> left = prototype.mk(domain, Map.of(x, domain.clean(), y, domain.clean()));
+		PackedValueEnvironment<Taint> right = prototype.mk(domain, Map.of(y, domain.clean()));
+		ValueEnvironment<Taint> lub = left.lub(right);
+		assertEquals(domain.clean(), lub.getState(x));
+		assertEquals(new ValueEnvironment<>(domain, Map.of(x, domain.clean(), y, domain.clean())).getKeys(),
+				lub.getKeys());
+	}
+
+	private static <T extends NonRelationalValueDomain<T> & PackedLattice<T>> void compareWithValueEnvironment(
+			T domain,
+			long seed)
+			throws SemanticException {
+		// lub, widening, glb and lessOrEqual of random environments, where
+		// each one misses some variables, must agree with the ones of
+		// ValueEnvironment
+		Random random = new Random(seed);
+		List<T> elements = elements(domain);
+		List<Identifier> ids = new ArrayList<>();
+		for (int i = 0; i < VARIABLES; i++)
+			ids.add(new Variable(Untyped.INSTANCE, "v" + i, SyntheticLocation.INSTANCE));
+		PackedValueEnvironment<T> prototype = new PackedValueEnvironment<>(domain).top();
+
+		for (int round = 0; round < ROUNDS; round++) {
+			Map<Identifier, T> right = randomFunction(random, ids, elements);
+			Map<Identifier, T> left = random.nextInt(4) == 0 ? below(random, right, elements)
+					: randomFunction(random, ids, elements);
+			PackedValueEnvironment<T> packedLeft = prototype.mk(domain, left);
+			PackedValueEnvironment<T> packedRight = prototype.mk(domain, right);
+			ValueEnvironment<T> plainLeft = new ValueEnvironment<>(domain, left);
+			ValueEnvironment<T> plainRight = new ValueEnvironment<>(domain, right);
+
+			ValueEnvironment<T> lub = packedLeft.lub(packedRight);
+			assertSameStates(ids, plainLeft.lub(plainRight), lub);
+			assertSameStates(ids, plainLeft.widening(plainRight), packedLeft.widening(packedRight));
+			assertSameStates(ids, plainLeft.glb(plainRight), packedLeft.glb(packedRight));
+			assertEquals(plainLeft.lessOrEqual(plainRight), packedLeft.lessOrEqual(packedRight));
+			assertEquals(plainRight.lessOrEqual(plainLeft), packedRight.lessOrEqual(packedLeft));
+
+			assertTrue(packedLeft.lessOrEqual(lub));
+			assertTrue(packedRight.lessOrEqual(lub));
+		}
+	}
+
+	private static <T extends PackedLattice<T>> List<T> elements(
+			T domain) {
+		Set<T> elements = new LinkedHashSet<>();
+		for (int code = 0; code < 1 << domain.bits(); code++)
+			elements.add(domain.decode(code));
+		return new ArrayList<>(elements);
+	}
+
+	private static <T> Map<Identifier, T> randomFunction(
+			Random random,
+			List<Identifier> ids,
+			List<T> elements) {
+		// a random window of variables, each present with some probability
+		Map<Identifier, T> function = new HashMap<>();
+		int from = random.nextInt(ids.size()), to = from + random.nextInt(ids.size() - from + 1);
+		for (int i = from; i < to; i++)
+			if (random.nextInt(3) != 0)
+				function.put(ids.get(i), elements.get(random.nextInt(elements.size())));
+		return function;
+	}
+
+	private static <T extends NonRelationalValueDomain<T>> Map<Identifier, T> below(
+			Random random,
+			Map<Identifier, T> function,
+			List<T> elements)
+			throws SemanticException {
+		// a function that is smaller than the given one on its variables, and
+		// that might add others
+		Map<Identifier, T> result = new HashMap<>();
+		for (Map.Entry<Identifier, T> entry : function.entrySet()) {
+			T value = entry.getValue().glb(elements.get(random.nextInt(elements.size())));
+			result.put(entry.getKey(), value);
+		}
+		return result;
+	}
+
+	private static <T extends NonRelationalValueDomain<T>> void assertSameStates(
+			List<Identifier> ids,
+			ValueEnvironment<T> expected,
+			ValueEnvironment<T> actual) {
+		assertEquals(expected.getKeys(), actual.getKeys());
+		assertEquals(expected.isBottom(), actual.isBottom());
+		for (Identifier id : ids)
+			assertEquals(id.toString(), expected.getState(id), actual.getState(id));
+	}
+}
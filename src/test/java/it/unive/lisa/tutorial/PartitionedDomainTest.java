@@ -0,0 +1,68 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.heap.pointbased.FieldSensitivePointBasedHeap;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedDomainTest {
+
+    @Test
+    public void testPacks() throws ParsingException {
+        Program program = IMPFrontend.processFile("inputs/pentagons.imp");
+
+        // i and arr are compared in the guards of the loops, so they must end up in the same pack
+        VariablePacks packs = VariablePacks.of(program);
+        boolean found = false;
+        for (List<String> pack : packs.getPacks())
+            found |= pack.contains("i") && pack.contains("arr");
+        assertTrue(found);
+
+        // each code member has its own i and arr, and their packs are not merged
+        assertEquals(3, packs.getPacks().stream().filter(pack -> pack.contains("i")).count());
+        for (List<String> pack : packs.getPacks())
+            assertTrue(pack.indexOf("i") == pack.lastIndexOf("i"));
+    }
+
+    @Test
+    public void testPartitionedPentagons() throws ParsingException, AnalysisException {
+        Program program = IMPFrontend.processFile("inputs/pentagons.imp");
+
+        LiSAConfiguration conf = TutorialAnalysis.PARTITIONED_PENTAGONS.configure("outputs/partitioned-penta");
+
+        LiSA lisa = new LiSA(conf);
+        lisa.run(program);
+    }
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testPartitionedUpperBounds() throws ParsingException, AnalysisException {
+        Program program = IMPFrontend.processFile("inputs/upperbounds.imp");
+
+        LiSAConfiguration conf = new DefaultConfiguration();
+        conf.workdir = "outputs/partitioned-strictupperbounds";
+        conf.analysisGraphs = GraphType.HTML;
+
+        // the packs are computed before the fixpoint by the interprocedural analysis
+        VariablePacks packs = new VariablePacks();
+        conf.abstractState = DefaultConfiguration.simpleState(
+                new FieldSensitivePointBasedHeap(),
+                new PartitionedDomain<>(new StrictUpperBounds(), packs),
+                DefaultConfiguration.defaultTypeDomain());
+        conf.interproceduralAnalysis = new PackingAnalysis(conf.interproceduralAnalysis, packs);
+
+        LiSA lisa = new LiSA(conf);
+        lisa.run(program);
+    }
+}
@@ -3,16 +3,79 @@ package it.unive.lisa.tutorial;
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
 import it.unive.lisa.analysis.heap.pointbased.FieldSensitivePointBasedHeap;
+import it.unive.lisa.analysis.lattices.ExpressionSet;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.type.Type;
+import it.unive.lisa.type.Untyped;
+import it.unive.lisa.util.numeric.MathNumber;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
 public class PentagonsTest {
 
+    // an oracle without type information, that lets every expression through
+    private static final SemanticOracle ORACLE = new SemanticOracle() {
+
+        @Override
+        public Set<Type> getRuntimeTypesOf(SymbolicExpression e, ProgramPoint pp, SemanticOracle oracle) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Type getDynamicTypeOf(SymbolicExpression e, ProgramPoint pp, SemanticOracle oracle) {
+            return Untyped.INSTANCE;
+        }
+
+        @Override
+        public ExpressionSet rewrite(SymbolicExpression expression, ProgramPoint pp, SemanticOracle oracle) {
+            return new ExpressionSet(expression);
+        }
+
+        @Override
+        public Satisfiability alias(SymbolicExpression x, SymbolicExpression y, ProgramPoint pp, SemanticOracle oracle) {
+            return Satisfiability.UNKNOWN;
+        }
+
+        @Override
+        public Satisfiability isReachableFrom(SymbolicExpression x, SymbolicExpression y, ProgramPoint pp,
+                SemanticOracle oracle) {
+            return Satisfiability.UNKNOWN;
+        }
+    };
+
+    private static final int VARIABLES = 8;
+
+    private static final int STEPS = 3000;
+
     @Test
     public void testPentagons() throws ParsingException, AnalysisException {
         // we parse the program to get the CFG representation of the code in it
@@ -41,4 +104,163 @@ public class PentagonsTest {
         lisa.run(program);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLazyReduction() throws SemanticException {
+        // random sequences of lubs, assignments, assumptions and forgets must
+        // yield the same elements whether the lub reduces the bounds lazily
+        // (as Pentagons does) or eagerly (as the paper does, computed below on
+        // the components): elements that are not reduced yet are used as
+        // operands of later operations, so that the variables still pending
+        // and the ones reassigned after a lub are exercised as well
+        Random random = new Random(42);
+        List<Identifier> ids = new ArrayList<>();
+        for (int i = 0; i < VARIABLES; i++)
+            ids.add(new Variable(Untyped.INSTANCE, "v" + i, SyntheticLocation.INSTANCE));
+
+        List<Pentagons> lazy = new ArrayList<>();
+        List<Eager> eager = new ArrayList<>();
+        StrictUpperBounds top = new StrictUpperBounds().top();
+        for (int i = 0; i < 4; i++) {
+            Eager e = randomElement(random, ids, top);
+            eager.add(e);
+            lazy.add(e.pentagons());
+        }
+
+        for (int step = 0; step < STEPS; step++) {
+            int a = random.nextInt(lazy.size()), b = random.nextInt(lazy.size());
+            Identifier x = ids.get(random.nextInt(VARIABLES)), y = ids.get(random.nextInt(VARIABLES));
+            Pentagons l = lazy.get(a);
+            Eager e = eager.get(a);
+            switch (random.nextInt(6)) {
+            case 0:
+            case 1:
+                l = l.lub(lazy.get(b));
+                e = e.lub(eager.get(b));
+                break;
+            case 2:
+                ValueExpression sub = new BinaryExpression(Untyped.INSTANCE, y, constant(1 + random.nextInt(3)),
+                        NumericNonOverflowingSub.INSTANCE, SyntheticLocation.INSTANCE);
+                l = l.assign(x, sub, null, ORACLE);
+                e = e.assign(x, sub);
+                break;
+            case 3:
+                Constant c = constant(random.nextInt(10));
+                l = l.assign(x, c, null, ORACLE);
+                e = e.assign(x, c);
+                break;
+            case 4:
+                ValueExpression lt = new BinaryExpression(Untyped.INSTANCE, x, y, ComparisonLt.INSTANCE,
+                        SyntheticLocation.INSTANCE);
+                l = l.assume(lt, null, null, ORACLE);
+                e = new Eager(e.bounds.assume(lt, null, null, ORACLE), e.intervals.assume(lt, null, null, ORACLE));
+                break;
+            default:
+                l = l.forgetIdentifier(x);
+                e = new Eager(e.bounds.forgetIdentifier(x), e.intervals.forgetIdentifier(x));
+                break;
+            }
+
+            // only some of the new elements are compared right away, so that
+            // the other ones reach later operations with their bounds unreduced
+            if (random.nextInt(3) == 0) {
+                Pentagons expected = e.pentagons();
+                assertEquals(expected, l);
+                assertEquals(expected.hashCode(), l.hashCode());
+                Pentagons other = eager.get(b).pentagons();
+                assertEquals(expected.lessOrEqual(other), l.lessOrEqual(lazy.get(b)));
+                assertEquals(other.lessOrEqual(expected), lazy.get(b).lessOrEqual(l));
+                ValueExpression lt = new BinaryExpression(Untyped.INSTANCE, x, y, ComparisonLt.INSTANCE,
+                        SyntheticLocation.INSTANCE);
+                assertEquals(expected.satisfies(lt, null, ORACLE), l.satisfies(lt, null, ORACLE));
+            }
+
+            if (lazy.size() < 16) {
+                lazy.add(l);
+                eager.add(e);
+            } else {
+                int slot = random.nextInt(lazy.size());
+                lazy.set(slot, l);
+                eager.set(slot, e);
+            }
+        }
+    }
+
+    private static Constant constant(int value) {
+        return new Constant(Untyped.INSTANCE, value, SyntheticLocation.INSTANCE);
+    }
+
+    private static Eager randomElement(Random random, List<Identifier> ids, StrictUpperBounds top)
+            throws SemanticException {
+        StrictUpperBounds bounds = top;
+        ValueEnvironment<Interval> intervals = new PersistentValueEnvironment<>(new Interval()).top();
+        for (Identifier x : ids) {
+            if (random.nextBoolean()) {
+                int low = random.nextInt(10);
+                intervals = intervals.putState(x, new Interval(new MathNumber(low),
+                        new MathNumber(low + random.nextInt(4))));
+            }
+            if (random.nextBoolean()) {
+                Set<Identifier> set = new HashSet<>();
+                for (Identifier y : ids)
+                    if (y != x && random.nextInt(3) == 0)
+                        set.add(y);
+                bounds = bounds.putState(x, bounds.lattice.fromElements(set));
+            }
+        }
+        return new Eager(bounds, intervals);
+    }
+
+    /**
+     * The components of a pentagon whose bounds are always reduced.
+     */
+    private static class Eager {
+
+        private final StrictUpperBounds bounds;
+
+        private final ValueEnvironment<Interval> intervals;
+
+        private Eager(StrictUpperBounds bounds, ValueEnvironment<Interval> intervals) {
+            this.bounds = bounds;
+            this.intervals = intervals;
+        }
+
+        private Pentagons pentagons() {
+            return new Pentagons(bounds, intervals);
+        }
+
+        private Eager assign(Identifier id, ValueExpression expression) throws SemanticException {
+            // with constants as right operands, pentagons assign each component on its own
+            return new Eager(bounds.assign(id, expression, null, ORACLE), intervals.assign(id, expression, null, ORACLE));
+        }
+
+        private Eager lub(Eager other) throws SemanticException {
+            // s' is the lub of the bounds, s'' and s''' add the bounds of each
+            // operand that hold according to the intervals of the other one
+            StrictUpperBounds result = bounds.lub(other.bounds);
+            Map<Identifier, StrictUpperBounds.IdSet> closures = new HashMap<>();
+            for (Identifier x : bounds.getKeys())
+                closures.put(x, close(closures.getOrDefault(x, result.getState(x)), x, bounds.getState(x),
+                        other.intervals));
+            for (Identifier x : other.bounds.getKeys())
+                closures.put(x, close(closures.getOrDefault(x, result.getState(x)), x, other.bounds.getState(x),
+                        intervals));
+            for (Map.Entry<Identifier, StrictUpperBounds.IdSet> entry : closures.entrySet())
+                if (result.function == null || !entry.getValue().equals(result.function.get(entry.getKey())))
+                    result = result.putState(entry.getKey(), entry.getValue());
+            return new Eager(result, intervals.lub(other.intervals));
+        }
+
+        private static StrictUpperBounds.IdSet close(StrictUpperBounds.IdSet closure, Identifier x,
+                StrictUpperBounds.IdSet bounds, ValueEnvironment<Interval> intervals) {
+            Interval b_x = intervals.getState(x);
+            if (b_x.isBottom())
+                return closure;
+            for (Identifier y : bounds) {
+                Interval b_y = intervals.getState(y);
+                if (!b_y.isBottom() && b_x.interval.getHigh().compareTo(b_y.interval.getLow()) < 0)
+                    closure = closure.add(y);
+            }
+            return closure;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package it.unive.lisa.tutorial;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.imp.ParsingException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCacheTest {
+
+    @Test
+    public void testCache() throws IOException, ParsingException, AnalysisException {
+        // we work on a copy of the taint input, in a fresh cache
+        Path dir = Paths.get("outputs/cache-test");
+        Path input = dir.resolve("taint.imp");
+        Files.createDirectories(dir);
+        Files.copy(Paths.get("inputs/taint.imp"), input, StandardCopyOption.REPLACE_EXISTING);
+        ResultCache cache = new ResultCache(dir.resolve("cache-" + System.nanoTime()), 16 * 1024 * 1024);
+
+        ResultCache.CachedRun first = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(first.hit);
+        assertEquals(first.cfgs.keySet(), first.analyzed);
+        for (String key : first.cfgs.values())
+            assertTrue(Files.exists(cache.states(key)));
+
+        // an unchanged program is not analyzed again
+        ResultCache.CachedRun second = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertTrue(second.hit);
+        assertEquals(first.warnings, second.warnings);
+        assertEquals(first.cfgs, second.cfgs);
+
+        // a new method that is not connected to the other ones is the only one analyzed
+        String code = new String(Files.readAllBytes(input));
+        code += "\nclass extra {\n\tunused(x) {\n\t\tdef y = x + 1;\n\t\treturn y;\n\t}\n}\n";
+        Files.write(input, code.getBytes());
+        ResultCache.CachedRun third = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(third.hit);
+        assertEquals(1, third.analyzed.size());
+        assertTrue(third.analyzed.iterator().next().contains("extra::unused"));
+        for (Map.Entry<String, String> cfg : first.cfgs.entrySet())
+            assertEquals(cfg.getValue(), third.cfgs.get(cfg.getKey()));
+        assertEquals(first.warnings, third.warnings);
+
+        // changing a method changes the entries of the methods connected to it through calls (with the context
+        // based analysis, all the ones of the taint class), but not the other ones
+        Files.write(input, code.replace("def c = 0;", "def c = 1;").getBytes());
+        ResultCache.CachedRun fourth = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(fourth.hit);
+        assertEquals(first.cfgs.keySet(), fourth.analyzed);
+        for (Map.Entry<String, String> cfg : third.cfgs.entrySet())
+            if (cfg.getKey().contains("extra::unused"))
+                assertEquals(cfg.getValue(), fourth.cfgs.get(cfg.getKey()));
+            else
+                assertNotEquals(cfg.getValue(), fourth.cfgs.get(cfg.getKey()));
+        assertEquals(first.warnings, fourth.warnings);
+    }
+
+    @Test
+    public void testEvictedCallee() throws IOException, ParsingException, AnalysisException {
+        // directFlow, that issues a warning, is only called by a new method
+        Path dir = Paths.get("outputs/cache-test");
+        Path input = dir.resolve("callee.imp");
+        Files.createDirectories(dir);
+        String code = new String(Files.readAllBytes(Paths.get("inputs/taint.imp"))).trim();
+        code = code.substring(0, code.length() - 1) + "\n\tindirect() {\n\t\tthis.directFlow();\n\t}\n}\n";
+        Files.write(input, code.getBytes());
+        ResultCache cache = new ResultCache(dir.resolve("cache-" + System.nanoTime()), 16 * 1024 * 1024);
+
+        ResultCache.CachedRun first = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(first.warnings.isEmpty());
+
+        // the entry of the callee is evicted, while the one of its caller is not
+        String callee = null;
+        for (Map.Entry<String, String> cfg : first.cfgs.entrySet())
+            if (cfg.getKey().contains("directFlow"))
+                callee = cfg.getValue();
+        Files.delete(cache.states(callee));
+
+        // the callee can only be reached from its callers, that are analyzed again with it
+        ResultCache.CachedRun second = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(second.hit);
+        assertEquals(first.cfgs.keySet(), second.analyzed);
+        assertEquals(first.warnings, second.warnings);
+
+        // and the warnings stored in the entries are the right ones: a new method that is not connected to the
+        // other ones is the only one analyzed, and the others come from their entries
+        code += "\nclass extra {\n\tunused(x) {\n\t\treturn x;\n\t}\n}\n";
+        Files.write(input, code.getBytes());
+        ResultCache.CachedRun third = cache.analyze(TutorialAnalysis.TAINT, input, dir.toString());
+        assertFalse(third.hit);
+        assertEquals(1, third.analyzed.size());
+        assertEquals(first.warnings, third.warnings);
+    }
+}
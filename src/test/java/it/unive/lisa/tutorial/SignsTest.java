@@ -40,4 +40,19 @@ public class SignsTest {
 		// finally, we tell LiSA to analyze the program
 		lisa.run(program);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testPackedSigns() throws ParsingException, AnalysisException {
+		// same as above, but with an environment storing signs as bits
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = "outputs/sign-packed";
+		conf.analysisGraphs = GraphType.HTML;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new PackedValueEnvironment<>(new Signs()),
+				DefaultConfiguration.defaultTypeDomain());
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+	}
+}
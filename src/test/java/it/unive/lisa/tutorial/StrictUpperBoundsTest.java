@@ -10,8 +10,16 @@ import it.unive.lisa.conf.LiSAConfiguration.GraphType;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Untyped;
 import org.junit.Test;
 
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
 public class StrictUpperBoundsTest {
 
     @Test
@@ -41,4 +49,17 @@ public class StrictUpperBoundsTest {
         // finally, we tell LiSA to analyze the program
         lisa.run(program);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testNumberingPerAnalysis() {
+        // each analysis starting from the prototype numbers identifiers on its
+        // own, while the elements of the same analysis share the numbering
+        StrictUpperBounds prototype = new StrictUpperBounds();
+        StrictUpperBounds first = prototype.top(), second = prototype.top();
+        Variable x = new Variable(Untyped.INSTANCE, "x", SyntheticLocation.INSTANCE);
+        assertEquals(first.lattice.fromElements(Collections.singleton(x)),
+                first.top().lattice.fromElements(Collections.singleton(x)));
+        assertNotEquals(first.lattice.fromElements(Collections.singleton(x)),
+                second.lattice.fromElements(Collections.singleton(x)));
+    }
+}
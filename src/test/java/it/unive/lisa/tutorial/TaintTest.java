@@ -1,12 +1,18 @@
 package it.unive.lisa.tutorial;
 
 import it.unive.lisa.LiSAReport;
+import it.unive.lisa.checks.warnings.StatementWarning;
 import it.unive.lisa.checks.warnings.Warning;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
 import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SemanticException;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
@@ -16,9 +22,21 @@ import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
 import it.unive.lisa.interprocedural.context.FullStackToken;
 import it.unive.lisa.program.ClassUnit;
 import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
 import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.annotations.AnnotationMember;
+import it.unive.lisa.program.annotations.values.StringAnnotationValue;
 import it.unive.lisa.program.cfg.CodeMember;
 import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Untyped;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 
 public class TaintTest {
 
@@ -62,5 +80,219 @@ public class TaintTest {
         System.out.println("The following warnings were generated:");
         for (Warning warning : report.getWarnings())
             System.out.println(warning);
+
+        // the sink calls are found through the call graph before the check starts: none of the two tainted ones
+        // (in directFlow and branch) must be missed, and the clean ones must not be flagged
+        List<String> flagged = new ArrayList<>();
+        for (Warning warning : report.getWarnings())
+            flagged.add(((StatementWarning) warning).getStatement().getCFG().getDescriptor().getName());
+        Collections.sort(flagged);
+        assertEquals(List.of("branch", "directFlow"), flagged);
+    }
+
+    @Test
+    public void testPackedTaint() throws ParsingException, AnalysisException {
+        // same as above, but with an environment storing taintedness as bits:
+        // the warnings must be the same ones
+        Program program = IMPFrontend.processFile("inputs/taint.imp");
+        LiSAConfiguration conf = new DefaultConfiguration();
+        conf.workdir = "outputs/taint-packed";
+        conf.jsonOutput = true;
+        conf.abstractState = DefaultConfiguration.simpleState(
+                DefaultConfiguration.defaultHeapDomain(),
+                new PackedValueEnvironment<>(new Taint()),
+                DefaultConfiguration.defaultTypeDomain());
+        conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+        conf.semanticChecks.add(new TaintCheck());
+        LiSAReport packed = new LiSA(conf).run(program);
+
+        conf = new DefaultConfiguration();
+        conf.workdir = "outputs/taint-unpacked";
+        conf.abstractState = DefaultConfiguration.simpleState(
+                DefaultConfiguration.defaultHeapDomain(),
+                new ValueEnvironment<>(new Taint()),
+                DefaultConfiguration.defaultTypeDomain());
+        conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+        conf.semanticChecks.add(new TaintCheck());
+        LiSAReport plain = new LiSA(conf).run(IMPFrontend.processFile("inputs/taint.imp"));
+
+        assertEquals(new HashSet<>(plain.getWarnings()), new HashSet<>(packed.getWarnings()));
+    }
+
+    @Test
+    public void testParallelTaint() throws ParsingException, AnalysisException {
+        // same as the first test, but inspecting the CFGs on 4 threads:
+        // the warnings must be the same ones, in the same order
+        TaintCheck parallelCheck = new TaintCheck(4), sequentialCheck = new TaintCheck();
+        LiSAReport parallel = runTaintCheck("outputs/taint-parallel", parallelCheck);
+        LiSAReport sequential = runTaintCheck("outputs/taint-sequential", sequentialCheck);
+        assertEquals(new ArrayList<>(sequential.getWarnings()), new ArrayList<>(parallel.getWarnings()));
+
+        // each parameter is evaluated once per call and context, regardless of the threads
+        assertEquals(sequentialCheck.getCacheMisses(), parallelCheck.getCacheMisses());
+        assertEquals(sequentialCheck.getCacheHits(), parallelCheck.getCacheHits());
+    }
+
+    @Test
+    public void testLabeledTaint() throws ParsingException, AnalysisException {
+        // a single analysis tracks both sql and xss taint: each sink only
+        // rejects the labels it is annotated with
+        LiSAConfiguration conf = TutorialAnalysis.LABELED_TAINT.configure("outputs/labeled-taint");
+        LiSAReport report = new LiSA(conf).run(IMPFrontend.processFile("inputs/labeled-taint.imp"));
+
+        List<String> warnings = new ArrayList<>();
+        for (Warning warning : report.getWarnings())
+            warnings.add(warning.toString());
+        assertEquals(3, warnings.size());
+        assertEquals(1, warnings.stream().filter(w -> w.contains("tainted with sql,") && w.contains("sqlSink")).count());
+        assertEquals(1, warnings.stream().filter(w -> w.contains("tainted with xss,") && w.contains("htmlSink")).count());
+        // labels are listed in the order they have been first found
+        assertEquals(1, warnings.stream().filter(w -> w.contains("anySink")
+                && (w.contains("tainted with sql, xss") || w.contains("tainted with xss, sql"))).count());
+    }
+
+    @Test
+    public void testLabeledTaintTables() {
+        // each analysis numbers its own labels, and can track 64 of them
+        LabeledTaint first = new LabeledTaint(), second = new LabeledTaint();
+        for (int i = 0; i < Long.SIZE; i++)
+            assertEquals(i, first.bit("label" + i));
+        assertEquals(0, second.bit("sql"));
+        assertEquals(List.of("sql"), second.top().names(1L));
+        assertEquals(List.of("label0"), first.bottom().names(1L));
+
+        // annotations are parsed in the labels of the analysis of the element
+        Annotation sink = new Annotation("lisa.taint.Sink",
+                List.of(new AnnotationMember(LabeledTaint.LABELS_MEMBER, new StringAnnotationValue("sql,xss"))));
+        assertEquals(0b11L, second.mask(sink));
+        assertEquals(List.of("sql", "xss"), second.names(second.mask(sink)));
+        assertEquals(-1L, second.mask(new Annotation("lisa.taint.Sink")));
+    }
+
+    @Test
+    public void testSparseTaint() throws ParsingException, AnalysisException {
+        // storing clean variables apart must not change the warnings
+        LiSAReport plain = runTaintCheck("outputs/taint-dense", new TaintCheck());
+        LiSAConfiguration conf = TutorialAnalysis.SPARSE_TAINT.configure("outputs/taint-sparse");
+        LiSAReport sparse = new LiSA(conf).run(IMPFrontend.processFile("inputs/taint.imp"));
+        assertEquals(new HashSet<>(plain.getWarnings()), new HashSet<>(sparse.getWarnings()));
+    }
+
+    @Test
+    public void testSparseTaintUnknown() throws SemanticException {
+        // variables that were never assigned, or that have been forgotten, are
+        // tainted as in the dense environment
+        Taint taint = new Taint();
+        Variable x = new Variable(Untyped.INSTANCE, "x", SyntheticLocation.INSTANCE);
+        Variable y = new Variable(Untyped.INSTANCE, "y", SyntheticLocation.INSTANCE);
+        ValueEnvironment<Taint> sparse = new SparseTaintEnvironment().putState(x, taint.clean());
+        ValueEnvironment<Taint> dense = new ValueEnvironment<>(taint).putState(x, taint.clean());
+        assertEquals(dense.getState(x), sparse.getState(x));
+        assertEquals(dense.getState(y), sparse.getState(y));
+        assertEquals(taint.top(), sparse.getState(y));
+        assertEquals(taint.top(), sparse.forgetIdentifier(x).getState(x));
+        assertEquals(taint.top(), sparse.forgetIdentifiersIf(id -> true).getState(x));
+
+        // clean variables are kept by lub, glb and the ordering
+        ValueEnvironment<Taint> tainted = sparse.putState(y, taint.top());
+        assertTrue(sparse.lessOrEqual(tainted));
+        assertEquals(taint.clean(), sparse.lub(tainted).getState(x));
+        assertEquals(taint.clean(), tainted.glb(sparse).getState(x));
+    }
+
+    @Test
+    public void testSparseTaintLattice() throws SemanticException {
+        // lub, widening, glb and lessOrEqual of branches of the same state, where
+        // each branch updates or forgets a few variables, agree with the ones of
+        // the dense environment
+        Taint taint = new Taint();
+        Taint[] values = { taint.bottom(), taint.clean(), taint.top() };
+        List<Variable> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            ids.add(new Variable(Untyped.INSTANCE, "v" + i, SyntheticLocation.INSTANCE));
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            ValueEnvironment<Taint> sparse = new SparseTaintEnvironment();
+            ValueEnvironment<Taint> dense = new ValueEnvironment<>(taint);
+            for (Variable id : ids)
+                if (random.nextInt(4) != 0) {
+                    // most variables are clean
+                    Taint value = random.nextInt(5) == 0 ? values[random.nextInt(3)] : taint.clean();
+                    sparse = sparse.putState(id, value);
+                    dense = dense.putState(id, value);
+                }
+
+            List<ValueEnvironment<Taint>> sparseBranches = new ArrayList<>(), denseBranches = new ArrayList<>();
+            for (int branch = 0; branch < 2; branch++) {
+                ValueEnvironment<Taint> s = sparse, d = dense;
+                for (int update = random.nextInt(6); update > 0; update--) {
+                    Variable id = ids.get(random.nextInt(ids.size()));
+                    if (random.nextInt(4) == 0) {
+                        s = s.forgetIdentifier(id);
+                        d = d.forgetIdentifier(id);
+                    } else {
+                        Taint value = values[random.nextInt(3)];
+                        s = s.putState(id, value);
+                        d = d.putState(id, value);
+                    }
+                }
+                sparseBranches.add(s);
+                denseBranches.add(d);
+            }
+
+            ValueEnvironment<Taint> sl = sparseBranches.get(0), sr = sparseBranches.get(1);
+            ValueEnvironment<Taint> dl = denseBranches.get(0), dr = denseBranches.get(1);
+            assertSameStates(ids, dl.lub(dr), sl.lub(sr));
+            assertSameStates(ids, dl.widening(dr), sl.widening(sr));
+            assertSameStates(ids, dl.glb(dr), sl.glb(sr));
+            assertEquals(dl.lessOrEqual(dr), sl.lessOrEqual(sr));
+            assertEquals(dr.lessOrEqual(dl), sr.lessOrEqual(sl));
+            assertTrue(sl.lessOrEqual(sl.lub(sr)));
+        }
+    }
+
+    private static void assertSameStates(
+            List<Variable> ids,
+            ValueEnvironment<Taint> expected,
+            ValueEnvironment<Taint> actual) {
+        assertEquals(expected.getKeys(), actual.getKeys());
+        for (Variable id : ids)
+            assertEquals(id.toString(), expected.getState(id), actual.getState(id));
+    }
+
+    @Test
+    public void testTracedTaint() throws ParsingException, AnalysisException {
+        // tracing sources issues the same warnings, each naming its source calls
+        LiSAReport plain = runTaintCheck("outputs/taint-untraced", new TaintCheck());
+        LiSAConfiguration conf = TutorialAnalysis.TRACED_TAINT.configure("outputs/taint-traced");
+        LiSAReport traced = new LiSA(conf).run(IMPFrontend.processFile("inputs/taint.imp"));
+
+        assertEquals(plain.getWarnings().size(), traced.getWarnings().size());
+        for (Warning warning : traced.getWarnings())
+            assertTrue(warning.toString().contains("called at"));
+    }
+
+    @Test
+    public void testTracedTaintCap() throws SemanticException {
+        // values coming from more sources than the cap come from unknown sources
+        TracedTaint top = new TracedTaint(2);
+        TracedTaint a = top.source("a"), b = top.source("b"), c = top.source("c");
+        assertEquals(List.of("a", "b"), b.lub(a).getSources());
+        assertTrue(a.lessOrEqual(a.lub(b)));
+        assertEquals(List.of("b"), a.lub(b).glb(b.lub(c)).getSources());
+        assertTrue(a.lub(b).lub(c).isTop());
+        assertNull(a.lub(b).lub(c).getSources());
+    }
+
+    private static LiSAReport runTaintCheck(String workdir, TaintCheck check) throws ParsingException, AnalysisException {
+        LiSAConfiguration conf = new DefaultConfiguration();
+        conf.workdir = workdir;
+        conf.abstractState = DefaultConfiguration.simpleState(
+                DefaultConfiguration.defaultHeapDomain(),
+                new ValueEnvironment<>(new Taint()),
+                DefaultConfiguration.defaultTypeDomain());
+        conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+        conf.semanticChecks.add(check);
+        return new LiSA(conf).run(IMPFrontend.processFile("inputs/taint.imp"));
     }
-}
\ No newline at end of file
+}